@@ -0,0 +1,109 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.BatchCommand;
+import com.gdwii.tool4j.chain.BatchResult;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.BatchExecutionBenchmark
+ * @description: 逐个执行与按命令批量执行(串行/并行)一批Context的耗时对比
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchExecutionBenchmark {
+    @Param({"10000"})
+    public int size;
+
+    private ChainBase chain;
+
+    private List<Context> contexts;
+
+    @Setup
+    public void setUp() {
+        chain = new ChainBase(new Command[]{new NoopFilter(), new LookupCommand(), new SumCommand()});
+        contexts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Context context = new ContextBase();
+            context.put("value", i);
+            contexts.add(context);
+        }
+    }
+
+    @Benchmark
+    public int loop() throws Exception {
+        int completed = 0;
+        for (Context context : contexts) {
+            if (chain.execute(context)) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    @Benchmark
+    public BatchResult batchSerial() {
+        return chain.executeBatch(contexts, Runnable::run);
+    }
+
+    @Benchmark
+    public BatchResult batchParallel() {
+        return chain.executeBatch(contexts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 模拟每次调用有固定开销(如一次查询)的命令, 批量执行时每批只付一次
+     */
+    public static class LookupCommand implements BatchCommand {
+        @Override
+        public boolean execute(Context context) {
+            Blackhole.consumeCPU(64);
+            context.put("rate", 3);
+            return false;
+        }
+
+        @Override
+        public BatchResult executeBatch(List<? extends Context> contexts) {
+            Blackhole.consumeCPU(64);
+            for (Context context : contexts) {
+                context.put("rate", 3);
+            }
+            return new BatchResult(contexts.size());
+        }
+    }
+
+    public static class SumCommand implements Command {
+        @Override
+        public boolean execute(Context context) {
+            context.put("sum", (Integer) context.get("value") * (Integer) context.get("rate"));
+            return true;
+        }
+    }
+
+    public static class NoopFilter implements Filter {
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            return false;
+        }
+    }
+}
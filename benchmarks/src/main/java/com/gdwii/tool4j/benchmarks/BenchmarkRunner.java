@@ -0,0 +1,36 @@
+package com.gdwii.tool4j.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.BenchmarkRunner
+ * @description: 基准测试入口, 参数与JMH命令行相同; 未指定-rf时结果以JSON格式写入jmh-result.json, 便于跨版本对比
+ * @author gdw
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList() || commandLine.shouldListWithParams() || commandLine.shouldListProfilers()
+                || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,59 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Catalog;
+import com.gdwii.tool4j.chain.CatalogFactory;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.CommandHandle;
+import com.gdwii.tool4j.chain.impl.CatalogBase;
+import com.gdwii.tool4j.chain.impl.CatalogFactoryBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.CatalogFactoryBenchmark
+ * @description: 按命令ID("catalog:command")解析命令: CatalogFactory.getCommand, 预解析的CommandHandle与直接查Catalog的耗时对比
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogFactoryBenchmark {
+    private static final String COMMAND_ID = "orders:create";
+
+    private CatalogFactory factory;
+
+    private CommandHandle handle;
+
+    private Catalog catalog;
+
+    @Setup
+    public void setUp() {
+        factory = new CatalogFactoryBase();
+        catalog = new CatalogBase();
+        for (int i = 0; i < 64; i++) {
+            catalog.addCommand("command" + i, context -> false);
+        }
+        catalog.addCommand("create", context -> true);
+        factory.addCatalog("orders", catalog);
+        handle = factory.getCommandHandle(COMMAND_ID);
+    }
+
+    @Benchmark
+    public Command factoryGetCommand() {
+        return factory.getCommand(COMMAND_ID);
+    }
+
+    @Benchmark
+    public Command handleGetCommand() {
+        return handle.getCommand();
+    }
+
+    @Benchmark
+    public Command catalogGetCommand() {
+        return catalog.getCommand("create");
+    }
+}
@@ -0,0 +1,72 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Catalog;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.impl.CatalogBase;
+import com.gdwii.tool4j.chain.impl.CopyOnWriteCatalog;
+import com.gdwii.tool4j.chain.impl.ImmutableCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.CatalogLookupBenchmark
+ * @description: CatalogBase(ConcurrentHashMap)与ImmutableCatalog(完美哈希)的命令查找耗时对比
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogLookupBenchmark {
+    @Param({"16", "1024"})
+    public int size;
+
+    private String[] names;
+
+    private Catalog catalogBase;
+
+    private Catalog immutable;
+
+    private Catalog copyOnWrite;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        CatalogBase catalog = new CatalogBase();
+        names = new String[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = "command" + i;
+            catalog.addCommand(names[i], context -> false);
+        }
+        catalogBase = catalog;
+        immutable = ImmutableCatalog.copyOf(catalog);
+        copyOnWrite = new CopyOnWriteCatalog(catalog);
+    }
+
+    private String nextName() {
+        int index = next++;
+        if (next == size) {
+            next = 0;
+        }
+        return names[index];
+    }
+
+    @Benchmark
+    public Command catalogBase() {
+        return catalogBase.getCommand(nextName());
+    }
+
+    @Benchmark
+    public Command immutable() {
+        return immutable.getCommand(nextName());
+    }
+
+    @Benchmark
+    public Command copyOnWrite() {
+        return copyOnWrite.getCommand(nextName());
+    }
+}
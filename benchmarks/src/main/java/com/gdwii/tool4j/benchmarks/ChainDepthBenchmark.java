@@ -0,0 +1,91 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ChainCompiler;
+import com.gdwii.tool4j.chain.impl.CompiledChain;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.ChainDepthBenchmark
+ * @description: 嵌套责任链、扁平化(ChainCompiler)责任链与单层责任链的执行耗时对比
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChainDepthBenchmark {
+    /**
+     * 嵌套层数, 每层包含一个Filter, 一个Command和下一层责任链
+     */
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    private ChainBase nested;
+
+    private CompiledChain compiled;
+
+    private ChainBase flat;
+
+    private final Context context = new ContextBase();
+
+    @Setup
+    public void setUp() {
+        ChainBase chain = new ChainBase(new Command[]{new NoopFilter(), new NoopCommand()});
+        List<Command> flatCommands = new ArrayList<>();
+        flatCommands.add(new NoopFilter());
+        flatCommands.add(new NoopCommand());
+        for (int i = 1; i < depth; i++) {
+            chain = new ChainBase(new Command[]{new NoopFilter(), new NoopCommand(), chain});
+            flatCommands.add(new NoopFilter());
+            flatCommands.add(new NoopCommand());
+        }
+        nested = chain;
+        compiled = ChainCompiler.compile(chain);
+        flat = new ChainBase(flatCommands);
+    }
+
+    @Benchmark
+    public boolean nested() throws Exception {
+        return nested.execute(context);
+    }
+
+    @Benchmark
+    public boolean compiled() throws Exception {
+        return compiled.execute(context);
+    }
+
+    @Benchmark
+    public boolean flat() throws Exception {
+        return flat.execute(context);
+    }
+
+    public static class NoopCommand implements Command {
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+    }
+
+    public static class NoopFilter implements Filter {
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ChainMetrics;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.ChainMetricsBenchmark
+ * @description: 安装ChainMetrics前后责任链的执行耗时, 单线程与8线程并发执行同一责任链对比
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChainMetricsBenchmark {
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private ChainBase chain;
+
+    private ChainMetrics chainMetrics;
+
+    @Setup
+    public void setUp() {
+        chain = new ChainBase(new Command[]{new ChainDepthBenchmark.NoopFilter(),
+                new ChainDepthBenchmark.NoopCommand(), new ChainDepthBenchmark.NoopCommand()});
+        if (metrics) {
+            chainMetrics = new ChainMetrics("benchmark", "chain", chain);
+            chainMetrics.install();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (chainMetrics != null) {
+            chainMetrics.uninstall();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadContext {
+        final Context context = new ContextBase();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean singleThread(ThreadContext state) throws Exception {
+        return chain.execute(state.context);
+    }
+
+    /**
+     * 8个线程记录同一组直方图与计数器
+     */
+    @Benchmark
+    @Threads(8)
+    public boolean contended(ThreadContext state) throws Exception {
+        return chain.execute(state.context);
+    }
+}
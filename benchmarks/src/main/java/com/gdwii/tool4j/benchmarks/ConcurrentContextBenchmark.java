@@ -0,0 +1,76 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.impl.ConcurrentContext;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import com.gdwii.tool4j.chain.impl.SynchronizedContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.ConcurrentContextBenchmark
+ * @description: 多线程竞争下ConcurrentContext与SynchronizedContext的读写性能对比
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ConcurrentContextBenchmark {
+    private static final int KEYS = 16;
+    private static final String[] NAMES = new String[KEYS];
+
+    static {
+        for (int i = 0; i < KEYS; i++) {
+            NAMES[i] = "attribute" + i;
+        }
+    }
+
+    @Param({"concurrent", "synchronized"})
+    public String implementation;
+
+    private Context context;
+
+    @Setup
+    public void setUp() {
+        context = "concurrent".equals(implementation)
+                ? new ConcurrentContext() : new SynchronizedContext(new ContextBase());
+        for (String name : NAMES) {
+            context.put(name, 0L);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        return context.get(NAMES[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public Object put() {
+        return context.put(NAMES[ThreadLocalRandom.current().nextInt(KEYS)], "value");
+    }
+
+    @Benchmark
+    public Object merge() {
+        return context.merge(NAMES[ThreadLocalRandom.current().nextInt(KEYS)], 1L,
+                (a, b) -> a instanceof Long ? (Long) a + 1L : b);
+    }
+
+    /**
+     * 90%读, 10%写
+     */
+    @Benchmark
+    public Object readMostly() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String name = NAMES[random.nextInt(KEYS)];
+        if (random.nextInt(10) == 0) {
+            return context.put(name, "value");
+        }
+        return context.get(name);
+    }
+}
@@ -0,0 +1,43 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import com.gdwii.tool4j.chain.impl.ContextPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.ContextPoolBenchmark
+ * @description: 池化Context与每次新建Context的分配率对比(使用 -prof gc 查看 gc.alloc.rate.norm)
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContextPoolBenchmark {
+    private final ContextPool<ContextBase> pool = new ContextPool<>(ContextBase::new);
+
+    private final Command command = context -> {
+        context.put("request", "request");
+        context.put("response", "response");
+        return Command.PROCESSING_COMPLETE;
+    };
+
+    @Benchmark
+    @Threads(4)
+    public boolean pooled() throws Exception {
+        return pool.execute(command, context -> context.put("user", "user"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean allocateWithAttribute() throws Exception {
+        ContextBase context = new ContextBase();
+        context.put("user", "user");
+        return command.execute(context);
+    }
+}
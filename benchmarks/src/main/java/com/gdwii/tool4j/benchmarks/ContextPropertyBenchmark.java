@@ -0,0 +1,147 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.ContextKey;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.ContextPropertyBenchmark
+ * @description: ContextBase属性读写: 编译后的访问器 vs 反射(Method.invoke)
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContextPropertyBenchmark {
+    private static final Object[] zeroParams = new Object[0];
+
+    private static final ContextKey<String> USER = ContextKey.of("benchmark.user", String.class);
+
+    private SampleContext context;
+    private Map<String, PropertyDescriptor> descriptors;
+    private String key;
+    private String attributeKey;
+    private String value;
+
+    @Setup
+    public void setup() throws Exception {
+        context = new SampleContext();
+        context.setName("benchmark");
+        context.put("attribute", "attribute");
+        context.put(USER, "user");
+        attributeKey = "attribute";
+        key = "name";
+        value = "value";
+        descriptors = new HashMap<>();
+        for (PropertyDescriptor pd : Introspector.getBeanInfo(SampleContext.class).getPropertyDescriptors()) {
+            descriptors.put(pd.getName(), pd);
+        }
+    }
+
+    @Benchmark
+    public Object compiledGet() {
+        return context.get(key);
+    }
+
+    @Benchmark
+    public Object compiledPut() {
+        return context.put(key, value);
+    }
+
+    /**
+     * 内部容器(HashMap)中的属性值
+     */
+    @Benchmark
+    public Object attributeGet() {
+        return context.get(attributeKey);
+    }
+
+    /**
+     * ContextKey按槽位读取
+     */
+    @Benchmark
+    public Object contextKeyGet() {
+        return context.get(USER);
+    }
+
+    @Benchmark
+    public Object contextKeyPut() {
+        return context.put(USER, value);
+    }
+
+    /**
+     * 与ContextBase原有实现一致: 按名称查找PropertyDescriptor后反射调用
+     */
+    @Benchmark
+    public Object reflectiveGet() throws Exception {
+        PropertyDescriptor descriptor = descriptors.get(key);
+        return descriptor.getReadMethod().invoke(context, zeroParams);
+    }
+
+    @Benchmark
+    public Object reflectivePut() throws Exception {
+        PropertyDescriptor descriptor = descriptors.get(key);
+        Object previous = descriptor.getReadMethod().invoke(context, zeroParams);
+        descriptor.getWriteMethod().invoke(context, value);
+        return previous;
+    }
+
+    /**
+     * 构造开销: 属性元数据按类共享, 配合 -prof gc 观察每次构造的内存分配
+     */
+    @Benchmark
+    public Object construct() {
+        return new SampleContext();
+    }
+
+    /**
+     * 遍历entrySet(属性 + 内部容器), 配合 -prof gc 观察视图是否产生垃圾
+     */
+    @Benchmark
+    public void iterateEntries(Blackhole blackhole) {
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public void forEachEntry(Blackhole blackhole) {
+        context.forEach((key, value) -> blackhole.consume(value));
+    }
+
+    @Benchmark
+    public Object directGet() {
+        return context.getName();
+    }
+
+    public static class SampleContext extends ContextBase {
+        private String name;
+        private int count;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.ExceptionPathBenchmark
+ * @description: 命令抛出异常时的执行耗时: 异常由Filter处理或抛给调用方, 带栈与不带栈的异常, 以及责任链嵌套深度的影响
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExceptionPathBenchmark {
+    /**
+     * 抛出异常的命令所在的嵌套层数
+     */
+    @Param({"1", "8"})
+    public int depth;
+
+    private ChainBase succeeding;
+
+    private ChainBase handled;
+
+    private ChainBase unhandled;
+
+    private ChainBase stackless;
+
+    private final Context context = new ContextBase();
+
+    @Setup
+    public void setUp() {
+        succeeding = nest(new ChainBase(new Command[]{new NoopFilter(), context -> true}));
+        handled = nest(new ChainBase(new Command[]{new HandlingFilter(), new FailingCommand(true)}));
+        unhandled = nest(new ChainBase(new Command[]{new NoopFilter(), new FailingCommand(true)}));
+        stackless = nest(new ChainBase(new Command[]{new NoopFilter(), new FailingCommand(false)}));
+    }
+
+    private ChainBase nest(ChainBase chain) {
+        for (int i = 1; i < depth; i++) {
+            chain = new ChainBase(new Command[]{new NoopFilter(), chain});
+        }
+        return chain;
+    }
+
+    @Benchmark
+    public boolean success() throws Exception {
+        return succeeding.execute(context);
+    }
+
+    @Benchmark
+    public boolean handled() throws Exception {
+        return handled.execute(context);
+    }
+
+    @Benchmark
+    public Exception unhandled() {
+        try {
+            unhandled.execute(context);
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Exception unhandledStackless() {
+        try {
+            stackless.execute(context);
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    public static class FailingCommand implements Command {
+        private final boolean stackTrace;
+
+        public FailingCommand(boolean stackTrace) {
+            this.stackTrace = stackTrace;
+        }
+
+        @Override
+        public boolean execute(Context context) throws Exception {
+            throw new CommandException(stackTrace);
+        }
+    }
+
+    public static class CommandException extends Exception {
+        public CommandException(boolean stackTrace) {
+            super("failed", null, false, stackTrace);
+        }
+    }
+
+    public static class HandlingFilter implements Filter {
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            return exception != null;
+        }
+    }
+
+    public static class NoopFilter implements Filter {
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            return false;
+        }
+    }
+}
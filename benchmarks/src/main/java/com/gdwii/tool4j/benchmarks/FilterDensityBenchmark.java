@@ -0,0 +1,68 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.FilterDensityBenchmark
+ * @description: 16个命令的责任链中Filter占比不同时的执行耗时(postprocess逆序回调的开销)
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterDensityBenchmark {
+    private static final int LENGTH = 16;
+
+    /**
+     * 每多少个命令中有一个Filter, 0表示没有Filter
+     */
+    @Param({"0", "4", "2", "1"})
+    public int filterEvery;
+
+    private ChainBase chain;
+
+    private final Context context = new ContextBase();
+
+    @Setup
+    public void setUp() {
+        Command[] commands = new Command[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            commands[i] = filterEvery > 0 && i % filterEvery == 0 ? new NoopFilter() : new NoopCommand();
+        }
+        chain = new ChainBase(commands);
+    }
+
+    @Benchmark
+    public boolean execute() throws Exception {
+        return chain.execute(context);
+    }
+
+    public static class NoopCommand implements Command {
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+    }
+
+    public static class NoopFilter implements Filter {
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            return false;
+        }
+    }
+}
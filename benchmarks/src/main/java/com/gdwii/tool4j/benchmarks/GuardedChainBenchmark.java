@@ -0,0 +1,55 @@
+package com.gdwii.tool4j.benchmarks;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.generic.BulkheadFilter;
+import com.gdwii.tool4j.chain.generic.CircuitBreakerFilter;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: com.gdwii.tool4j.benchmarks.GuardedChainBenchmark
+ * @description: 熔断器与舱壁隔离Filter在正常路径上的额外耗时
+ * @author gdw
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GuardedChainBenchmark {
+    private ChainBase plain;
+
+    private ChainBase circuitBreaker;
+
+    private ChainBase bulkhead;
+
+    private final Context context = new ContextBase();
+
+    @Setup
+    public void setUp() {
+        Command command = context -> true;
+        plain = new ChainBase(new Command[]{command});
+        circuitBreaker = new ChainBase(new Command[]{new CircuitBreakerFilter(), command});
+        bulkhead = new ChainBase(new Command[]{new BulkheadFilter(), command});
+    }
+
+    @Benchmark
+    public boolean plain() throws Exception {
+        return plain.execute(context);
+    }
+
+    @Benchmark
+    public boolean circuitBreaker() throws Exception {
+        return circuitBreaker.execute(context);
+    }
+
+    @Benchmark
+    public boolean bulkhead() throws Exception {
+        return bulkhead.execute(context);
+    }
+}
@@ -0,0 +1,42 @@
+package com.gdwii.tool4j.chain;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>An {@link AsyncChain} is a {@link Chain} that can be executed without
+ * blocking the calling thread.  <code>executeAsync()</code> follows the
+ * algorithm described by {@link Chain#execute(Context)}: each
+ * {@link Command} is executed in turn, {@link AsyncCommand}s are awaited
+ * without blocking a thread, and the <code>postprocess()</code> methods of
+ * the executed {@link Filter}s are called in reverse order once the chain
+ * has completed or failed.</p>
+ *
+ * <p>Because an {@link AsyncChain} is itself an {@link AsyncCommand},
+ * nested asynchronous chains are composed without blocking as well.</p>
+ */
+public interface AsyncChain extends Chain, AsyncCommand {
+    /**
+     * <p>Execute the processing represented by this {@link AsyncChain}
+     * according to the algorithm of {@link Chain#execute(Context)}, without
+     * blocking the calling thread.</p>
+     *
+     * @param context The {@link Context} to be processed by this
+     *  {@link AsyncChain}
+     *
+     * @exception IllegalArgumentException if <code>context</code>
+     *  is <code>null</code>
+     *
+     * @return Stage completing with <code>true</code> if the processing of
+     *  this {@link Context} has been completed, or <code>false</code> if it
+     *  should be delegated to a subsequent {@link Command}; or completing
+     *  exceptionally with the exception of the last executed
+     *  {@link Command} if no {@link Filter} handled it
+     */
+    @Override
+    CompletionStage<Boolean> executeAsync(Context context);
+
+    @Override
+    default boolean execute(Context context) throws Exception {
+        return AsyncCommand.super.execute(context);
+    }
+}
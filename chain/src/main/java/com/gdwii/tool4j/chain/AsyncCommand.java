@@ -0,0 +1,61 @@
+package com.gdwii.tool4j.chain;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <p>An {@link AsyncCommand} is a {@link Command} whose processing may
+ * complete later, typically because it waits for I/O.  Instead of blocking
+ * the calling thread, <code>executeAsync()</code> returns a
+ * <code>CompletionStage</code> that completes with the value that
+ * <code>execute()</code> would have returned, or completes exceptionally
+ * with the exception it would have thrown.</p>
+ *
+ * <p>An {@link AsyncChain} composes {@link AsyncCommand}s without blocking;
+ * any other {@link Chain} calls the blocking <code>execute()</code>
+ * method, which waits for the returned stage.</p>
+ */
+public interface AsyncCommand extends Command {
+    /**
+     * <p>Start a unit of processing work to be performed.  The returned
+     * stage completes with <code>true</code> if the processing of the
+     * {@link Context} has been completed, or <code>false</code> if it should
+     * be delegated to a subsequent {@link Command} in an enclosing
+     * {@link Chain}.</p>
+     *
+     * @param context The {@link Context} to be processed by this
+     *  {@link AsyncCommand}
+     *
+     * @exception IllegalArgumentException if <code>context</code>
+     *  is <code>null</code>
+     *
+     * @return Stage completing with the result of the processing
+     */
+    CompletionStage<Boolean> executeAsync(Context context);
+
+    /**
+     * <p>Execute this {@link AsyncCommand} and wait for its completion.</p>
+     *
+     * @param context The {@link Context} to be processed by this
+     *  {@link AsyncCommand}
+     *
+     * @exception Exception the exception the returned stage completed with
+     *
+     * @return The value the returned stage completed with
+     */
+    @Override
+    default boolean execute(Context context) throws Exception {
+        try {
+            return Boolean.TRUE.equals(executeAsync(context).toCompletableFuture().get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.gdwii.tool4j.chain;
+
+import java.util.List;
+
+/**
+ * <p>A {@link BatchCommand} is a {@link Command} that processes many
+ * {@link Context}s in one call, so that it can amortize its per-call work
+ * over the batch: one query for all keys, one validation pass over
+ * contiguous data.  <code>ChainBase.executeBatch()</code> hands each
+ * {@link BatchCommand} the contexts still being processed at its
+ * position, instead of calling <code>execute()</code> once per
+ * context.</p>
+ *
+ * <p>The contexts may be split into chunks processed concurrently; the
+ * {@link Command} thread-safety rules apply.  An exception concerning one
+ * {@link Context} should be recorded at its position rather than thrown,
+ * so that the rest of the batch proceeds.</p>
+ */
+public interface BatchCommand extends Command {
+    /**
+     * <p>Process the specified contexts.  The default implementation calls
+     * <code>execute()</code> for each of them.</p>
+     *
+     * @param contexts The {@link Context}s to be processed
+     *
+     * @return The outcome of each {@link Context}, by position in
+     *  <code>contexts</code>
+     */
+    default BatchResult executeBatch(List<? extends Context> contexts) {
+        BatchResult batch = new BatchResult(contexts.size());
+        for (int i = 0; i < contexts.size(); i++) {
+            try {
+                batch.setResult(i, execute(contexts.get(i)));
+            } catch (Exception e) {
+                batch.setException(i, e);
+            }
+        }
+        return batch;
+    }
+}
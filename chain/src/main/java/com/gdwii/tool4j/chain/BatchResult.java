@@ -0,0 +1,86 @@
+package com.gdwii.tool4j.chain;
+
+
+/**
+ * <p>Outcome of processing each {@link Context} of a batch: the value
+ * <code>execute()</code> returned for it, or the exception it threw.
+ * Positions are those of the contexts in the batch.</p>
+ *
+ * <p>Distinct positions may be set by different threads; the result must
+ * be published safely before it is read, as a completed future or a
+ * joined task does.</p>
+ */
+public final class BatchResult {
+    // ----------------------------------------------------- Instance Variables
+
+    private final boolean[] results;
+
+    private final Exception[] exceptions;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * <p>Create a result where every {@link Context} returned
+     * <code>false</code> without exception.</p>
+     *
+     * @param size Number of contexts of the batch
+     */
+    public BatchResult(int size) {
+        this.results = new boolean[size];
+        this.exceptions = new Exception[size];
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return Number of contexts of the batch
+     */
+    public int size() {
+        return results.length;
+    }
+
+    /**
+     * @param index Position of the {@link Context}
+     * @return <code>true</code> if the processing of the {@link Context}
+     *  has been completed
+     */
+    public boolean getResult(int index) {
+        return results[index];
+    }
+
+    public void setResult(int index, boolean result) {
+        results[index] = result;
+    }
+
+    /**
+     * @param index Position of the {@link Context}
+     * @return The exception the processing of the {@link Context} threw,
+     *  or <code>null</code>
+     */
+    public Exception getException(int index) {
+        return exceptions[index];
+    }
+
+    public void setException(int index, Exception exception) {
+        exceptions[index] = exception;
+    }
+
+    /**
+     * @return Number of contexts whose processing threw an exception
+     */
+    public int getFailedCount() {
+        int failed = 0;
+        for (Exception exception : exceptions) {
+            if (exception != null) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    public String toString() {
+        return "BatchResult[size=" + size() + ", failed=" + getFailedCount() + "]";
+    }
+}
@@ -4,6 +4,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>A {@link CatalogFactory} is a class used to store and retrieve
@@ -13,7 +16,9 @@ import java.util.Iterator;
  *
  * <p>The base <code>CatalogFactory</code> implementation also implements
  * a resolution mechanism which allows lookup of a command based on a single
- * String which encodes both the catalog and command names.</p>
+ * String which encodes both the catalog and command names.  Resolved
+ * command IDs are cached as {@link CommandHandle}s, so that repeated
+ * lookups of the same ID do not parse it again.</p>
  *
  * @author Sean Schofield
  * @version $Revision: 480477 $ $Date: 2006-11-29 08:34:52 +0000 (Wed, 29 Nov 2006) $
@@ -30,6 +35,24 @@ public abstract class CatalogFactory {
      */
     public static final String DELIMITER = ":";
 
+    /**
+     * <p>Maximum number of cached {@link CommandHandle}s, which bounds the
+     * cache when command IDs come from untrusted input.</p>
+     */
+    private static final int MAX_RESOLVED_COMMANDS = 1024;
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>Resolved {@link CommandHandle}s, keyed by command ID.</p>
+     */
+    private final ConcurrentMap<String, CommandHandle> resolvedCommands = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Incremented whenever the registered {@link Catalog}s change.</p>
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
 
     // --------------------------------------------------------- Public Methods
     /**
@@ -86,6 +109,32 @@ public abstract class CatalogFactory {
      * @since Chain 1.1
      */
     public Command getCommand(String commandID) {
+        CommandHandle handle = getCommandHandle(commandID);
+        Command command = handle.getCommand();
+        if (command == null && getCatalog(handle.getCatalogName()) == null) {
+            logger.warn("No catalog found for name: " + handle.getCatalogName() + ".");
+        }
+        return command;
+    }
+
+
+    /**
+     * <p>Return a {@link CommandHandle} for the given commandID, which
+     * follows the structure described by {@link #getCommand(String)}.  The
+     * handle can be kept and executed repeatedly; the {@link Command} it
+     * identifies need not exist yet.</p>
+     *
+     * @param commandID the identifier of the command
+     * @return the resolved handle
+     * @throws IllegalArgumentException if the commandID is malformed
+     */
+    public CommandHandle getCommandHandle(String commandID) {
+        if (commandID != null) {
+            CommandHandle handle = resolvedCommands.get(commandID);
+            if (handle != null) {
+                return handle;
+            }
+        }
 
         String commandName = commandID;
         String catalogName = null;
@@ -114,12 +163,33 @@ public abstract class CatalogFactory {
                     "] commandName is empty");
         }
 
-        Catalog catalog = getCatalog(catalogName);
-        if (catalog == null) {
-            logger.warn("No catalog found for name: " + catalogName + ".");
-            return null;
+        CommandHandle handle = new CommandHandle(this, commandID, catalogName, commandName);
+        if (resolvedCommands.size() < MAX_RESOLVED_COMMANDS) {
+            CommandHandle previous = resolvedCommands.putIfAbsent(commandID, handle);
+            if (previous != null) {
+                return previous;
+            }
         }
-        return catalog.getCommand(commandName);
+        return handle;
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+    /**
+     * <p>Discard the resolved command IDs.  Implementations must call this
+     * method after any change of the registered {@link Catalog}s.</p>
+     */
+    protected void clearResolvedCommands() {
+        generation.incrementAndGet();
+        resolvedCommands.clear();
+    }
+
+    /**
+     * @return The generation of the registered {@link Catalog}s, checked by
+     *  {@link CommandHandle}s
+     */
+    int generation() {
+        return generation.get();
     }
 
     private static boolean isEmpty(String commandName) {
@@ -0,0 +1,45 @@
+package com.gdwii.tool4j.chain;
+
+/**
+ * <p>A {@link ChainListener} observes the execution of the {@link Command}s
+ * of a {@link Chain}, for example to record their latency.  It is
+ * installed with <code>setListener()</code> on a
+ * {@link com.gdwii.tool4j.chain.impl.ChainBase}; chains without a listener
+ * do not measure anything.</p>
+ *
+ * <p>Listeners are called on the thread that executed the {@link Command},
+ * possibly by several threads at once, and must not throw exceptions.
+ * They should return quickly, as they add to the latency of the
+ * {@link Chain}.</p>
+ */
+public interface ChainListener {
+    /**
+     * <p>Called after the <code>execute()</code> method of a {@link Command}
+     * returned or threw an exception.</p>
+     *
+     * @param context The {@link Context} being processed
+     * @param index Position of the {@link Command} in its {@link Chain}
+     * @param command The executed {@link Command}
+     * @param elapsedNanos Execution time, in nanoseconds
+     * @param result The value returned by <code>execute()</code>, or
+     *  <code>false</code> if it threw an exception
+     * @param exception The exception thrown by <code>execute()</code>, if
+     *  any; otherwise <code>null</code>
+     */
+    void commandExecuted(Context context, int index, Command command,
+                         long elapsedNanos, boolean result, Exception exception);
+
+    /**
+     * <p>Called after the <code>postprocess()</code> method of a
+     * {@link Filter} returned or threw an exception.</p>
+     *
+     * @param context The {@link Context} being processed
+     * @param index Position of the {@link Filter} in its {@link Chain}
+     * @param filter The postprocessed {@link Filter}
+     * @param elapsedNanos Postprocessing time, in nanoseconds
+     * @param handled <code>true</code> if the {@link Filter} handled the
+     *  exception passed to it
+     */
+    void filterPostprocessed(Context context, int index, Filter filter,
+                             long elapsedNanos, boolean handled);
+}
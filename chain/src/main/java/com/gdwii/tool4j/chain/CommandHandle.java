@@ -0,0 +1,127 @@
+package com.gdwii.tool4j.chain;
+
+
+/**
+ * <p>A {@link CommandHandle} is a command ID resolved once by
+ * {@link CatalogFactory#getCommandHandle(String)}, which can then be
+ * executed repeatedly without parsing the ID or looking up the
+ * {@link Catalog} again.</p>
+ *
+ * <p>Each call looks the {@link Command} up in the resolved
+ * {@link Catalog}, so commands added to it with <code>addCommand()</code>
+ * are seen at once.  When the {@link CatalogFactory} registers a
+ * {@link Catalog}, handles resolve their {@link Catalog} again on their
+ * next use.</p>
+ *
+ * <p>This implementation is thread-safe.</p>
+ */
+public final class CommandHandle implements Command {
+    // ----------------------------------------------------- Instance Variables
+
+    private final CatalogFactory factory;
+
+    private final String commandID;
+
+    private final String catalogName;
+
+    private final String commandName;
+
+    private volatile Resolution resolution;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    CommandHandle(CatalogFactory factory, String commandID, String catalogName, String commandName) {
+        this.factory = factory;
+        this.commandID = commandID;
+        this.catalogName = catalogName;
+        this.commandName = commandName;
+        this.resolution = resolve();
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return The command ID this handle was resolved from
+     */
+    public String getCommandID() {
+        return commandID;
+    }
+
+    /**
+     * @return The name of the {@link Catalog}
+     */
+    public String getCatalogName() {
+        return catalogName;
+    }
+
+    /**
+     * @return The name of the {@link Command} in its {@link Catalog}
+     */
+    public String getCommandName() {
+        return commandName;
+    }
+
+    /**
+     * <p>Return the {@link Command} identified by this handle, if any;
+     * otherwise, return <code>null</code>.</p>
+     *
+     * @return The {@link Command}, or <code>null</code> if either the
+     *  {@link Catalog} or the command name cannot be resolved
+     */
+    public Command getCommand() {
+        Resolution resolution = this.resolution;
+        if (resolution.generation != factory.generation()) {
+            resolution = resolve();
+            this.resolution = resolution;
+        }
+        Catalog catalog = resolution.catalog;
+        return catalog == null ? null : catalog.getCommand(commandName);
+    }
+
+    /**
+     * <p>Execute the {@link Command} identified by this handle.</p>
+     *
+     * @param context The {@link Context} to be processed
+     * @return The result of the {@link Command}
+     * @throws Exception if thrown by the {@link Command}
+     * @throws IllegalStateException if the {@link Command} cannot be
+     *  resolved
+     */
+    @Override
+    public boolean execute(Context context) throws Exception {
+        Command command = getCommand();
+        if (command == null) {
+            throw new IllegalStateException("commandID [" + commandID + "] cannot be resolved");
+        }
+        return command.execute(context);
+    }
+
+    public String toString() {
+        return "CommandHandle[" + commandID + "]";
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private Resolution resolve() {
+        // Read the generation first, so that a concurrent addCatalog()
+        // forces another resolution
+        int generation = factory.generation();
+        return new Resolution(factory.getCatalog(catalogName), generation);
+    }
+
+    /**
+     * <p>{@link Catalog} resolved for a given generation of the factory.</p>
+     */
+    private static final class Resolution {
+        final Catalog catalog;
+        final int generation;
+
+        Resolution(Catalog catalog, int generation) {
+            this.catalog = catalog;
+            this.generation = generation;
+        }
+    }
+}
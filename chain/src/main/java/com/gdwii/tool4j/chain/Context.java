@@ -41,5 +41,50 @@ import java.util.Map;
  * implementation.</p>
  */
 public interface Context extends Map<String, Object> {
+    /**
+     * <p>Return the value stored under the specified {@link ContextKey},
+     * if any; otherwise, return <code>null</code>.</p>
+     *
+     * <p>The default implementation looks the key name up through the
+     * <code>Map</code> view; implementations should override it with
+     * slot-indexed access.</p>
+     *
+     * @param key The key of the value to be returned
+     * @param <T> Type of the value
+     * @return The value stored under <code>key</code>
+     *
+     * @exception IllegalArgumentException if the stored value is not an
+     *  instance of the type of <code>key</code>
+     */
+    default <T> T get(ContextKey<T> key) {
+        return key.cast(get(key.getName()));
+    }
 
+    /**
+     * <p>Store the specified value under the specified {@link ContextKey},
+     * replacing any previous value.  Storing <code>null</code> removes the
+     * value.</p>
+     *
+     * @param key The key of the value to be stored
+     * @param value New value to be stored
+     * @param <T> Type of the value
+     * @return The previous value stored under <code>key</code>
+     */
+    default <T> T put(ContextKey<T> key, T value) {
+        if (value == null) {
+            return remove(key);
+        }
+        return key.cast(put(key.getName(), value));
+    }
+
+    /**
+     * <p>Remove the value stored under the specified {@link ContextKey}.</p>
+     *
+     * @param key The key of the value to be removed
+     * @param <T> Type of the value
+     * @return The removed value
+     */
+    default <T> T remove(ContextKey<T> key) {
+        return key.cast(remove(key.getName()));
+    }
 }
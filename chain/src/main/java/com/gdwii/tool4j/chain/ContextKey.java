@@ -0,0 +1,177 @@
+package com.gdwii.tool4j.chain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>A {@link ContextKey} is a typed, well-known attribute name that can be
+ * used to access a {@link Context} without the cost of hashing a
+ * <code>String</code> key.</p>
+ *
+ * <p>Every key is registered once, for the lifetime of the class loader,
+ * in a global registry that assigns it a dense integer <em>slot</em>.
+ * Implementations such as {@link com.gdwii.tool4j.chain.impl.ContextBase}
+ * store the values of registered keys in an array indexed by that slot, and
+ * still expose them through the <code>Map</code> view under the key name,
+ * so that <code>context.get(KEY)</code> and
+ * <code>context.get(KEY.getName())</code> return the same value.</p>
+ *
+ * <p>Keys are intended to be declared as constants:</p>
+ *
+ * <pre>
+ *   public static final ContextKey&lt;User&gt; USER = ContextKey.of("user", User.class);
+ * </pre>
+ *
+ * <p>Because <code>null</code> marks an empty slot, storing a
+ * <code>null</code> value under a registered key is the same as removing
+ * it.  A key must be registered before values are stored under its name,
+ * and key names should not be used as JavaBeans property names of a
+ * {@link Context} implementation class; such a property shadows the key
+ * in the <code>Map</code> view.</p>
+ *
+ * @param <T> Type of the values stored under this key
+ */
+public final class ContextKey<T> {
+    // ----------------------------------------------------- Static Variables
+
+    /**
+     * <p>Registered keys, keyed by name.</p>
+     */
+    private static final ConcurrentMap<String, ContextKey<?>> registry = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Registered keys, indexed by slot.  Replaced (never modified) when a
+     * key is registered.</p>
+     */
+    private static volatile ContextKey<?>[] keys = new ContextKey<?>[0];
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final String name;
+
+    private final Class<T> type;
+
+    private final int index;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    private ContextKey(String name, Class<T> type, int index) {
+        this.name = name;
+        this.type = type;
+        this.index = index;
+    }
+
+    /**
+     * <p>Return the key registered under the specified name, registering it
+     * first if necessary.</p>
+     *
+     * @param name Attribute name of the key
+     * @param type Type of the values stored under this key
+     * @param <T> Type of the values stored under this key
+     * @return The registered key
+     *
+     * @exception IllegalArgumentException if <code>name</code> or
+     *  <code>type</code> is <code>null</code>, or if <code>name</code> is
+     *  already registered with a different type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ContextKey<T> of(String name, Class<T> type) {
+        if (name == null || type == null) {
+            throw new IllegalArgumentException("name and type are not null");
+        }
+        ContextKey<?> key = registry.get(name);
+        if (key == null) {
+            key = register(name, type);
+        }
+        if (key.type != type) {
+            throw new IllegalArgumentException("ContextKey '" + name
+                    + "' is already registered with type " + key.type.getName());
+        }
+        return (ContextKey<T>) key;
+    }
+
+    private static synchronized ContextKey<?> register(String name, Class<?> type) {
+        ContextKey<?> key = registry.get(name);
+        if (key != null) {
+            return key;
+        }
+        ContextKey<?>[] keys = ContextKey.keys;
+        ContextKey<?>[] results = new ContextKey<?>[keys.length + 1];
+        System.arraycopy(keys, 0, results, 0, keys.length);
+        key = new ContextKey<>(name, type, keys.length);
+        results[keys.length] = key;
+        ContextKey.keys = results;
+        registry.put(name, key);
+        return key;
+    }
+
+    /**
+     * <p>Return the key registered under the specified name, if any;
+     * otherwise, return <code>null</code>.</p>
+     *
+     * @param name Attribute name of the key
+     * @return The registered key
+     */
+    public static ContextKey<?> forName(Object name) {
+        return name == null ? null : registry.get(name);
+    }
+
+    /**
+     * <p>Return the key assigned to the specified slot.</p>
+     *
+     * @param index Slot of the key, in <code>[0, size())</code>
+     * @return The registered key
+     */
+    public static ContextKey<?> forIndex(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @return The number of registered keys, which is also the upper bound
+     *  (exclusive) of the assigned slots
+     */
+    public static int size() {
+        return keys.length;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return The slot assigned to this key
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * <p>Cast the specified value to the type of this key.</p>
+     *
+     * @param value Value to be stored under this key
+     * @return The value
+     *
+     * @exception IllegalArgumentException if the value is not an instance
+     *  of the type of this key
+     */
+    public T cast(Object value) {
+        if (value != null && !type.isInstance(value)) {
+            throw new IllegalArgumentException("ContextKey '" + name + "' requires "
+                    + type.getName() + ", not " + value.getClass().getName());
+        }
+        return type.cast(value);
+    }
+
+    public String toString() {
+        return "ContextKey[" + name + ": " + type.getName() + "]";
+    }
+}
@@ -0,0 +1,66 @@
+package com.gdwii.tool4j.chain.config;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * <p>Configuration of one named catalog: its {@link CommandConfig}s, in
+ * configuration order.</p>
+ */
+public final class CatalogConfig {
+    // ----------------------------------------------------- Instance Variables
+
+    private final String name;
+
+    private final List<CommandConfig> commands;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * @param name Name of the catalog
+     * @param commands The commands of the catalog
+     *
+     * @exception IllegalArgumentException if <code>name</code> is empty
+     */
+    public CatalogConfig(String name, List<CommandConfig> commands) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("catalog name is empty");
+        }
+        this.name = name;
+        this.commands = Collections.unmodifiableList(new ArrayList<>(commands));
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    public String getName() {
+        return name;
+    }
+
+    public List<CommandConfig> getCommands() {
+        return commands;
+    }
+
+    /**
+     * <p>Return this configuration with every command resolved.</p>
+     *
+     * @param classLoader The <code>ClassLoader</code> of the commands
+     * @return A resolved configuration
+     * @exception IllegalArgumentException if a class cannot be found
+     */
+    public CatalogConfig resolve(ClassLoader classLoader) {
+        List<CommandConfig> resolved = new ArrayList<>(commands.size());
+        for (CommandConfig command : commands) {
+            resolved.add(command.resolve(classLoader));
+        }
+        return new CatalogConfig(name, resolved);
+    }
+
+    public String toString() {
+        return name + commands;
+    }
+}
@@ -0,0 +1,162 @@
+package com.gdwii.tool4j.chain.config;
+
+
+import java.io.*;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>Binary form of resolved catalog configurations, written at build time
+ * so that a service starts without parsing its configuration and without
+ * loading command classes to find out what kind of command each one is.
+ * </p>
+ *
+ * <p>The index is a <code>DataOutputStream</code> of:</p>
+ * <pre>
+ * int magic, int version, int catalogCount,
+ *   { UTF catalogName, int commandCount,
+ *     { UTF commandName, boolean chain, int classCount,
+ *       { UTF className, int kinds, int propertyCount,
+ *         { UTF propertyName, UTF propertyValue } } } }
+ * </pre>
+ *
+ * <p><code>kinds</code> holds the kind flags of {@link CommandConfig}.</p>
+ *
+ * <p>It can be written from the build with</p>
+ * <pre>
+ * java -cp ... com.gdwii.tool4j.chain.config.CatalogIndex catalog.xml catalog.idx
+ * </pre>
+ */
+public final class CatalogIndex {
+    /**
+     * <p>File extension of an index.</p>
+     */
+    public static final String EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x43484149; // "CHAI"
+
+    private static final int VERSION = 1;
+
+    private CatalogIndex() {}
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * <p>Write the specified resolved configurations.</p>
+     *
+     * @param catalogs The catalog configurations
+     * @param out The stream the index is written to; not closed
+     * @exception IOException if the index cannot be written
+     * @exception IllegalArgumentException if a configuration is not
+     *  resolved
+     */
+    public static void write(List<CatalogConfig> catalogs, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(catalogs.size());
+        for (CatalogConfig catalog : catalogs) {
+            data.writeUTF(catalog.getName());
+            data.writeInt(catalog.getCommands().size());
+            for (CommandConfig command : catalog.getCommands()) {
+                if (!command.isResolved()) {
+                    throw new IllegalArgumentException("command [" + command.getName() + "] is not resolved");
+                }
+                String[] classNames = command.getClassNames();
+                data.writeUTF(command.getName());
+                data.writeBoolean(command.isChain());
+                data.writeInt(classNames.length);
+                for (int i = 0; i < classNames.length; i++) {
+                    data.writeUTF(classNames[i]);
+                    data.writeInt(command.getKinds(i));
+                    Map<String, String> properties = command.getProperties(i);
+                    data.writeInt(properties.size());
+                    for (Map.Entry<String, String> property : properties.entrySet()) {
+                        data.writeUTF(property.getKey());
+                        data.writeUTF(property.getValue());
+                    }
+                }
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * <p>Read an index.</p>
+     *
+     * @param in The stream the index is read from; not closed
+     * @return The resolved catalog configurations
+     * @exception IOException if the index cannot be read
+     * @exception IllegalArgumentException if the stream is not an index of
+     *  a supported version
+     */
+    public static List<CatalogConfig> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IllegalArgumentException("not a catalog index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("catalog index version " + version + " is not supported");
+        }
+        int catalogCount = data.readInt();
+        List<CatalogConfig> catalogs = new ArrayList<>(catalogCount);
+        for (int c = 0; c < catalogCount; c++) {
+            String catalogName = data.readUTF();
+            int commandCount = data.readInt();
+            List<CommandConfig> commands = new ArrayList<>(commandCount);
+            for (int k = 0; k < commandCount; k++) {
+                String commandName = data.readUTF();
+                boolean chain = data.readBoolean();
+                int classCount = data.readInt();
+                String[] classNames = new String[classCount];
+                int[] kinds = new int[classCount];
+                List<Map<String, String>> properties = new ArrayList<>(classCount);
+                for (int i = 0; i < classCount; i++) {
+                    classNames[i] = data.readUTF();
+                    Map<String, String> values = new LinkedHashMap<>();
+                    kinds[i] = data.readInt();
+                    for (int p = data.readInt(); p > 0; p--) {
+                        values.put(data.readUTF(), data.readUTF());
+                    }
+                    properties.add(values);
+                }
+                commands.add(new CommandConfig(commandName, classNames, chain, kinds, properties));
+            }
+            catalogs.add(new CatalogConfig(catalogName, commands));
+        }
+        return catalogs;
+    }
+
+    /**
+     * <p>Resolve a configuration file with the class path of the current
+     * thread and write its index.</p>
+     *
+     * @param args The configuration file and the index file
+     * @exception IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CatalogIndex <catalog.properties|catalog.xml> <catalog" + EXTENSION + ">");
+            System.exit(1);
+            return;
+        }
+        URL source = Paths.get(args[0]).toUri().toURL();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        List<CatalogConfig> catalogs = new ArrayList<>();
+        for (CatalogConfig catalog : ConfigLoader.parse(source)) {
+            catalogs.add(catalog.resolve(classLoader));
+        }
+        Path target = Paths.get(args[1]);
+        try (OutputStream out = Files.newOutputStream(target)) {
+            write(catalogs, out);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.gdwii.tool4j.chain.config;
+
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.BatchCommand;
+import com.gdwii.tool4j.chain.Filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>Configuration of one named command of a catalog: the class of a
+ * single {@link com.gdwii.tool4j.chain.Command}, or the classes of the
+ * {@link com.gdwii.tool4j.chain.Command}s of a chain, in order, with the
+ * bean properties to set on each of them.</p>
+ *
+ * <p>The kind of each class, that is whether it is a {@link Filter}, an
+ * {@link AsyncCommand} or a {@link BatchCommand}, is known once the
+ * configuration has been resolved against a <code>ClassLoader</code>, or
+ * read from a {@link CatalogIndex}.</p>
+ */
+public final class CommandConfig {
+    /**
+     * <p>Kind flag of a class implementing {@link Filter}.</p>
+     */
+    public static final int FILTER = 1;
+
+    /**
+     * <p>Kind flag of a class implementing {@link AsyncCommand}.</p>
+     */
+    public static final int ASYNC_COMMAND = 2;
+
+    /**
+     * <p>Kind flag of a class implementing {@link BatchCommand}.</p>
+     */
+    public static final int BATCH_COMMAND = 4;
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final String name;
+
+    private final String[] classNames;
+
+    private final boolean chain;
+
+    /**
+     * <p>Kind flags of each class, or <code>null</code> if not resolved
+     * yet.</p>
+     */
+    private final int[] kinds;
+
+    private final List<Map<String, String>> properties;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * @param name Name of the command in its catalog
+     * @param classNames Class names of the commands
+     * @param chain <code>true</code> if the classes make up a chain
+     * @param kinds Kind flags of each class, or <code>null</code>
+     *
+     * @exception IllegalArgumentException if a name is empty, or if a
+     *  single command has several classes
+     */
+    public CommandConfig(String name, String[] classNames, boolean chain, int[] kinds) {
+        this(name, classNames, chain, kinds, null);
+    }
+
+    /**
+     * @param name Name of the command in its catalog
+     * @param classNames Class names of the commands
+     * @param chain <code>true</code> if the classes make up a chain
+     * @param kinds Kind flags of each class, or <code>null</code>
+     * @param properties Bean properties of each class, by name, or
+     *  <code>null</code> if none are set
+     *
+     * @exception IllegalArgumentException if a name is empty, if a single
+     *  command has several classes, or if <code>kinds</code> or
+     *  <code>properties</code> do not have one element per class
+     */
+    public CommandConfig(String name, String[] classNames, boolean chain, int[] kinds,
+                         List<Map<String, String>> properties) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("command name is empty");
+        }
+        if (!chain && classNames.length != 1) {
+            throw new IllegalArgumentException("command [" + name + "] must have one class");
+        }
+        for (String className : classNames) {
+            if (className == null || className.trim().isEmpty()) {
+                throw new IllegalArgumentException("command [" + name + "] has an empty class name");
+            }
+        }
+        if (kinds != null && kinds.length != classNames.length) {
+            throw new IllegalArgumentException("command [" + name + "] has " + kinds.length
+                    + " kind flags for " + classNames.length + " classes");
+        }
+        if (properties != null && properties.size() != classNames.length) {
+            throw new IllegalArgumentException("command [" + name + "] has " + properties.size()
+                    + " property sets for " + classNames.length + " classes");
+        }
+        this.name = name;
+        this.classNames = classNames.clone();
+        this.chain = chain;
+        this.kinds = kinds == null ? null : kinds.clone();
+        List<Map<String, String>> copy = new ArrayList<>(classNames.length);
+        for (int i = 0; i < classNames.length; i++) {
+            Map<String, String> values = properties == null ? null : properties.get(i);
+            copy.add(values == null || values.isEmpty() ? Collections.<String, String>emptyMap()
+                    : Collections.unmodifiableMap(new LinkedHashMap<>(values)));
+        }
+        this.properties = Collections.unmodifiableList(copy);
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    public String getName() {
+        return name;
+    }
+
+    public String[] getClassNames() {
+        return classNames.clone();
+    }
+
+    public boolean isChain() {
+        return chain;
+    }
+
+    /**
+     * @return <code>true</code> if the kind flags are known
+     */
+    public boolean isResolved() {
+        return kinds != null;
+    }
+
+    /**
+     * @param index Position of the class
+     * @return The kind flags of the class, a combination of
+     *  {@link #FILTER}, {@link #ASYNC_COMMAND} and {@link #BATCH_COMMAND}
+     * @exception IllegalStateException if this configuration is not
+     *  resolved
+     */
+    public int getKinds(int index) {
+        if (kinds == null) {
+            throw new IllegalStateException("command [" + name + "] is not resolved");
+        }
+        return kinds[index];
+    }
+
+    /**
+     * @param index Position of the class
+     * @return <code>true</code> if the class is a
+     *  {@link Filter}
+     * @exception IllegalStateException if this configuration is not
+     *  resolved
+     */
+    public boolean isFilter(int index) {
+        return (getKinds(index) & FILTER) != 0;
+    }
+
+    /**
+     * @param index Position of the class
+     * @return The bean properties set on the instance of the class, by
+     *  name, in configuration order
+     */
+    public Map<String, String> getProperties(int index) {
+        return properties.get(index);
+    }
+
+    /**
+     * <p>Return this configuration with the kind flags of each class,
+     * loading the classes without initializing them.</p>
+     *
+     * @param classLoader The <code>ClassLoader</code> of the commands
+     * @return A resolved configuration
+     * @exception IllegalArgumentException if a class cannot be found
+     */
+    public CommandConfig resolve(ClassLoader classLoader) {
+        if (kinds != null) {
+            return this;
+        }
+        int[] kinds = new int[classNames.length];
+        for (int i = 0; i < classNames.length; i++) {
+            kinds[i] = kindsOf(loadClass(classNames[i], classLoader));
+        }
+        return new CommandConfig(name, classNames, chain, kinds, properties);
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(name).append('=').append(chain ? "chain" : "command").append('[');
+        for (int i = 0; i < classNames.length; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(classNames[i]);
+            if (!properties.get(i).isEmpty()) {
+                result.append(properties.get(i));
+            }
+        }
+        return result.append(']').toString();
+    }
+
+
+    // ------------------------------------------------------- Package Methods
+
+    static Class<?> loadClass(String className, ClassLoader classLoader) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("class [" + className + "] not found", e);
+        }
+    }
+
+    static int kindsOf(Class<?> type) {
+        return (Filter.class.isAssignableFrom(type) ? FILTER : 0)
+                | (AsyncCommand.class.isAssignableFrom(type) ? ASYNC_COMMAND : 0)
+                | (BatchCommand.class.isAssignableFrom(type) ? BATCH_COMMAND : 0);
+    }
+}
@@ -0,0 +1,286 @@
+package com.gdwii.tool4j.chain.config;
+
+
+import com.gdwii.tool4j.chain.Catalog;
+import com.gdwii.tool4j.chain.CatalogFactory;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.impl.CatalogBase;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+
+/**
+ * <p>Registers the catalogs described by a configuration file with a
+ * {@link CatalogFactory}.  Every configured command is registered as a
+ * {@link LazyCommand} proxy, instantiated the first time it is executed;
+ * a chain is a {@link ChainBase} of such proxies.  A proxy implements the
+ * same {@link com.gdwii.tool4j.chain.Filter},
+ * {@link com.gdwii.tool4j.chain.AsyncCommand} and
+ * {@link com.gdwii.tool4j.chain.BatchCommand} interfaces as its class, so
+ * chains run it as they would run the command itself.</p>
+ *
+ * <p>Three formats are supported, chosen by the file extension:</p>
+ * <ul>
+ * <li><code>.properties</code>: one entry per command, keyed by the
+ *     catalog name and the command name separated by the first dot.  The
+ *     value is a class name, or a comma-separated list of class names for
+ *     a chain:
+ * <pre>
+ * web.login=com.example.LoginCommand
+ * web.request=com.example.AuthFilter,com.example.DispatchCommand
+ * </pre></li>
+ * <li><code>.xml</code>:
+ * <pre>
+ * &lt;catalogs&gt;
+ *   &lt;catalog name="web"&gt;
+ *     &lt;command name="login" class="com.example.LoginCommand"/&gt;
+ *     &lt;chain name="request"&gt;
+ *       &lt;command class="com.gdwii.tool4j.chain.generic.BulkheadFilter"&gt;
+ *         &lt;property name="maxConcurrentCalls" value="50"/&gt;
+ *       &lt;/command&gt;
+ *       &lt;command class="com.example.DispatchCommand"/&gt;
+ *     &lt;/chain&gt;
+ *   &lt;/catalog&gt;
+ * &lt;/catalogs&gt;
+ * </pre>
+ *     A <code>property</code> element sets a bean property of the
+ *     command, through its public setter, when the command is
+ *     instantiated.  Properties can only be set in this format.</li>
+ * <li><code>.idx</code>: a binary {@link CatalogIndex} written at build
+ *     time, which is read without parsing text and without loading any
+ *     command class.</li>
+ * </ul>
+ *
+ * <p>Text formats load each configured class, without initializing it,
+ * to find out which of these interfaces it implements; the index records
+ * that information.</p>
+ */
+public class ConfigLoader {
+    // ----------------------------------------------------- Instance Variables
+
+    private final CatalogFactory factory;
+
+    private final ClassLoader classLoader;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * <p>Create a loader using the context <code>ClassLoader</code> of the
+     * current thread.</p>
+     *
+     * @param factory The factory the catalogs are registered with
+     */
+    public ConfigLoader(CatalogFactory factory) {
+        this(factory, defaultClassLoader());
+    }
+
+    /**
+     * @param factory The factory the catalogs are registered with
+     * @param classLoader The <code>ClassLoader</code> of the commands
+     */
+    public ConfigLoader(CatalogFactory factory, ClassLoader classLoader) {
+        if (factory == null || classLoader == null) {
+            throw new IllegalArgumentException();
+        }
+        this.factory = factory;
+        this.classLoader = classLoader;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * <p>Load the configuration at the specified URL and register its
+     * catalogs.</p>
+     *
+     * @param url Location of a <code>.properties</code>, <code>.xml</code>
+     *  or <code>.idx</code> file
+     * @exception IOException if the file cannot be read
+     * @exception IllegalArgumentException if the configuration is invalid
+     */
+    public void load(URL url) throws IOException {
+        register(parse(url));
+    }
+
+    /**
+     * <p>Register the specified catalogs.  Commands are added to the
+     * catalogs already known to the factory; other catalogs are created as
+     * {@link CatalogBase}s.</p>
+     *
+     * @param catalogs The catalog configurations
+     * @exception IllegalArgumentException if a class cannot be found
+     */
+    public void register(List<CatalogConfig> catalogs) {
+        for (CatalogConfig config : catalogs) {
+            Catalog catalog = factory.getCatalog(config.getName());
+            if (catalog == null) {
+                catalog = new CatalogBase();
+                factory.addCatalog(config.getName(), catalog);
+            }
+            for (CommandConfig command : config.getCommands()) {
+                catalog.addCommand(command.getName(), createCommand(command.resolve(classLoader)));
+            }
+        }
+    }
+
+    /**
+     * <p>Parse the configuration at the specified URL, by extension.</p>
+     *
+     * @param url Location of a <code>.properties</code>, <code>.xml</code>
+     *  or <code>.idx</code> file
+     * @return The catalog configurations
+     * @exception IOException if the file cannot be read
+     * @exception IllegalArgumentException if the format is unknown or the
+     *  configuration is invalid
+     */
+    public static List<CatalogConfig> parse(URL url) throws IOException {
+        String path = url.getPath();
+        try (InputStream in = url.openStream()) {
+            if (path.endsWith(".properties")) {
+                return parseProperties(in);
+            } else if (path.endsWith(".xml")) {
+                return parseXml(in);
+            } else if (path.endsWith(CatalogIndex.EXTENSION)) {
+                return CatalogIndex.read(in);
+            }
+        }
+        throw new IllegalArgumentException("url [" + url + "] has an unknown configuration format");
+    }
+
+    /**
+     * <p>Parse a configuration in the properties format, encoded in
+     * UTF-8.</p>
+     *
+     * @param in The configuration
+     * @return The catalog configurations, sorted by name
+     * @exception IOException if the configuration cannot be read
+     */
+    public static List<CatalogConfig> parseProperties(InputStream in) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        Map<String, List<CommandConfig>> catalogs = new TreeMap<>();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            int splitPos = key.indexOf('.');
+            if (splitPos <= 0 || splitPos == key.length() - 1) {
+                throw new IllegalArgumentException("key [" + key + "] is not catalog.command");
+            }
+            String[] classNames = properties.getProperty(key).split(",");
+            for (int i = 0; i < classNames.length; i++) {
+                classNames[i] = classNames[i].trim();
+            }
+            catalogs.computeIfAbsent(key.substring(0, splitPos), name -> new ArrayList<>())
+                    .add(new CommandConfig(key.substring(splitPos + 1), classNames, classNames.length > 1, null));
+        }
+
+        List<CatalogConfig> result = new ArrayList<>(catalogs.size());
+        catalogs.forEach((name, commands) -> result.add(new CatalogConfig(name, commands)));
+        return result;
+    }
+
+    /**
+     * <p>Parse a configuration in the XML format.  Document type
+     * declarations are rejected.</p>
+     *
+     * @param in The configuration
+     * @return The catalog configurations, in document order
+     * @exception IOException if the configuration cannot be read
+     */
+    public static List<CatalogConfig> parseXml(InputStream in) throws IOException {
+        Document document;
+        try {
+            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            documentBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
+            document = builder.parse(in);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalArgumentException("invalid catalog configuration: " + e.getMessage(), e);
+        }
+
+        List<CatalogConfig> catalogs = new ArrayList<>();
+        for (Element catalog : children(document.getDocumentElement(), "catalog")) {
+            List<CommandConfig> commands = new ArrayList<>();
+            for (Element element : children(catalog, null)) {
+                String name = element.getAttribute("name");
+                if ("command".equals(element.getTagName())) {
+                    commands.add(new CommandConfig(name, new String[]{element.getAttribute("class")}, false, null,
+                            Collections.singletonList(properties(element))));
+                } else if ("chain".equals(element.getTagName())) {
+                    List<Element> members = children(element, "command");
+                    String[] classNames = new String[members.size()];
+                    List<Map<String, String>> properties = new ArrayList<>(classNames.length);
+                    for (int i = 0; i < classNames.length; i++) {
+                        classNames[i] = members.get(i).getAttribute("class");
+                        properties.add(properties(members.get(i)));
+                    }
+                    commands.add(new CommandConfig(name, classNames, true, null, properties));
+                } else {
+                    throw new IllegalArgumentException("element [" + element.getTagName() + "] is unknown");
+                }
+            }
+            catalogs.add(new CatalogConfig(catalog.getAttribute("name"), commands));
+        }
+        return catalogs;
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private Command createCommand(CommandConfig config) {
+        String[] classNames = config.getClassNames();
+        Command[] commands = new Command[classNames.length];
+        for (int i = 0; i < classNames.length; i++) {
+            commands[i] = LazyCommand.of(classNames[i], config.getKinds(i), config.getProperties(i), classLoader);
+        }
+        return config.isChain() ? new ChainBase(commands) : commands[0];
+    }
+
+    private static Map<String, String> properties(Element command) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (Element element : children(command, null)) {
+            if (!"property".equals(element.getTagName())) {
+                throw new IllegalArgumentException("element [" + element.getTagName() + "] is unknown");
+            }
+            String name = element.getAttribute("name");
+            if (name.isEmpty() || properties.put(name, element.getAttribute("value")) != null) {
+                throw new IllegalArgumentException("property [" + name + "] of class ["
+                        + command.getAttribute("class") + "] is empty or duplicated");
+            }
+        }
+        return properties;
+    }
+
+    private static List<Element> children(Element parent, String tagName) {
+        List<Element> children = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element && (tagName == null || tagName.equals(((Element) node).getTagName()))) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+
+    private static ClassLoader defaultClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : ConfigLoader.class.getClassLoader();
+    }
+}
@@ -0,0 +1,329 @@
+package com.gdwii.tool4j.chain.config;
+
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.BatchCommand;
+import com.gdwii.tool4j.chain.BatchResult;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+
+/**
+ * <p>Proxy of a {@link Command} that is instantiated, through its public
+ * no-argument constructor, the first time it is executed.  A catalog of
+ * proxies therefore starts without loading or initializing the command
+ * classes.</p>
+ *
+ * <p>Chains decide how to run a {@link Command} from the interfaces it
+ * implements, before it is instantiated.  The proxy of a {@link Filter}, an
+ * {@link AsyncCommand} or a {@link BatchCommand} must implement the same
+ * interfaces; use {@link #of(String, int, Map, ClassLoader)} with the kind
+ * flags of a resolved {@link CommandConfig}.</p>
+ *
+ * <p>Bean properties are set on the instance, through its public setters,
+ * before it is first used.  Values are converted from strings to
+ * <code>String</code>, primitive, wrapper and enum parameters.  Of
+ * overloaded setters, the one taking a <code>String</code> is used; other
+ * overloads are rejected as ambiguous.</p>
+ *
+ * <p>This implementation is thread-safe; the command is instantiated at
+ * most once.</p>
+ */
+public class LazyCommand implements Command {
+    // ----------------------------------------------------- Instance Variables
+
+    private final String className;
+
+    private final ClassLoader classLoader;
+
+    private final Map<String, String> properties;
+
+    private volatile Command command;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * @param className Class name of the proxied {@link Command}
+     * @param classLoader The <code>ClassLoader</code> of the class
+     */
+    public LazyCommand(String className, ClassLoader classLoader) {
+        this(className, null, classLoader);
+    }
+
+    /**
+     * @param className Class name of the proxied {@link Command}
+     * @param properties Bean properties of the {@link Command}, by name,
+     *  or <code>null</code>
+     * @param classLoader The <code>ClassLoader</code> of the class
+     */
+    public LazyCommand(String className, Map<String, String> properties, ClassLoader classLoader) {
+        if (className == null || classLoader == null) {
+            throw new IllegalArgumentException();
+        }
+        this.className = className;
+        this.classLoader = classLoader;
+        this.properties = properties == null || properties.isEmpty() ? Collections.<String, String>emptyMap()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(properties));
+    }
+
+    /**
+     * <p>Create the proxy of the specified class.</p>
+     *
+     * @param className Class name of the proxied {@link Command}
+     * @param kinds Kind flags of the class, a combination of
+     *  {@link CommandConfig#FILTER}, {@link CommandConfig#ASYNC_COMMAND}
+     *  and {@link CommandConfig#BATCH_COMMAND}
+     * @param properties Bean properties of the {@link Command}, by name,
+     *  or <code>null</code>
+     * @param classLoader The <code>ClassLoader</code> of the class
+     * @return A proxy implementing the interfaces given by
+     *  <code>kinds</code>
+     */
+    public static LazyCommand of(String className, int kinds, Map<String, String> properties,
+                                 ClassLoader classLoader) {
+        boolean async = (kinds & CommandConfig.ASYNC_COMMAND) != 0;
+        boolean batch = (kinds & CommandConfig.BATCH_COMMAND) != 0;
+        if ((kinds & CommandConfig.FILTER) != 0) {
+            if (async) {
+                return batch ? new AsyncBatchFilter(className, properties, classLoader)
+                        : new AsyncFilter(className, properties, classLoader);
+            }
+            return batch ? new BatchFilter(className, properties, classLoader)
+                    : new LazyFilter(className, properties, classLoader);
+        }
+        if (async) {
+            return batch ? new AsyncBatch(className, properties, classLoader)
+                    : new Async(className, properties, classLoader);
+        }
+        return batch ? new Batch(className, properties, classLoader)
+                : new LazyCommand(className, properties, classLoader);
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    public String getClassName() {
+        return className;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return <code>true</code> if the proxied {@link Command} has been
+     *  instantiated
+     */
+    public boolean isInstantiated() {
+        return command != null;
+    }
+
+    /**
+     * <p>Return the proxied {@link Command}, instantiating it if
+     * needed.</p>
+     *
+     * @return The proxied {@link Command}
+     * @exception IllegalStateException if the class cannot be
+     *  instantiated, does not implement the interfaces of this proxy, or a
+     *  property cannot be set
+     */
+    public Command getCommand() {
+        Command command = this.command;
+        if (command == null) {
+            synchronized (this) {
+                command = this.command;
+                if (command == null) {
+                    command = instantiate();
+                    this.command = command;
+                }
+            }
+        }
+        return command;
+    }
+
+    @Override
+    public boolean execute(Context context) throws Exception {
+        return getCommand().execute(context);
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + "[" + className + "]";
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private Command instantiate() {
+        Object instance;
+        try {
+            instance = Class.forName(className, true, classLoader).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("class [" + className + "] cannot be instantiated", e);
+        }
+        checkKind(instance, Command.class);
+        if (this instanceof Filter) {
+            checkKind(instance, Filter.class);
+        }
+        if (this instanceof AsyncCommand) {
+            checkKind(instance, AsyncCommand.class);
+        }
+        if (this instanceof BatchCommand) {
+            checkKind(instance, BatchCommand.class);
+        }
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            setProperty(instance, property.getKey(), property.getValue());
+        }
+        return (Command) instance;
+    }
+
+    private void checkKind(Object instance, Class<?> kind) {
+        if (!kind.isInstance(instance)) {
+            throw new IllegalStateException("class [" + className + "] is not a " + kind.getSimpleName());
+        }
+    }
+
+    private void setProperty(Object instance, String name, String value) {
+        Method setter = findSetter(instance.getClass(), name);
+        try {
+            setter.invoke(instance, convert(value, setter.getParameterTypes()[0]));
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("property [" + name + "] of class [" + className
+                    + "] cannot be set to [" + value + "]", e.getCause());
+        } catch (IllegalAccessException | IllegalArgumentException e) {
+            throw new IllegalStateException("property [" + name + "] of class [" + className
+                    + "] cannot be set to [" + value + "]", e);
+        }
+    }
+
+    /**
+     * <p>Find the public setter of a property.  Of overloaded setters, the
+     * one taking a <code>String</code> is used; any other overload is
+     * ambiguous.</p>
+     */
+    private Method findSetter(Class<?> type, String name) {
+        if (name.isEmpty()) {
+            throw new IllegalStateException("class [" + className + "] has a property with an empty name");
+        }
+        String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Method setter = null;
+        int candidates = 0;
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(setterName) && method.getParameterCount() == 1 && !method.isBridge()) {
+                if (method.getParameterTypes()[0] == String.class) {
+                    return method;
+                }
+                setter = method;
+                candidates++;
+            }
+        }
+        if (candidates == 0) {
+            throw new IllegalStateException("class [" + className + "] has no property [" + name + "]");
+        }
+        if (candidates > 1) {
+            throw new IllegalStateException("property [" + name + "] of class [" + className
+                    + "] has " + candidates + " setters and none takes a String");
+        }
+        return setter;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(String value, Class<?> type) {
+        if (type == String.class || type == Object.class) {
+            return value;
+        } else if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(value.trim());
+        } else if (type == long.class || type == Long.class) {
+            return Long.valueOf(value.trim());
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(value.trim());
+        } else if (type == double.class || type == Double.class) {
+            return Double.valueOf(value.trim());
+        } else if (type == float.class || type == Float.class) {
+            return Float.valueOf(value.trim());
+        } else if (type == short.class || type == Short.class) {
+            return Short.valueOf(value.trim());
+        } else if (type == byte.class || type == Byte.class) {
+            return Byte.valueOf(value.trim());
+        } else if ((type == char.class || type == Character.class) && value.length() == 1) {
+            return value.charAt(0);
+        } else if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, value.trim());
+        }
+        throw new IllegalArgumentException("type " + type.getName() + " is not supported");
+    }
+
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * <p>Delegation of {@link AsyncCommand} to the proxied
+     * {@link Command}.</p>
+     */
+    private interface AsyncProxy extends AsyncCommand {
+        Command getCommand();
+
+        @Override
+        default CompletionStage<Boolean> executeAsync(Context context) {
+            return ((AsyncCommand) getCommand()).executeAsync(context);
+        }
+    }
+
+    /**
+     * <p>Delegation of {@link BatchCommand} to the proxied
+     * {@link Command}.</p>
+     */
+    private interface BatchProxy extends BatchCommand {
+        Command getCommand();
+
+        @Override
+        default BatchResult executeBatch(List<? extends Context> contexts) {
+            return ((BatchCommand) getCommand()).executeBatch(contexts);
+        }
+    }
+
+    private static final class Async extends LazyCommand implements AsyncProxy {
+        Async(String className, Map<String, String> properties, ClassLoader classLoader) {
+            super(className, properties, classLoader);
+        }
+    }
+
+    private static final class Batch extends LazyCommand implements BatchProxy {
+        Batch(String className, Map<String, String> properties, ClassLoader classLoader) {
+            super(className, properties, classLoader);
+        }
+    }
+
+    private static final class AsyncBatch extends LazyCommand implements AsyncProxy, BatchProxy {
+        AsyncBatch(String className, Map<String, String> properties, ClassLoader classLoader) {
+            super(className, properties, classLoader);
+        }
+    }
+
+    private static final class AsyncFilter extends LazyFilter implements AsyncProxy {
+        AsyncFilter(String className, Map<String, String> properties, ClassLoader classLoader) {
+            super(className, properties, classLoader);
+        }
+    }
+
+    private static final class BatchFilter extends LazyFilter implements BatchProxy {
+        BatchFilter(String className, Map<String, String> properties, ClassLoader classLoader) {
+            super(className, properties, classLoader);
+        }
+    }
+
+    private static final class AsyncBatchFilter extends LazyFilter implements AsyncProxy, BatchProxy {
+        AsyncBatchFilter(String className, Map<String, String> properties, ClassLoader classLoader) {
+            super(className, properties, classLoader);
+        }
+    }
+}
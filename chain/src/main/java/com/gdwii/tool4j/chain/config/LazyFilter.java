@@ -0,0 +1,41 @@
+package com.gdwii.tool4j.chain.config;
+
+
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+
+import java.util.Map;
+
+
+/**
+ * <p>{@link LazyCommand} proxying a {@link Filter}.</p>
+ */
+public class LazyFilter extends LazyCommand implements Filter {
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * @param className Class name of the proxied {@link Filter}
+     * @param classLoader The <code>ClassLoader</code> of the class
+     */
+    public LazyFilter(String className, ClassLoader classLoader) {
+        super(className, classLoader);
+    }
+
+    /**
+     * @param className Class name of the proxied {@link Filter}
+     * @param properties Bean properties of the {@link Filter}, by name,
+     *  or <code>null</code>
+     * @param classLoader The <code>ClassLoader</code> of the class
+     */
+    public LazyFilter(String className, Map<String, String> properties, ClassLoader classLoader) {
+        super(className, properties, classLoader);
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    public boolean postprocess(Context context, Exception exception) {
+        return ((Filter) getCommand()).postprocess(context, exception);
+    }
+}
@@ -0,0 +1,235 @@
+package com.gdwii.tool4j.chain.generic;
+
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>{@link Filter} limiting the number of threads concurrently executing
+ * the {@link com.gdwii.tool4j.chain.Command}s following it in a chain, so
+ * that a slow downstream command cannot hold every thread.  Configure one
+ * instance per guarded command.</p>
+ *
+ * <p>A call beyond <code>maxConcurrentCalls</code> waits up to
+ * <code>maxWaitMillis</code> for a permit, then is rejected with a
+ * {@link CommandRejectedException}; by default it is rejected at once.
+ * The permit is returned by <code>postprocess()</code>.</p>
+ *
+ * <p>Chains do not call <code>postprocess()</code> when a command throws
+ * an <code>Error</code>, so the permit of such a call is never returned.
+ * Where the guarded command may throw one, put the command returned by
+ * {@link #guard(Command)} in the chain instead of this filter: it returns
+ * the permit in a <code>finally</code> block, or when its asynchronous
+ * result completes.</p>
+ *
+ * <p>Properties must be set before the filter is used, in code or with
+ * <code>property</code> elements of a
+ * {@link com.gdwii.tool4j.chain.config.ConfigLoader} XML
+ * configuration.</p>
+ */
+public class BulkheadFilter implements Filter {
+    // ----------------------------------------------------- Instance Variables
+
+    private int maxConcurrentCalls = 25;
+
+    private long maxWaitMillis;
+
+    private volatile Semaphore permits = new Semaphore(maxConcurrentCalls);
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final CommandRejectedException rejection = new CommandRejectedException("bulkhead is full", this);
+
+
+    // ----------------------------------------------------------- Constructors
+
+    public BulkheadFilter() {
+    }
+
+    /**
+     * @param maxConcurrentCalls Maximum number of concurrent calls
+     */
+    public BulkheadFilter(int maxConcurrentCalls) {
+        setMaxConcurrentCalls(maxConcurrentCalls);
+    }
+
+
+    // ------------------------------------------------------------- Properties
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * @param maxWaitMillis Time a call waits for a permit before it is
+     *  rejected; <code>0</code> rejects at once
+     */
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return Number of calls that may start without waiting
+     */
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * @return Number of rejected calls
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * <p>Take a permit, or reject the call.</p>
+     *
+     * @param context The {@link Context} being processed
+     * @return <code>false</code>
+     * @exception CommandRejectedException if no permit is available in
+     *  time, or the thread is interrupted while waiting
+     */
+    @Override
+    public boolean execute(Context context) throws CommandRejectedException {
+        acquire(permits);
+        return false;
+    }
+
+    /**
+     * <p>Return the permit of the call.</p>
+     *
+     * @param context The {@link Context} being processed
+     * @param exception The exception of the processing, if any
+     * @return <code>false</code>
+     */
+    @Override
+    public boolean postprocess(Context context, Exception exception) {
+        if (!CommandRejectedException.isRejectedBy(exception, this)) {
+            permits.release();
+        }
+        return false;
+    }
+
+    /**
+     * <p>Return a {@link Command} executing the specified one under the
+     * permits of this bulkhead, and returning its permit however the
+     * command ends, <code>Error</code>s included.  The guard of an
+     * {@link AsyncCommand} is an {@link AsyncCommand} holding the permit
+     * until its result completes.</p>
+     *
+     * @param command The {@link Command} to guard
+     * @return The guarded {@link Command}
+     * @exception IllegalArgumentException if <code>command</code> is
+     *  <code>null</code> or a {@link Filter}, whose
+     *  <code>postprocess()</code> the guard would not call
+     */
+    public Command guard(Command command) {
+        if (command == null || command instanceof Filter) {
+            throw new IllegalArgumentException();
+        }
+        if (command instanceof AsyncCommand) {
+            return new AsyncGuard((AsyncCommand) command);
+        }
+        return new Guard(command);
+    }
+
+    public String toString() {
+        return "BulkheadFilter[" + permits.availablePermits() + "/" + maxConcurrentCalls + "]";
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private void acquire(Semaphore permits) throws CommandRejectedException {
+        boolean acquired;
+        try {
+            acquired = maxWaitMillis <= 0L
+                    ? permits.tryAcquire()
+                    : permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw rejection;
+        }
+    }
+
+
+    // ---------------------------------------------------------- Inner Classes
+
+    private class Guard implements Command {
+        final Command command;
+
+        Guard(Command command) {
+            this.command = command;
+        }
+
+        @Override
+        public boolean execute(Context context) throws Exception {
+            Semaphore permits = BulkheadFilter.this.permits;
+            acquire(permits);
+            try {
+                return command.execute(context);
+            } finally {
+                permits.release();
+            }
+        }
+
+        public String toString() {
+            return BulkheadFilter.this + "(" + command + ")";
+        }
+    }
+
+    private final class AsyncGuard extends Guard implements AsyncCommand {
+        AsyncGuard(AsyncCommand command) {
+            super(command);
+        }
+
+        @Override
+        public CompletionStage<Boolean> executeAsync(Context context) {
+            Semaphore permits = BulkheadFilter.this.permits;
+            CompletionStage<Boolean> stage;
+            try {
+                acquire(permits);
+            } catch (CommandRejectedException e) {
+                CompletableFuture<Boolean> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(e);
+                return rejected;
+            }
+            try {
+                stage = ((AsyncCommand) command).executeAsync(context);
+            } catch (Throwable t) {
+                permits.release();
+                throw t;
+            }
+            return stage.whenComplete((result, failure) -> permits.release());
+        }
+    }
+}
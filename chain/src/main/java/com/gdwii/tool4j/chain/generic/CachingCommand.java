@@ -0,0 +1,384 @@
+package com.gdwii.tool4j.chain.generic;
+
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import com.gdwii.tool4j.chain.impl.ChainMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>{@link Command} memoizing a {@link Command} whose outcome depends only
+ * on a few attributes of the {@link Context}.  The values of the
+ * <code>keys</code> attributes form the cache key; after an execution,
+ * the values of the <code>outputs</code> attributes and the result are
+ * cached.  On a hit, the cached values are written back to the
+ * {@link Context}, an output absent after the execution is removed, and
+ * the cached result is returned without executing the wrapped
+ * {@link Command}.</p>
+ *
+ * <p>Executions that throw an exception are not cached.  Entries expire
+ * <code>ttlMillis</code> after they are written.  Cached values are shared
+ * between contexts and must not be modified.</p>
+ *
+ * <p>The cache is split, by key hash, into up to 16 segments, each with
+ * its own lock and an equal share of <code>maxSize</code>, so that
+ * concurrent lookups of different keys rarely wait for each other.  When
+ * a segment is full, its least recently used entry is evicted: eviction
+ * is LRU within a segment only, and the cache may hold a few entries more
+ * than <code>maxSize</code> when it does not divide evenly.</p>
+ *
+ * <p>The wrapped {@link Command} is executed as a plain {@link Command};
+ * a {@link Filter} or an {@link AsyncCommand} is rejected, as its
+ * <code>postprocess()</code> or asynchronous execution would be lost.</p>
+ *
+ * <p>Once installed, the cache is registered as an MBean of the platform
+ * <code>MBeanServer</code> named</p>
+ * <pre>
+ * com.gdwii.tool4j.chain:type=CachingCommand,name=<em>name</em>
+ * </pre>
+ *
+ * <p>This implementation is thread-safe.  Properties must be set before
+ * the command is used.</p>
+ */
+public class CachingCommand implements Command, CachingCommandMBean {
+    private static final Logger logger = LoggerFactory.getLogger(CachingCommand.class);
+
+    /**
+     * <p>Value of an output absent after the execution.</p>
+     */
+    private static final Object ABSENT = new Object();
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final Command command;
+
+    private final String[] keys;
+
+    private final String[] outputs;
+
+    private int maxSize = 1000;
+
+    private long ttlMillis = 60000L;
+
+    private Segment[] segments = newSegments(maxSize);
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    private ObjectName registered;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * @param command The memoized {@link Command}
+     * @param keys Names of the attributes the outcome depends on
+     * @param outputs Names of the attributes the {@link Command} writes
+     *
+     * @exception IllegalArgumentException if <code>command</code> is a
+     *  {@link Filter} or an {@link AsyncCommand}
+     */
+    public CachingCommand(Command command, String[] keys, String[] outputs) {
+        if (command == null || keys == null || outputs == null) {
+            throw new IllegalArgumentException();
+        }
+        if (command instanceof Filter || command instanceof AsyncCommand) {
+            throw new IllegalArgumentException("cannot cache " + command
+                    + ": only plain commands are supported");
+        }
+        this.command = command;
+        this.keys = keys.clone();
+        this.outputs = outputs.clone();
+    }
+
+
+    // ------------------------------------------------------------- Properties
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize Maximum number of cached entries
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxSize = maxSize;
+        this.segments = newSegments(maxSize);
+    }
+
+    @Override
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * @param ttlMillis Time an entry stays valid after it is written
+     */
+    public void setTtlMillis(long ttlMillis) {
+        if (ttlMillis <= 0L) {
+            throw new IllegalArgumentException();
+        }
+        this.ttlMillis = ttlMillis;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return The memoized {@link Command}
+     */
+    public Command getCommand() {
+        return command;
+    }
+
+    /**
+     * <p>Replay the cached outcome of the key of the {@link Context}, or
+     * execute the wrapped {@link Command} and cache its outcome.</p>
+     *
+     * @param context The {@link Context} to be processed
+     * @return The result of the wrapped {@link Command}
+     * @exception Exception if thrown by the wrapped {@link Command}
+     */
+    @Override
+    public boolean execute(Context context) throws Exception {
+        Object[] keyValues = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keyValues[i] = context.get(keys[i]);
+        }
+        List<Object> key = Arrays.asList(keyValues);
+        Segment segment = segmentOf(key);
+        long now = System.nanoTime();
+
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && now - entry.expiresNanos >= 0L) {
+                segment.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            hits.increment();
+            for (int i = 0; i < outputs.length; i++) {
+                if (entry.values[i] == ABSENT) {
+                    context.remove(outputs[i]);
+                } else {
+                    context.put(outputs[i], entry.values[i]);
+                }
+            }
+            return entry.result;
+        }
+
+        misses.increment();
+        boolean result = command.execute(context);
+        Object[] values = new Object[outputs.length];
+        for (int i = 0; i < outputs.length; i++) {
+            Object value = context.get(outputs[i]);
+            values[i] = value == null && !context.containsKey(outputs[i]) ? ABSENT : value;
+        }
+        entry = new Entry(result, values, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+        return result;
+    }
+
+    /**
+     * <p>Remove the expired entries.  They are otherwise removed when
+     * looked up or evicted.</p>
+     */
+    public void purge() {
+        long now = System.nanoTime();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Iterator<Entry> entries = segment.values().iterator(); entries.hasNext(); ) {
+                    if (now - entries.next().expiresNanos >= 0L) {
+                        entries.remove();
+                        expirations.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Register this cache as an MBean.</p>
+     *
+     * @param name Name of the MBean
+     */
+    public synchronized void install(String name) {
+        uninstall();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(ChainMetrics.DOMAIN + ":type=CachingCommand"
+                    + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            registered = objectName;
+        } catch (JMException e) {
+            logger.warn("cache:{} could not register MBean", name, e);
+        }
+    }
+
+    /**
+     * <p>Unregister the MBean of this cache.</p>
+     */
+    public synchronized void uninstall() {
+        if (registered != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+            } catch (JMException e) {
+                logger.debug("MBean:{} already unregistered", registered, e);
+            }
+            registered = null;
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0L ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        expirations.reset();
+    }
+
+    public String toString() {
+        return "CachingCommand[" + command + ", keys=" + Arrays.toString(keys) + "]";
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private Segment segmentOf(List<Object> key) {
+        Segment[] segments = this.segments;
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * <p>Split <code>maxSize</code> between a power of two of segments, at
+     * most 16, holding at least one entry each.</p>
+     */
+    private Segment[] newSegments(int maxSize) {
+        int count = Math.min(16, Integer.highestOneBit(maxSize));
+        Segment[] segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((maxSize + count - 1) / count);
+        }
+        return segments;
+    }
+
+
+    // -------------------------------------------------------- Private Classes
+
+    /**
+     * <p>Access-ordered map of one share of the entries, guarded by its
+     * own monitor.</p>
+     */
+    private final class Segment extends LinkedHashMap<List<Object>, Entry> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        final boolean result;
+
+        final Object[] values;
+
+        final long expiresNanos;
+
+        Entry(boolean result, Object[] values, long expiresNanos) {
+            this.result = result;
+            this.values = values;
+            this.expiresNanos = expiresNanos;
+        }
+    }
+}
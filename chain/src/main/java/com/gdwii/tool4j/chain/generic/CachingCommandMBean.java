@@ -0,0 +1,52 @@
+package com.gdwii.tool4j.chain.generic;
+
+
+/**
+ * <p>JMX management interface of {@link CachingCommand}.</p>
+ */
+public interface CachingCommandMBean {
+    /**
+     * @return Number of executions answered from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return Number of executions of the wrapped command
+     */
+    long getMissCount();
+
+    /**
+     * @return Hits divided by executions, or <code>0</code>
+     */
+    double getHitRatio();
+
+    /**
+     * @return Number of entries removed because the cache was full
+     */
+    long getEvictionCount();
+
+    /**
+     * @return Number of entries found expired
+     */
+    long getExpirationCount();
+
+    /**
+     * @return Number of cached entries, including expired ones not yet
+     *  removed
+     */
+    int getSize();
+
+    int getMaxSize();
+
+    long getTtlMillis();
+
+    /**
+     * <p>Remove every cached entry.</p>
+     */
+    void clear();
+
+    /**
+     * <p>Reset the counters.</p>
+     */
+    void reset();
+}
@@ -0,0 +1,375 @@
+package com.gdwii.tool4j.chain.generic;
+
+
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>{@link Filter} that stops calling the {@link com.gdwii.tool4j.chain.Command}s
+ * following it in a chain once too many of them fail, so that a failing
+ * downstream service is given time to recover instead of tying up every
+ * thread.</p>
+ *
+ * <p>The circuit is <code>CLOSED</code> while the failure rate of the
+ * last <code>windowSize</code> calls stays under
+ * <code>failureRateThreshold</code>; a call fails when the processing
+ * following this filter throws an exception.  Once
+ * <code>minimumCalls</code> calls have been recorded and the rate reaches
+ * the threshold, the circuit is <code>OPEN</code>: <code>execute()</code>
+ * throws a {@link CommandRejectedException} for
+ * <code>openMillis</code>.  The circuit is then <code>HALF_OPEN</code>
+ * and lets <code>halfOpenCalls</code> trial calls through: one failure
+ * opens it again, and as many successes close it.  Trial calls that end
+ * without <code>postprocess()</code>, for example because a command threw
+ * an <code>Error</code>, give no verdict; a half-open phase without a
+ * verdict after <code>openMillis</code> is replaced by a new one with
+ * fresh trial calls, so the circuit cannot stay half-open forever.</p>
+ *
+ * <p>Each state is an immutable phase object, holding its own counters,
+ * that is swapped with a compare-and-set, so that a new phase is
+ * published with its counters already reset.  A trial call is recorded in
+ * the {@link Context} with the phase that admitted it; calls admitted
+ * while the circuit was closed do not count as trials.</p>
+ *
+ * <p>Properties must be set before the filter is used, in code or with
+ * <code>property</code> elements of a
+ * {@link com.gdwii.tool4j.chain.config.ConfigLoader} XML
+ * configuration.</p>
+ */
+public class CircuitBreakerFilter implements Filter {
+    /**
+     * <p>State of the circuit.</p>
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final AtomicLong INSTANCES = new AtomicLong();
+
+    // ----------------------------------------------------- Instance Variables
+
+    private int windowSize = 100;
+
+    private int minimumCalls = 20;
+
+    private double failureRateThreshold = 0.5;
+
+    private long openMillis = 30000L;
+
+    private int halfOpenCalls = 5;
+
+    private final AtomicReference<Phase> phase = new AtomicReference<>(Phase.closed(windowSize));
+
+    /**
+     * <p>Name of the {@link Context} attribute holding the phase that
+     * admitted a trial call.</p>
+     */
+    private final String trialKey = CircuitBreakerFilter.class.getName() + ".trial#" + INSTANCES.incrementAndGet();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final CommandRejectedException openRejection = new CommandRejectedException("circuit is OPEN", this);
+
+    private final CommandRejectedException halfOpenRejection =
+            new CommandRejectedException("circuit is HALF_OPEN", this);
+
+
+    // ------------------------------------------------------------- Properties
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @param windowSize Number of most recent calls the failure rate is
+     *  computed over
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.windowSize = windowSize;
+        this.phase.set(Phase.closed(windowSize));
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * @param minimumCalls Number of calls recorded before the circuit may
+     *  open
+     */
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * @param failureRateThreshold Failure rate, between <code>0</code> and
+     *  <code>1</code>, opening the circuit
+     */
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        if (failureRateThreshold <= 0.0 || failureRateThreshold > 1.0) {
+            throw new IllegalArgumentException();
+        }
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    /**
+     * @param openMillis Time the circuit stays open before trial calls
+     */
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * @param halfOpenCalls Number of trial calls of a half-open circuit
+     */
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        if (halfOpenCalls <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return The current state of the circuit
+     */
+    public State getState() {
+        return phase.get().state;
+    }
+
+    /**
+     * @return Failure rate of the calls recorded while closed
+     */
+    public double getFailureRate() {
+        return phase.get().window.getFailureRate();
+    }
+
+    /**
+     * @return Number of rejected calls
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * <p>Close the circuit and forget the recorded calls.</p>
+     */
+    public void reset() {
+        phase.set(Phase.closed(windowSize));
+    }
+
+    /**
+     * <p>Let the processing proceed, or reject it if the circuit is open
+     * or has no trial calls left.</p>
+     *
+     * @param context The {@link Context} being processed
+     * @return <code>false</code>
+     * @exception CommandRejectedException if the call is rejected
+     */
+    @Override
+    public boolean execute(Context context) throws CommandRejectedException {
+        Phase current = phase.get();
+        if (current.state != State.CLOSED) {
+            long now = System.nanoTime();
+            if (now - current.sinceNanos >= TimeUnit.MILLISECONDS.toNanos(openMillis)) {
+                // Open long enough, or half-open without a verdict
+                Phase halfOpen = Phase.halfOpen(current.window, now, halfOpenCalls);
+                current = phase.compareAndSet(current, halfOpen) ? halfOpen : phase.get();
+            }
+        }
+        switch (current.state) {
+            case CLOSED:
+                return false;
+            case HALF_OPEN:
+                if (current.acquireTrial()) {
+                    context.put(trialKey, current);
+                    return false;
+                }
+                break;
+            default:
+                break;
+        }
+        rejected.increment();
+        throw current.state == State.OPEN ? openRejection : halfOpenRejection;
+    }
+
+    /**
+     * <p>Record the outcome of the processing.</p>
+     *
+     * @param context The {@link Context} being processed
+     * @param exception The exception of the processing, if any
+     * @return <code>false</code>
+     */
+    @Override
+    public boolean postprocess(Context context, Exception exception) {
+        if (CommandRejectedException.isRejectedBy(exception, this)) {
+            return false;
+        }
+        boolean failure = exception != null;
+        Object trial = context.remove(trialKey);
+        Phase current = phase.get();
+        if (trial != null) {
+            // Outcomes of an earlier half-open phase are stale
+            if (trial == current) {
+                if (failure) {
+                    open(current);
+                } else if (current.successes.incrementAndGet() >= halfOpenCalls) {
+                    phase.compareAndSet(current, Phase.closed(windowSize));
+                }
+            }
+        } else if (current.state == State.CLOSED) {
+            Window window = current.window;
+            window.record(failure);
+            if (failure && window.getCalls() >= minimumCalls
+                    && window.getFailureRate() >= failureRateThreshold) {
+                open(current);
+            }
+        }
+        // Otherwise admitted while closed, and the circuit has opened since
+        return false;
+    }
+
+    public String toString() {
+        return "CircuitBreakerFilter[" + phase.get().state + "]";
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private void open(Phase expected) {
+        phase.compareAndSet(expected, Phase.open(expected.window, System.nanoTime()));
+    }
+
+    /**
+     * <p>State of the circuit with the counters of that state.  A phase is
+     * never reused: each transition installs a new one.</p>
+     */
+    private static final class Phase {
+        final State state;
+
+        /**
+         * <p>Calls recorded while closed; kept while open and half-open for
+         * <code>getFailureRate()</code>.</p>
+         */
+        final Window window;
+
+        /**
+         * <p>Time the circuit opened, or became half-open.</p>
+         */
+        final long sinceNanos;
+
+        /**
+         * <p>Trial calls left and successful trial calls, if half-open.</p>
+         */
+        final AtomicInteger permits;
+
+        final AtomicInteger successes;
+
+        private Phase(State state, Window window, long sinceNanos, int permits) {
+            this.state = state;
+            this.window = window;
+            this.sinceNanos = sinceNanos;
+            this.permits = state == State.HALF_OPEN ? new AtomicInteger(permits) : null;
+            this.successes = state == State.HALF_OPEN ? new AtomicInteger() : null;
+        }
+
+        static Phase closed(int windowSize) {
+            return new Phase(State.CLOSED, new Window(windowSize), 0L, 0);
+        }
+
+        static Phase open(Window window, long openedNanos) {
+            return new Phase(State.OPEN, window, openedNanos, 0);
+        }
+
+        static Phase halfOpen(Window window, long sinceNanos, int permits) {
+            return new Phase(State.HALF_OPEN, window, sinceNanos, permits);
+        }
+
+        /**
+         * <p>Take a trial call; the count never goes below zero, however
+         * many calls are rejected.</p>
+         */
+        boolean acquireTrial() {
+            for (;;) {
+                int left = permits.get();
+                if (left <= 0) {
+                    return false;
+                }
+                if (permits.compareAndSet(left, left - 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Outcomes of the most recent calls in a ring, with running counts
+     * of the calls and failures it holds.</p>
+     */
+    private static final class Window {
+        private static final int EMPTY = 0;
+
+        private static final int SUCCESS = 1;
+
+        private static final int FAILURE = 2;
+
+        private final AtomicIntegerArray outcomes;
+
+        private final AtomicLong cursor = new AtomicLong();
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        Window(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        void record(boolean failure) {
+            int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+            int previous = outcomes.getAndSet(slot, failure ? FAILURE : SUCCESS);
+            if (previous == EMPTY) {
+                calls.incrementAndGet();
+            }
+            if (failure && previous != FAILURE) {
+                failures.incrementAndGet();
+            } else if (!failure && previous == FAILURE) {
+                failures.decrementAndGet();
+            }
+        }
+
+        int getCalls() {
+            return calls.get();
+        }
+
+        double getFailureRate() {
+            int calls = this.calls.get();
+            return calls == 0 ? 0.0 : (double) failures.get() / calls;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.gdwii.tool4j.chain.generic;
+
+
+import com.gdwii.tool4j.chain.Filter;
+
+
+/**
+ * <p>Thrown by a {@link Filter} that refuses to let the processing of a
+ * {@link com.gdwii.tool4j.chain.Context} proceed, such as an open
+ * {@link CircuitBreakerFilter} or a full {@link BulkheadFilter}.</p>
+ *
+ * <p>Rejections are expected under load and must stay cheap, so this
+ * exception does not fill in its stack trace and does not record
+ * suppressed exceptions.  Being immutable, it is preallocated by the
+ * rejecting {@link Filter} and thrown again for every rejection.</p>
+ */
+public class CommandRejectedException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Filter filter;
+
+    /**
+     * @param message The reason of the rejection
+     * @param filter The rejecting {@link Filter}
+     */
+    public CommandRejectedException(String message, Filter filter) {
+        super(message, null, false, false);
+        this.filter = filter;
+    }
+
+    /**
+     * @return The rejecting {@link Filter}
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @param exception An exception passed to <code>postprocess()</code>
+     * @param filter A {@link Filter}
+     * @return <code>true</code> if <code>exception</code> is a rejection
+     *  by <code>filter</code>
+     */
+    static boolean isRejectedBy(Exception exception, Filter filter) {
+        return exception instanceof CommandRejectedException
+                && ((CommandRejectedException) exception).filter == filter;
+    }
+}
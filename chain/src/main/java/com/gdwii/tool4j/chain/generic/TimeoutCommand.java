@@ -0,0 +1,161 @@
+package com.gdwii.tool4j.chain.generic;
+
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <p>{@link AsyncCommand} wrapping a {@link Command} whose processing must
+ * complete within a time limit.  When the limit expires, the processing
+ * completes exceptionally with a <code>TimeoutException</code>, which the
+ * {@link com.gdwii.tool4j.chain.Filter}s of the chain see as any other
+ * exception.</p>
+ *
+ * <p>A plain {@link Command} runs on the supplied <code>Executor</code>
+ * and is interrupted when it times out; it should therefore respond to
+ * interruption and must not touch the {@link Context} once interrupted.
+ * A command ignoring interruption keeps its thread after timing out, so
+ * the <code>Executor</code> is never a shared default: supply one
+ * dedicated to such commands, and bounded.
+ * An {@link AsyncCommand} is started on the calling thread and its stage
+ * is simply no longer awaited.</p>
+ *
+ * <p>Timeouts are scheduled on one shared daemon thread and cancelled as
+ * soon as the processing completes.  As it wraps another
+ * {@link Command}, it is created in code rather than by the
+ * {@link com.gdwii.tool4j.chain.config.ConfigLoader}.</p>
+ */
+public class TimeoutCommand implements AsyncCommand {
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        AtomicInteger threadNumber = new AtomicInteger();
+        TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "chain-timeout-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final Command command;
+
+    private final long timeoutNanos;
+
+    private final Executor executor;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * <p>Create a wrapper of an {@link AsyncCommand}, which needs no
+     * <code>Executor</code>.</p>
+     *
+     * @param command The wrapped {@link AsyncCommand}
+     * @param timeout Time limit of the processing
+     * @param unit Unit of <code>timeout</code>
+     */
+    public TimeoutCommand(AsyncCommand command, long timeout, TimeUnit unit) {
+        this(command, timeout, unit, null);
+    }
+
+    /**
+     * @param command The wrapped {@link Command}
+     * @param timeout Time limit of the processing
+     * @param unit Unit of <code>timeout</code>
+     * @param executor The <code>Executor</code> running a plain
+     *  {@link Command}, or <code>null</code> for an {@link AsyncCommand}
+     *
+     * @exception IllegalArgumentException if <code>command</code> is a
+     *  plain {@link Command} and <code>executor</code> is
+     *  <code>null</code>
+     */
+    public TimeoutCommand(Command command, long timeout, TimeUnit unit, Executor executor) {
+        if (command == null || unit == null || timeout <= 0L
+                || (executor == null && !(command instanceof AsyncCommand))) {
+            throw new IllegalArgumentException();
+        }
+        this.command = command;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.executor = executor;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return The wrapped {@link Command}
+     */
+    public Command getCommand() {
+        return command;
+    }
+
+    public long getTimeoutMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(timeoutNanos);
+    }
+
+    /**
+     * <p>Start the wrapped {@link Command}.</p>
+     *
+     * @param context The {@link Context} to be processed
+     * @return Stage completing with the result of the wrapped
+     *  {@link Command}, or exceptionally with a
+     *  <code>TimeoutException</code> if it did not complete in time
+     */
+    @Override
+    public CompletionStage<Boolean> executeAsync(Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException();
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Future<?> task;
+        if (command instanceof AsyncCommand) {
+            task = null;
+            ((AsyncCommand) command).executeAsync(context).whenComplete((value, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } else {
+            FutureTask<Boolean> futureTask = new FutureTask<Boolean>(() -> command.execute(context)) {
+                @Override
+                protected void done() {
+                    try {
+                        result.complete(get());
+                    } catch (ExecutionException e) {
+                        result.completeExceptionally(e.getCause());
+                    } catch (CancellationException | InterruptedException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            };
+            executor.execute(futureTask);
+            task = futureTask;
+        }
+
+        if (!result.isDone()) {
+            ScheduledFuture<?> timeout = TIMER.schedule(() -> {
+                if (result.completeExceptionally(new TimeoutException(
+                        command + " timed out after " + getTimeoutMillis() + " ms")) && task != null) {
+                    task.cancel(true);
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            result.whenComplete((value, failure) -> timeout.cancel(false));
+        }
+        return result;
+    }
+
+    public String toString() {
+        return "TimeoutCommand[" + command + ", " + getTimeoutMillis() + " ms]";
+    }
+}
@@ -0,0 +1,211 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.AsyncChain;
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.ChainListener;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+
+/**
+ * <p>Convenience base class for {@link AsyncChain} implementations.</p>
+ *
+ * <p><code>executeAsync()</code> runs the configured {@link Command}s on the
+ * supplied <code>Executor</code>.  Consecutive synchronous {@link Command}s
+ * are executed in one task; when an {@link AsyncCommand} is reached, the
+ * task ends and the remainder of the chain is resumed on the
+ * <code>Executor</code> once the returned stage completes, so no thread
+ * waits for it.  A small pool can therefore drive many concurrent chains
+ * whose commands wait on I/O.</p>
+ *
+ * <p>The inherited <code>execute()</code> method keeps the synchronous
+ * algorithm of {@link ChainBase}, on the calling thread.</p>
+ */
+public class AsyncChainBase extends ChainBase implements AsyncChain {
+    // ----------------------------------------------------------- Constructors
+    /**
+     * <p>Construct an {@link AsyncChain} configured with the specified
+     * {@link Command}s.</p>
+     *
+     * @param commands The {@link Command}s to be configured
+     * @param executor The <code>Executor</code> running the commands
+     *
+     * @exception IllegalArgumentException if <code>commands</code>,
+     *  one of the individual {@link Command} elements, or
+     *  <code>executor</code> is <code>null</code>
+     */
+    public AsyncChainBase(Command[] commands, Executor executor) {
+        super(commands);
+        this.executor = checkExecutor(executor);
+    }
+
+    /**
+     * <p>Construct an {@link AsyncChain} configured with the specified
+     * {@link Command}s.</p>
+     *
+     * @param commands The {@link Command}s to be configured
+     * @param executor The <code>Executor</code> running the commands
+     *
+     * @exception IllegalArgumentException if <code>commands</code>,
+     *  one of the individual {@link Command} elements, or
+     *  <code>executor</code> is <code>null</code>
+     */
+    public AsyncChainBase(Collection<? extends Command> commands, Executor executor) {
+        super(commands);
+        this.executor = checkExecutor(executor);
+    }
+
+    private static Executor checkExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException();
+        }
+        return executor;
+    }
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>The <code>Executor</code> running the {@link Command}s of this
+     * chain.</p>
+     */
+    protected final Executor executor;
+
+    // ---------------------------------------------------------- Chain Methods
+    /**
+     * See the {@link AsyncChain} JavaDoc.
+     *
+     * @param context The {@link Context} to be processed by this
+     *  {@link AsyncChain}
+     *
+     * @throws IllegalArgumentException if <code>context</code>
+     *  is <code>null</code>
+     *
+     * @return Stage completing with the result of the chain
+     */
+    @Override
+    public CompletionStage<Boolean> executeAsync(Context context) {
+        // Verify our parameters
+        if (context == null) {
+            throw new IllegalArgumentException();
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        executor.execute(() -> proceed(context, 0, result));
+        return result;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * <p>Execute the commands starting at <code>index</code> until one
+     * returns <code>true</code>, throws an exception, or is asynchronous.</p>
+     */
+    private void proceed(Context context, int index, CompletableFuture<Boolean> result) {
+        int n = commands.length;
+        int i = index;
+        boolean saveResult = false;
+        Throwable failure = null;
+        try {
+            for (; i < n; i++) {
+                Command command = commands[i];
+                if (command instanceof AsyncCommand) {
+                    int current = i;
+                    ChainListener listener = getListener();
+                    long start = listener == null ? 0L : System.nanoTime();
+                    ((AsyncCommand) command).executeAsync(context).handleAsync((value, cause) -> {
+                        resume(context, current, command, start, listener, value, cause, result);
+                        return null;
+                    }, executor).exceptionally(rejected -> {
+                        // The executor refused to run the continuation
+                        if (!result.isDone()) {
+                            finish(context, current, false, unwrap(rejected), result);
+                        }
+                        return null;
+                    });
+                    return;
+                }
+                if (execute(context, i)) {
+                    saveResult = true;
+                    break;
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+        }
+
+        // Handled, failed, or fell off the end of the chain
+        finish(context, i < n ? i : n - 1, saveResult, failure, result);
+    }
+
+    /**
+     * <p>Continue the chain after the {@link AsyncCommand} at
+     * <code>current</code> completed.  An exception thrown by the listener
+     * fails the chain rather than leaving <code>result</code>
+     * incomplete.</p>
+     */
+    private void resume(Context context, int current, Command command, long start, ChainListener listener,
+                        Boolean value, Throwable failure, CompletableFuture<Boolean> result) {
+        Throwable cause = unwrap(failure);
+        if (listener != null) {
+            try {
+                listener.commandExecuted(context, current, command, System.nanoTime() - start,
+                        Boolean.TRUE.equals(value), cause instanceof Exception ? (Exception) cause : null);
+            } catch (Throwable t) {
+                // The exception of the command, if any, is not modified
+                if (cause == null) {
+                    cause = t;
+                }
+            }
+        }
+        if (cause != null) {
+            finish(context, current, false, cause, result);
+        } else if (Boolean.TRUE.equals(value)) {
+            finish(context, current, true, null, result);
+        } else {
+            proceed(context, current + 1, result);
+        }
+    }
+
+    /**
+     * <p>Postprocess the {@link com.gdwii.tool4j.chain.Filter}s exactly
+     * once, then complete <code>result</code>.  Never throws.</p>
+     */
+    private void finish(Context context, int last, boolean saveResult, Throwable failure,
+                        CompletableFuture<Boolean> result) {
+        if (failure != null && !(failure instanceof Exception)) {
+            // Errors are not passed to Filters, as in ChainBase
+            result.completeExceptionally(failure);
+            return;
+        }
+        Exception saveException = (Exception) failure;
+        boolean handled;
+        try {
+            handled = postprocess(context, last, saveException);
+        } catch (Throwable t) {
+            // For example thrown by the listener; the Filters have run
+            result.completeExceptionally(t);
+            return;
+        }
+
+        // Complete with the exception or result state from the last execute()
+        if ((saveException != null) && !handled) {
+            result.completeExceptionally(saveException);
+        } else {
+            result.complete(saveResult);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            return failure.getCause();
+        }
+        return failure;
+    }
+}
@@ -44,6 +44,7 @@ public class CatalogFactoryBase extends CatalogFactory {
     @Override
     public void addCatalog(String name, Catalog catalog) {
         catalogs.put(name, catalog);
+        clearResolvedCommands();
     }
 
     /**
@@ -1,18 +1,39 @@
 package com.gdwii.tool4j.chain.impl;
 
 
+import com.gdwii.tool4j.chain.BatchCommand;
+import com.gdwii.tool4j.chain.BatchResult;
 import com.gdwii.tool4j.chain.Chain;
+import com.gdwii.tool4j.chain.ChainListener;
 import com.gdwii.tool4j.chain.Command;
 import com.gdwii.tool4j.chain.Context;
 import com.gdwii.tool4j.chain.Filter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
  * <p>Convenience base class for {@link Chain} implementations.</p>
+ *
+ * <p>A {@link ChainListener} may be installed to observe the execution
+ * time and outcome of each {@link Command}, for example a
+ * {@link ChainMetrics}.  Without a listener, no time is measured.</p>
  */
 public class ChainBase implements Chain {
+    /**
+     * <p>Smallest number of contexts of a batch processed as a separate
+     * chunk.</p>
+     */
+    private static final int MIN_CHUNK_SIZE = 256;
+
     // ----------------------------------------------------------- Constructors
     /**
      * <p>Construct a {@link Chain} configured with the specified
@@ -26,6 +47,8 @@ public class ChainBase implements Chain {
      */
     public ChainBase(Command[] commands) {
         this.commands = initCommands(commands);
+        this.filterIndexes = filterIndexes(this.commands);
+        this.filters = filters(this.commands, filterIndexes);
     }
 
     private Command[] initCommands(Command[] commands) {
@@ -42,6 +65,30 @@ public class ChainBase implements Chain {
         return results;
     }
 
+    private static int[] filterIndexes(Command[] commands) {
+        int count = 0;
+        for (Command command : commands) {
+            if (command instanceof Filter) {
+                count++;
+            }
+        }
+        int[] indexes = new int[count];
+        for (int i = 0, f = 0; i < commands.length; i++) {
+            if (commands[i] instanceof Filter) {
+                indexes[f++] = i;
+            }
+        }
+        return indexes;
+    }
+
+    private static Filter[] filters(Command[] commands, int[] filterIndexes) {
+        Filter[] filters = new Filter[filterIndexes.length];
+        for (int f = 0; f < filters.length; f++) {
+            filters[f] = (Filter) commands[filterIndexes[f]];
+        }
+        return filters;
+    }
+
 
     /**
      * <p>Construct a {@link Chain} configured with the specified
@@ -58,6 +105,8 @@ public class ChainBase implements Chain {
             throw new IllegalArgumentException();
         }
         this.commands = initCommands(commands.toArray(new Command[0]));
+        this.filterIndexes = filterIndexes(this.commands);
+        this.filters = filters(this.commands, filterIndexes);
     }
 
     // ----------------------------------------------------- Instance Variables
@@ -69,6 +118,40 @@ public class ChainBase implements Chain {
      */
     protected final Command[] commands;
 
+    /**
+     * <p>Ascending positions of the {@link Filter}s among the
+     * {@link Command}s, and the {@link Filter}s themselves, resolved once
+     * at construction.</p>
+     */
+    private final int[] filterIndexes;
+
+    private final Filter[] filters;
+
+    /**
+     * <p>The {@link ChainListener} observing this {@link Chain}, if any.</p>
+     */
+    private volatile ChainListener listener;
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return The {@link ChainListener} observing this {@link Chain}, or
+     *  <code>null</code>
+     */
+    public ChainListener getListener() {
+        return listener;
+    }
+
+    /**
+     * <p>Install the {@link ChainListener} observing the {@link Command}s
+     * of this {@link Chain}, replacing any previous one.</p>
+     *
+     * @param listener The listener, or <code>null</code> to stop observing
+     */
+    public void setListener(ChainListener listener) {
+        this.listener = listener;
+    }
+
     // ---------------------------------------------------------- Chain Methods
     /**
      * See the {@link Chain} JavaDoc.
@@ -102,7 +185,7 @@ public class ChainBase implements Chain {
         int n = commands.length;
         for (i = 0; i < n; i++) {
             try {
-                saveResult = commands[i].execute(context);
+                saveResult = execute(context, i);
                 if (saveResult) {
                     break;
                 }
@@ -116,27 +199,292 @@ public class ChainBase implements Chain {
         if (i >= n) { // Fell off the end of the chain
             i--;
         }
+        boolean handled = postprocess(context, i, saveException);
+
+        // Return the exception or result state from the last execute()
+        if ((saveException != null) && !handled) {
+            throw saveException;
+        } else {
+            return (saveResult);
+        }
+    }
+
+
+    // ---------------------------------------------------------- Batch Methods
+    /**
+     * <p>Process each of the specified contexts as <code>execute()</code>
+     * would, running the {@link Command}s on the common
+     * <code>ForkJoinPool</code>.</p>
+     *
+     * @param contexts The {@link Context}s to be processed
+     * @return The outcome of each {@link Context}
+     * @see #executeBatch(List, Executor)
+     */
+    public BatchResult executeBatch(List<? extends Context> contexts) {
+        return executeBatch(contexts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * <p>Process each of the specified contexts as <code>execute()</code>
+     * would, command by command: each {@link Command} processes every
+     * {@link Context} still being processed before the next {@link Command}
+     * starts, so its code and data stay hot across the batch.  A
+     * {@link BatchCommand} receives those contexts in one call.</p>
+     *
+     * <p>Large batches are split into chunks processed concurrently on the
+     * specified <code>Executor</code> and the calling thread.  Contexts are
+     * isolated from each other: an exception stops the processing of its
+     * own {@link Context} only, and the {@link Filter}s executed for a
+     * {@link Context} postprocess it, in reverse order, once the last
+     * {@link Command} has processed the batch.</p>
+     *
+     * @param batchContexts The {@link Context}s to be processed
+     * @param executor The <code>Executor</code> processing the chunks
+     * @return The outcome of each {@link Context}: the value
+     *  <code>execute()</code> would have returned, or the exception it
+     *  would have thrown
+     * @throws IllegalArgumentException if <code>batchContexts</code>, one of
+     *  its elements or <code>executor</code> is <code>null</code>
+     */
+    public BatchResult executeBatch(List<? extends Context> batchContexts, Executor executor) {
+        List<? extends Context> contexts = checkBatch(batchContexts, executor);
+        int size = contexts.size();
+        BatchResult batch = new BatchResult(size);
+        // Index of the last Command executed for each context
+        int[] last = new int[size];
+        Arrays.fill(last, -1);
+        int[] active = new int[size];
+        for (int k = 0; k < size; k++) {
+            active[k] = k;
+        }
+
+        int count = size;
+        for (int i = 0; i < commands.length && count > 0; i++) {
+            int index = i;
+            forEachChunk(count, executor, (from, to) -> executeStage(index, contexts, active, from, to, batch, last));
+            // Keep the contexts whose processing continues
+            int remaining = 0;
+            for (int a = 0; a < count; a++) {
+                int k = active[a];
+                if (!batch.getResult(k) && batch.getException(k) == null) {
+                    active[remaining++] = k;
+                }
+            }
+            count = remaining;
+        }
+
+        // Call postprocess methods on Filters in reverse order
+        forEachChunk(size, executor, (from, to) -> {
+            for (int k = from; k < to; k++) {
+                if (postprocess(contexts.get(k), last[k], batch.getException(k))) {
+                    batch.setException(k, null);
+                }
+            }
+        });
+        return batch;
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+    /**
+     * <p>Call <code>execute()</code> for each of the specified contexts, in
+     * chunks processed concurrently, for subclasses whose execution cannot
+     * be split command by command.</p>
+     *
+     * @param batchContexts The {@link Context}s to be processed
+     * @param executor The <code>Executor</code> processing the chunks
+     * @return The outcome of each {@link Context}
+     * @throws IllegalArgumentException if <code>batchContexts</code>, one of
+     *  its elements or <code>executor</code> is <code>null</code>
+     */
+    protected BatchResult executeEach(List<? extends Context> batchContexts, Executor executor) {
+        List<? extends Context> contexts = checkBatch(batchContexts, executor);
+        BatchResult batch = new BatchResult(contexts.size());
+        forEachChunk(contexts.size(), executor, (from, to) -> {
+            for (int k = from; k < to; k++) {
+                try {
+                    batch.setResult(k, execute(contexts.get(k)));
+                } catch (Exception e) {
+                    batch.setException(k, e);
+                }
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * <p>Call the <code>execute()</code> method of the {@link Command} at
+     * the specified position, reporting it to the {@link ChainListener},
+     * if any.</p>
+     *
+     * @param context The {@link Context} to be processed
+     * @param index Position of the {@link Command}
+     * @return The value returned by the {@link Command}
+     * @throws Exception if thrown by the {@link Command}
+     */
+    protected boolean execute(Context context, int index) throws Exception {
+        Command command = commands[index];
+        ChainListener listener = this.listener;
+        if (listener == null) {
+            return command.execute(context);
+        }
+
+        long start = System.nanoTime();
+        boolean result;
+        try {
+            result = command.execute(context);
+        } catch (Exception e) {
+            listener.commandExecuted(context, index, command, System.nanoTime() - start, false, e);
+            throw e;
+        }
+        listener.commandExecuted(context, index, command, System.nanoTime() - start, result, null);
+        return result;
+    }
+
+    /**
+     * <p>Call the <code>postprocess()</code> method of each {@link Filter}
+     * among the executed {@link Command}s, in reverse order.  An exception
+     * they throw is reported to {@link ChainExceptions} and otherwise
+     * ignored.</p>
+     *
+     * @param context The {@link Context} being processed
+     * @param last Index of the last {@link Command} whose
+     *  <code>execute()</code> method was called, or <code>-1</code>
+     * @param exception The exception thrown by that {@link Command},
+     *  if any; otherwise <code>null</code>
+     * @return <code>true</code> if one of the {@link Filter}s handled
+     *  <code>exception</code>
+     */
+    protected boolean postprocess(Context context, int last, Exception exception) {
+        ChainListener listener = this.listener;
         boolean handled = false;
-        for (int j = i; j >= 0; j--) {
-            if (commands[j] instanceof Filter) {
+        for (int f = filterIndexes.length - 1; f >= 0; f--) {
+            int j = filterIndexes[f];
+            if (j > last) {
+                continue;
+            }
+            long start = listener == null ? 0L : System.nanoTime();
+            boolean result = false;
+            try {
+                result = filters[f].postprocess(context, exception);
+                if (result) {
+                    handled = true;
+                }
+            } catch (Exception e) {
+                ChainExceptions.postprocessFailed(filters[f], e);
+            }
+            if (listener != null) {
+                listener.filterPostprocessed(context, j, filters[f],
+                        System.nanoTime() - start, result);
+            }
+        }
+        return handled;
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private static List<? extends Context> checkBatch(List<? extends Context> contexts, Executor executor) {
+        if (contexts == null || executor == null) {
+            throw new IllegalArgumentException();
+        }
+        for (Context context : contexts) {
+            if (context == null) {
+                throw new IllegalArgumentException();
+            }
+        }
+        // Chunks read the contexts by position
+        return contexts instanceof RandomAccess ? contexts : new ArrayList<>(contexts);
+    }
+
+    /**
+     * <p>Execute the {@link Command} at the specified position for the
+     * contexts at positions <code>from</code> to <code>to</code> of
+     * <code>active</code>.</p>
+     */
+    private void executeStage(int index, List<? extends Context> contexts, int[] active, int from, int to,
+                              BatchResult batch, int[] last) {
+        Command command = commands[index];
+        if (!(command instanceof BatchCommand)) {
+            for (int a = from; a < to; a++) {
+                int k = active[a];
+                last[k] = index;
                 try {
-                    boolean result =
-                            ((Filter) commands[j]).postprocess(context,
-                                    saveException);
-                    if (result) {
-                        handled = true;
-                    }
+                    batch.setResult(k, execute(contexts.get(k), index));
                 } catch (Exception e) {
-                    // Silently ignore
+                    batch.setException(k, e);
                 }
             }
+            return;
         }
 
-        // Return the exception or result state from the last execute()
-        if ((saveException != null) && !handled) {
-            throw saveException;
-        } else {
-            return (saveResult);
+        List<Context> chunk = new ArrayList<>(to - from);
+        for (int a = from; a < to; a++) {
+            chunk.add(contexts.get(active[a]));
+        }
+        ChainListener listener = this.listener;
+        long start = listener == null ? 0L : System.nanoTime();
+        BatchResult results;
+        try {
+            results = ((BatchCommand) command).executeBatch(chunk);
+            if (results == null || results.size() != chunk.size()) {
+                throw new IllegalStateException("command [" + command + "] returned " + results
+                        + " for " + chunk.size() + " contexts");
+            }
+        } catch (RuntimeException e) {
+            results = new BatchResult(chunk.size());
+            for (int c = 0; c < chunk.size(); c++) {
+                results.setException(c, e);
+            }
+        }
+        // The listener sees each context with its share of the batch time
+        long elapsedNanos = listener == null ? 0L : (System.nanoTime() - start) / chunk.size();
+        for (int a = from, c = 0; a < to; a++, c++) {
+            int k = active[a];
+            Exception exception = results.getException(c);
+            boolean result = exception == null && results.getResult(c);
+            last[k] = index;
+            batch.setResult(k, result);
+            batch.setException(k, exception);
+            if (listener != null) {
+                listener.commandExecuted(chunk.get(c), index, command, elapsedNanos, result, exception);
+            }
+        }
+    }
+
+    /**
+     * <p>Run the task over <code>[0, count)</code>, split into chunks run
+     * on the executor and the calling thread, and wait for them.</p>
+     */
+    private static void forEachChunk(int count, Executor executor, ChunkTask task) {
+        int chunks = Math.min(count / MIN_CHUNK_SIZE, Runtime.getRuntime().availableProcessors() * 4);
+        if (chunks <= 1) {
+            task.run(0, count);
+            return;
         }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks - 1];
+        for (int c = 1; c < chunks; c++) {
+            int from = (int) ((long) count * c / chunks);
+            int to = (int) ((long) count * (c + 1) / chunks);
+            futures[c - 1] = CompletableFuture.runAsync(() -> task.run(from, to), executor);
+        }
+        task.run(0, count / chunks);
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private interface ChunkTask {
+        void run(int from, int to);
     }
 }
@@ -0,0 +1,122 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.Catalog;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Filter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * <p>Builds {@link CompiledChain}s: execution plans in which the nested
+ * chains of a {@link ChainBase} are flattened into a single loop, so that
+ * a deep chain costs close to a flat one.  Nested chains no longer repeat
+ * their own loop, <code>instanceof Filter</code> checks and reverse
+ * postprocessing walk, and the call sites of <code>execute()</code> only
+ * see the leaf {@link Command}s.</p>
+ *
+ * <p>Only nested chains whose class is exactly {@link ChainBase} and that
+ * have no {@link com.gdwii.tool4j.chain.ChainListener} are flattened;
+ * subclasses may override the execution algorithm and are kept as single
+ * {@link Command}s.  Chains must not be modified after compilation.</p>
+ */
+public final class ChainCompiler {
+
+    private ChainCompiler() {}
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * <p>Compile the specified chain.</p>
+     *
+     * @param chain The chain to be compiled
+     * @return An equivalent {@link CompiledChain}
+     */
+    public static CompiledChain compile(ChainBase chain) {
+        if (chain == null) {
+            throw new IllegalArgumentException();
+        }
+        Plan plan = new Plan();
+        plan.flatten(chain, -1);
+        return plan.build();
+    }
+
+    /**
+     * <p>Replace every {@link ChainBase} of the specified catalog with its
+     * {@link CompiledChain}.</p>
+     *
+     * @param catalog The catalog to be compiled
+     */
+    public static void compile(Catalog catalog) {
+        List<String> names = new ArrayList<>();
+        for (Iterator<String> iterator = catalog.getNames(); iterator.hasNext(); ) {
+            names.add(iterator.next());
+        }
+        for (String name : names) {
+            Command command = catalog.getCommand(name);
+            if (command instanceof ChainBase && !(command instanceof CompiledChain)) {
+                catalog.addCommand(name, compile((ChainBase) command));
+            }
+        }
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private static boolean isFlattenable(Command command) {
+        return command.getClass() == ChainBase.class && ((ChainBase) command).getListener() == null;
+    }
+
+    /**
+     * <p>Mutable execution plan, filled in by a depth-first walk.</p>
+     */
+    private static final class Plan {
+        private final List<Command> commands = new ArrayList<>();
+        private final List<Integer> groupOf = new ArrayList<>();
+        private final List<Integer> groupParent = new ArrayList<>();
+        private final List<Integer> groupEnd = new ArrayList<>();
+        private final List<List<Integer>> groupFilters = new ArrayList<>();
+
+        void flatten(ChainBase chain, int parent) {
+            int group = groupParent.size();
+            groupParent.add(parent);
+            groupEnd.add(-1);
+            List<Integer> filters = new ArrayList<>();
+            groupFilters.add(filters);
+
+            for (Command command : chain.commands) {
+                if (isFlattenable(command)) {
+                    flatten((ChainBase) command, group);
+                } else {
+                    if (command instanceof Filter) {
+                        filters.add(commands.size());
+                    }
+                    groupOf.add(group);
+                    commands.add(command);
+                }
+            }
+            groupEnd.set(group, commands.size());
+        }
+
+        CompiledChain build() {
+            int groups = groupParent.size();
+            int[][] filters = new int[groups][];
+            for (int g = 0; g < groups; g++) {
+                filters[g] = toArray(groupFilters.get(g));
+            }
+            return new CompiledChain(commands.toArray(new Command[0]), toArray(groupOf),
+                    toArray(groupParent), toArray(groupEnd), filters);
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>Exception policy of the chain implementations.</p>
+ *
+ * <p>In <em>stackless</em> mode, the exceptions created by the chain
+ * itself, such as {@link PropertyAccessException}, do not capture their
+ * stack trace, which is most of the cost of throwing them under an error
+ * storm.  The mode is off by default; it is turned on with the system
+ * property <code>com.gdwii.tool4j.chain.stackless=true</code> or
+ * {@link #setStackless(boolean)}.  Exceptions thrown by {@link
+ * com.gdwii.tool4j.chain.Command}s are never altered.</p>
+ *
+ * <p>Exceptions thrown by <code>postprocess()</code> methods of
+ * {@link Filter}s do not interrupt the chain.  They are counted and
+ * logged, at most once every ten seconds, together with the number of
+ * exceptions not logged since the previous report.</p>
+ */
+public final class ChainExceptions {
+    private static final Logger logger = LoggerFactory.getLogger(ChainExceptions.class);
+
+    /**
+     * <p>Name of the system property turning the stackless mode on.</p>
+     */
+    public static final String STACKLESS_PROPERTY = "com.gdwii.tool4j.chain.stackless";
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static volatile boolean stackless = Boolean.getBoolean(STACKLESS_PROPERTY);
+
+    private static final LongAdder postprocessFailures = new LongAdder();
+
+    private static final AtomicLong nextReportNanos = new AtomicLong(System.nanoTime());
+
+    private static final AtomicLong unreported = new AtomicLong();
+
+    private ChainExceptions() {}
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return <code>true</code> if exceptions created by the chain do not
+     *  capture their stack trace
+     */
+    public static boolean isStackless() {
+        return stackless;
+    }
+
+    public static void setStackless(boolean stackless) {
+        ChainExceptions.stackless = stackless;
+    }
+
+    /**
+     * @return Number of exceptions thrown by <code>postprocess()</code>
+     *  methods since the class was loaded
+     */
+    public static long getPostprocessFailureCount() {
+        return postprocessFailures.sum();
+    }
+
+    /**
+     * <p>Record an exception thrown by the <code>postprocess()</code>
+     * method of a {@link Filter}, and log it unless one was logged less
+     * than ten seconds ago.</p>
+     *
+     * @param filter The {@link Filter}
+     * @param exception The exception it threw
+     */
+    public static void postprocessFailed(Filter filter, Exception exception) {
+        postprocessFailures.increment();
+        long now = System.nanoTime();
+        long next = nextReportNanos.get();
+        if (now - next < 0L || !nextReportNanos.compareAndSet(next, now + REPORT_INTERVAL_NANOS)) {
+            unreported.incrementAndGet();
+            return;
+        }
+        long skipped = unreported.getAndSet(0L);
+        logger.warn("filter:{} postprocess failed ({} more failures since the last report)",
+                filter, skipped, exception);
+    }
+}
@@ -0,0 +1,185 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.Catalog;
+import com.gdwii.tool4j.chain.ChainListener;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * <p>{@link ChainListener} recording, for each {@link Command} of one
+ * {@link ChainBase}, a latency histogram of <code>execute()</code>, the
+ * number of executions that completed the processing, delegated it to the
+ * next {@link Command} or threw an exception, and a latency histogram of
+ * <code>postprocess()</code> for {@link Filter}s.</p>
+ *
+ * <p>Once installed, each {@link CommandMetrics} is registered as an MBean
+ * of the platform <code>MBeanServer</code> named</p>
+ * <pre>
+ * com.gdwii.tool4j.chain:type=Command,catalog=<em>catalog</em>,chain=<em>chain</em>,command=<em>index</em>-<em>class</em>
+ * </pre>
+ *
+ * <p>Recording takes two <code>System.nanoTime()</code> calls and a few
+ * atomic increments per {@link Command}.  Counters are
+ * <code>LongAdder</code>s and histogram buckets are striped once threads
+ * contend on them, so concurrent executions of a chain do not serialize
+ * on shared cache lines.  A chain without a listener only pays for
+ * reading the listener field.</p>
+ */
+public class ChainMetrics implements ChainListener {
+    private static final Logger logger = LoggerFactory.getLogger(ChainMetrics.class);
+
+    /**
+     * <p>JMX domain of the registered MBeans.</p>
+     */
+    public static final String DOMAIN = "com.gdwii.tool4j.chain";
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final ChainBase chain;
+
+    private final CommandMetrics[] metrics;
+
+    private final List<ObjectName> registered = new ArrayList<>();
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * <p>Create the metrics of the specified chain, without installing
+     * them.</p>
+     *
+     * @param catalogName Name of the catalog of <code>chain</code>
+     * @param chainName Name of <code>chain</code> in its catalog
+     * @param chain The observed chain
+     */
+    public ChainMetrics(String catalogName, String chainName, ChainBase chain) {
+        if (chain == null) {
+            throw new IllegalArgumentException();
+        }
+        this.chain = chain;
+        this.metrics = new CommandMetrics[chain.commands.length];
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = new CommandMetrics(catalogName, chainName,
+                    i + "-" + commandName(chain.commands[i]));
+        }
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * <p>Install metrics on every {@link ChainBase} of the specified
+     * catalog.</p>
+     *
+     * @param catalogName Name of the catalog
+     * @param catalog The catalog
+     * @return The installed metrics
+     */
+    public static List<ChainMetrics> install(String catalogName, Catalog catalog) {
+        List<ChainMetrics> installed = new ArrayList<>();
+        for (Iterator<String> names = catalog.getNames(); names.hasNext(); ) {
+            String name = names.next();
+            Command command = catalog.getCommand(name);
+            if (command instanceof ChainBase) {
+                ChainMetrics metrics = new ChainMetrics(catalogName, name, (ChainBase) command);
+                metrics.install();
+                installed.add(metrics);
+            }
+        }
+        return installed;
+    }
+
+    /**
+     * <p>Install these metrics as the listener of the chain and register
+     * their MBeans.</p>
+     */
+    public synchronized void install() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (CommandMetrics commandMetrics : metrics) {
+            try {
+                ObjectName name = objectName(commandMetrics);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(commandMetrics, name);
+                registered.add(name);
+            } catch (JMException e) {
+                logger.warn("command:{} could not register MBean", commandMetrics, e);
+            }
+        }
+        chain.setListener(this);
+    }
+
+    /**
+     * <p>Remove these metrics from the chain and unregister their
+     * MBeans.</p>
+     */
+    public synchronized void uninstall() {
+        if (chain.getListener() == this) {
+            chain.setListener(null);
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                logger.debug("MBean:{} already unregistered", name, e);
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * @return The metrics of each {@link Command}, by position in the chain
+     */
+    public List<CommandMetrics> getCommandMetrics() {
+        return Collections.unmodifiableList(Arrays.asList(metrics));
+    }
+
+    @Override
+    public void commandExecuted(Context context, int index, Command command,
+                                long elapsedNanos, boolean result, Exception exception) {
+        metrics[index].recordExecution(elapsedNanos, result, exception);
+    }
+
+    @Override
+    public void filterPostprocessed(Context context, int index, Filter filter,
+                                    long elapsedNanos, boolean handled) {
+        metrics[index].recordPostprocess(elapsedNanos, handled);
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private static String commandName(Command command) {
+        Class<?> type = command.getClass();
+        String name = type.getSimpleName();
+        // Anonymous classes and lambdas
+        if (name.isEmpty() || name.contains("$$Lambda")) {
+            name = type.getName();
+        }
+        return name;
+    }
+
+    private static ObjectName objectName(CommandMetrics metrics) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Command"
+                + ",catalog=" + ObjectName.quote(String.valueOf(metrics.getCatalogName()))
+                + ",chain=" + ObjectName.quote(String.valueOf(metrics.getChainName()))
+                + ",command=" + ObjectName.quote(metrics.getCommandName()));
+    }
+}
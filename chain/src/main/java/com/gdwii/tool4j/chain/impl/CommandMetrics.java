@@ -0,0 +1,155 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>Latency and outcome statistics of one {@link com.gdwii.tool4j.chain.Command}
+ * of a chain, recorded by {@link ChainMetrics}.</p>
+ *
+ * <p>This implementation is thread-safe.</p>
+ */
+public class CommandMetrics implements CommandMetricsMBean {
+    // ----------------------------------------------------- Instance Variables
+
+    private final String catalogName;
+
+    private final String chainName;
+
+    private final String commandName;
+
+    private final LatencyHistogram executions = new LatencyHistogram();
+
+    private final LatencyHistogram postprocesses = new LatencyHistogram();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder exceptions = new LongAdder();
+
+    private final LongAdder handled = new LongAdder();
+
+
+    // ----------------------------------------------------------- Constructors
+
+    CommandMetrics(String catalogName, String chainName, String commandName) {
+        this.catalogName = catalogName;
+        this.chainName = chainName;
+        this.commandName = commandName;
+    }
+
+
+    // ------------------------------------------------------- Package Methods
+
+    void recordExecution(long elapsedNanos, boolean result, Exception exception) {
+        executions.record(elapsedNanos);
+        if (exception != null) {
+            exceptions.increment();
+        } else if (result) {
+            completed.increment();
+        }
+    }
+
+    void recordPostprocess(long elapsedNanos, boolean handled) {
+        postprocesses.record(elapsedNanos);
+        if (handled) {
+            this.handled.increment();
+        }
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    public String getCatalogName() {
+        return catalogName;
+    }
+
+    @Override
+    public String getChainName() {
+        return chainName;
+    }
+
+    @Override
+    public String getCommandName() {
+        return commandName;
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getContinuedCount() {
+        return Math.max(0L, executions.getCount() - completed.sum() - exceptions.sum());
+    }
+
+    @Override
+    public long getExceptionCount() {
+        return exceptions.sum();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        return executions.getMean();
+    }
+
+    @Override
+    public long getMedianNanos() {
+        return executions.getPercentile(50.0);
+    }
+
+    @Override
+    public long get99thPercentileNanos() {
+        return executions.getPercentile(99.0);
+    }
+
+    @Override
+    public long get999thPercentileNanos() {
+        return executions.getPercentile(99.9);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return executions.getMax();
+    }
+
+    @Override
+    public long getPostprocessCount() {
+        return postprocesses.getCount();
+    }
+
+    @Override
+    public long getHandledCount() {
+        return handled.sum();
+    }
+
+    @Override
+    public double getPostprocessMeanNanos() {
+        return postprocesses.getMean();
+    }
+
+    @Override
+    public long getPostprocess99thPercentileNanos() {
+        return postprocesses.getPercentile(99.0);
+    }
+
+    @Override
+    public void reset() {
+        executions.reset();
+        postprocesses.reset();
+        completed.reset();
+        exceptions.reset();
+        handled.reset();
+    }
+
+    public String toString() {
+        return catalogName + ":" + chainName + "/" + commandName
+                + " [completed=" + getCompletedCount()
+                + ", continued=" + getContinuedCount()
+                + ", exceptions=" + getExceptionCount()
+                + ", p50=" + getMedianNanos() + "ns"
+                + ", p99=" + get99thPercentileNanos() + "ns]";
+    }
+}
@@ -0,0 +1,69 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+/**
+ * <p>JMX management interface of {@link CommandMetrics}.  Latencies are in
+ * nanoseconds.</p>
+ */
+public interface CommandMetricsMBean {
+    /**
+     * @return Name of the catalog of the observed chain
+     */
+    String getCatalogName();
+
+    /**
+     * @return Name of the observed chain in its catalog
+     */
+    String getChainName();
+
+    /**
+     * @return Name of the command, made of its position in the chain and
+     *  its class name
+     */
+    String getCommandName();
+
+    /**
+     * @return Number of executions that returned <code>true</code>
+     */
+    long getCompletedCount();
+
+    /**
+     * @return Number of executions that returned <code>false</code>
+     */
+    long getContinuedCount();
+
+    /**
+     * @return Number of executions that threw an exception
+     */
+    long getExceptionCount();
+
+    double getMeanNanos();
+
+    long getMedianNanos();
+
+    long get99thPercentileNanos();
+
+    long get999thPercentileNanos();
+
+    long getMaxNanos();
+
+    /**
+     * @return Number of <code>postprocess()</code> calls, for a filter
+     */
+    long getPostprocessCount();
+
+    /**
+     * @return Number of <code>postprocess()</code> calls that handled an
+     *  exception
+     */
+    long getHandledCount();
+
+    double getPostprocessMeanNanos();
+
+    long getPostprocess99thPercentileNanos();
+
+    /**
+     * <p>Reset all counters and histograms.</p>
+     */
+    void reset();
+}
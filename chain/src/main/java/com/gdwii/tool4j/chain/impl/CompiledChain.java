@@ -0,0 +1,217 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.BatchResult;
+import com.gdwii.tool4j.chain.ChainListener;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+/**
+ * <p>{@link com.gdwii.tool4j.chain.Chain} whose nested chains have been
+ * flattened by the {@link ChainCompiler} into a single array of
+ * {@link Command}s, with the enclosing chain (<em>group</em>) of each
+ * {@link Command} and the positions of the {@link Filter}s of each group
+ * resolved at build time.</p>
+ *
+ * <p>Execution is equivalent to that of the original nested chains: when
+ * a {@link Command} returns <code>true</code>, every enclosing group
+ * postprocesses its executed {@link Filter}s; when a group falls off its
+ * end, it postprocesses its {@link Filter}s and its parent continues; when
+ * a {@link Command} throws an exception, the groups postprocess their
+ * {@link Filter}s from the innermost outwards until one handles it, and
+ * the parent of that group continues.</p>
+ *
+ * <p>The inherited <code>commands</code> array holds the flattened
+ * {@link Command}s; a {@link ChainListener} sees their positions in it.</p>
+ */
+public class CompiledChain extends ChainBase {
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>Innermost group of each {@link Command}.  Group <code>0</code> is
+     * the compiled chain itself.</p>
+     */
+    private final int[] groupOf;
+
+    /**
+     * <p>Enclosing group of each group, <code>-1</code> for the root.</p>
+     */
+    private final int[] groupParent;
+
+    /**
+     * <p>Position following the last {@link Command} of each group.</p>
+     */
+    private final int[] groupEnd;
+
+    /**
+     * <p>Ascending positions of the {@link Filter}s directly configured in
+     * each group.</p>
+     */
+    private final int[][] groupFilters;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    CompiledChain(Command[] commands, int[] groupOf, int[] groupParent, int[] groupEnd, int[][] groupFilters) {
+        super(commands);
+        this.groupOf = groupOf;
+        this.groupParent = groupParent;
+        this.groupEnd = groupEnd;
+        this.groupFilters = groupFilters;
+    }
+
+
+    // ---------------------------------------------------------- Chain Methods
+
+    /**
+     * See the {@link com.gdwii.tool4j.chain.Chain} JavaDoc.
+     *
+     * @param context The {@link Context} to be processed by this chain
+     *
+     * @throws Exception if thrown by one of the {@link Command}s
+     *  and not handled by a <code>postprocess()</code> method of a
+     *  {@link Filter} of an enclosing group
+     * @throws IllegalArgumentException if <code>context</code>
+     *  is <code>null</code>
+     *
+     * @return <code>true</code> if the processing of this {@link Context}
+     *  has been completed
+     */
+    @Override
+    public boolean execute(Context context) throws Exception {
+        // Verify our parameters
+        if (context == null) {
+            throw new IllegalArgumentException();
+        }
+
+        int n = commands.length;
+        if (n == 0) {
+            return false;
+        }
+        int i = 0;
+        for (;;) {
+            boolean result;
+            try {
+                result = execute(context, i);
+            } catch (Exception e) {
+                // Unwind until a group handles the exception
+                int group = groupOf[i];
+                while (!postprocess(context, group, i, e)) {
+                    group = groupParent[group];
+                    if (group < 0) {
+                        throw e;
+                    }
+                }
+
+                // The handling group returns false to its parent
+                int next = groupEnd[group];
+                if (close(context, groupParent[group], next) < 0) {
+                    return false;
+                }
+                i = next;
+                continue;
+            }
+
+            if (result) {
+                for (int group = groupOf[i]; group >= 0; group = groupParent[group]) {
+                    postprocess(context, group, i, null);
+                }
+                return true;
+            }
+            if (close(context, groupOf[i], i + 1) < 0) {
+                return false;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * <p>Process each of the specified contexts with <code>execute()</code>,
+     * in chunks processed concurrently: the flattened groups cannot be run
+     * command by command.</p>
+     *
+     * @param contexts The {@link Context}s to be processed
+     * @param executor The <code>Executor</code> processing the chunks
+     * @return The outcome of each {@link Context}
+     */
+    @Override
+    public BatchResult executeBatch(List<? extends Context> contexts, Executor executor) {
+        return executeEach(contexts, executor);
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * <p>Postprocess the executed {@link Filter}s of the groups enclosing
+     * position <code>last</code>, from the innermost outwards.</p>
+     */
+    @Override
+    protected boolean postprocess(Context context, int last, Exception exception) {
+        if (last < 0) {
+            return false;
+        }
+        boolean handled = false;
+        for (int group = groupOf[last]; group >= 0; group = groupParent[group]) {
+            if (postprocess(context, group, last, exception)) {
+                handled = true;
+            }
+        }
+        return handled;
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * <p>Close the groups, starting with <code>group</code> and moving
+     * outwards, that end just before position <code>next</code>.</p>
+     *
+     * @return The innermost group that continues at <code>next</code>, or
+     *  <code>-1</code> if the root fell off its end
+     */
+    private int close(Context context, int group, int next) {
+        while (group >= 0 && groupEnd[group] == next) {
+            postprocess(context, group, next - 1, null);
+            group = groupParent[group];
+        }
+        return group;
+    }
+
+    /**
+     * <p>Call the <code>postprocess()</code> method of the {@link Filter}s
+     * of one group up to position <code>last</code>, in reverse order,
+     * reporting any exception they throw to {@link ChainExceptions}.</p>
+     */
+    private boolean postprocess(Context context, int group, int last, Exception exception) {
+        ChainListener listener = getListener();
+        int[] filters = groupFilters[group];
+        boolean handled = false;
+        for (int k = filters.length - 1; k >= 0; k--) {
+            int j = filters[k];
+            if (j > last) {
+                continue;
+            }
+            long start = listener == null ? 0L : System.nanoTime();
+            boolean result = false;
+            try {
+                result = ((Filter) commands[j]).postprocess(context, exception);
+                if (result) {
+                    handled = true;
+                }
+            } catch (Exception e) {
+                ChainExceptions.postprocessFailed((Filter) commands[j], e);
+            }
+            if (listener != null) {
+                listener.filterPostprocessed(context, j, (Filter) commands[j],
+                        System.nanoTime() - start, result);
+            }
+        }
+        return handled;
+    }
+}
@@ -0,0 +1,453 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.ContextKey;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+
+/**
+ * <p>{@link Context} implementation that may be shared by {@link
+ * com.gdwii.tool4j.chain.Command}s running on several threads at once,
+ * for example by the {@link ParallelChain}.</p>
+ *
+ * <p>Attributes are stored in a <code>ConcurrentHashMap</code>: reads do not
+ * lock, writes to different keys rarely contend, and <code>compute()</code>,
+ * <code>computeIfAbsent()</code>, <code>merge()</code> and the other compound
+ * <code>Map</code> operations are atomic.  Like that map, this context does
+ * not store <code>null</code> values; storing <code>null</code> removes the
+ * attribute.</p>
+ *
+ * <p>JavaBeans properties of subclasses are exposed as in {@link
+ * ContextBase}.  Every access to them through the <code>Map</code> methods
+ * holds a lock private to this context, so values written by one thread are
+ * safely published to the others, and compound operations on a property
+ * are atomic.  Property getters and setters called directly bypass that
+ * lock; the fields behind them should then be <code>volatile</code>.</p>
+ *
+ * <p>Values stored under a {@link ContextKey} are stored as attributes,
+ * under the name of the key.</p>
+ *
+ * <p>Iterators of the collection views are weakly consistent; they never
+ * throw <code>ConcurrentModificationException</code>.</p>
+ */
+public class ConcurrentContext extends AbstractMap<String, Object> implements Context {
+    // ----------------------------------------------------------- Constructors
+    /**
+     * Default, no argument constructor.
+     */
+    public ConcurrentContext() {}
+
+    /**
+     * <p>Initialize the contents of this {@link Context} by copying the
+     * values from the specified <code>Map</code>.  Any keys in <code>map</code>
+     * that correspond to local properties will cause the setter method for
+     * that property to be called.</p>
+     *
+     * @param map Map whose key-value pairs are added
+     */
+    public ConcurrentContext(Map<String, Object> map) {
+        putAll(map);
+    }
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>Attributes, that is all values except JavaBeans properties.</p>
+     */
+    private final ConcurrentHashMap<String, Object> attributes = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Shared metadata of the JavaBeans properties of this class.</p>
+     */
+    private final ContextMetadata metadata = ContextMetadata.of(getClass());
+
+    /**
+     * <p>Lock guarding property access through the <code>Map</code>
+     * methods.</p>
+     */
+    private final Object propertyLock = new Object();
+
+    private transient Set<Map.Entry<String, Object>> entrySet;
+
+
+    // ------------------------------------------------------------- Map Methods
+
+    @Override
+    public int size() {
+        return metadata.size() + attributes.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return metadata.size() == 0 && attributes.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return metadata.containsKey(key) || (key != null && attributes.containsKey(key));
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value != null && attributes.containsValue(value)) {
+            return true;
+        }
+        for (int i = 0, n = metadata.size(); i < n; i++) {
+            PropertyAccessor accessor = metadata.get(i);
+            if (accessor.isReadable() && Objects.equals(value, readProperty(accessor))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>Return the value of the local property or attribute with the
+     * specified key.  Write-only properties return <code>null</code>.</p>
+     *
+     * @param key Key of the value to be returned
+     * @return The value for the specified key
+     */
+    @Override
+    public Object get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        PropertyAccessor accessor = metadata.get(key);
+        if (accessor != null) {
+            return accessor.isReadable() ? readProperty(accessor) : null;
+        }
+        return attributes.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if (key == null) {
+            return defaultValue;
+        }
+        if (metadata.containsKey(key)) {
+            return Context.super.getOrDefault(key, defaultValue);
+        }
+        return attributes.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * <p>Set the local property with the specified key, or store the
+     * attribute.  Storing <code>null</code> in an attribute removes it.</p>
+     *
+     * @param key Key of the value to be stored or replaced
+     * @param value New value to be stored
+     * @return The previous value
+     *
+     * @exception IllegalArgumentException if <code>key</code> is
+     *  <code>null</code>, or if <code>value</code> does not match the type
+     *  of the {@link ContextKey} registered under <code>key</code>
+     * @exception UnsupportedOperationException if this local property does not
+     *  have a write method
+     */
+    @Override
+    public Object put(String key, Object value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is not null");
+        }
+        PropertyAccessor accessor = metadata.get(key);
+        if (accessor != null) {
+            synchronized (propertyLock) {
+                Object previous = accessor.isReadable() ? accessor.read(this) : null;
+                accessor.write(this, value);
+                return previous;
+            }
+        }
+        if (value == null) {
+            return attributes.remove(key);
+        }
+        ContextKey<?> contextKey = ContextKey.forName(key);
+        if (contextKey != null) {
+            contextKey.cast(value);
+        }
+        return attributes.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> map) {
+        map.forEach(this::put);
+    }
+
+    /**
+     * <p>Remove the attribute with the specified key.</p>
+     *
+     * @param key Key to be removed
+     * @return The removed value
+     *
+     * @exception UnsupportedOperationException if the specified
+     *  <code>key</code> matches the name of a local property
+     */
+    @Override
+    public Object remove(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is not null");
+        }
+        checkNotProperty(key);
+        return attributes.remove(key);
+    }
+
+    /**
+     * <p>Remove all attributes.  JavaBeans properties are left
+     * unchanged.</p>
+     */
+    @Override
+    public void clear() {
+        attributes.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Set<Map.Entry<String, Object>> entrySet = this.entrySet;
+        if (entrySet == null) {
+            entrySet = new EntrySetImpl();
+            this.entrySet = entrySet;
+        }
+        return entrySet;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (int i = 0, n = metadata.size(); i < n; i++) {
+            PropertyAccessor accessor = metadata.get(i);
+            action.accept(accessor.getName(), accessor.isReadable() ? readProperty(accessor) : null);
+        }
+        attributes.forEach(action);
+    }
+
+    // --------------------------------------------------- Atomic Map Methods
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        if (metadata.containsKey(key)) {
+            synchronized (propertyLock) {
+                return Context.super.putIfAbsent(key, value);
+            }
+        }
+        return value == null ? attributes.get(key) : attributes.putIfAbsent(key, checkType(key, value));
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        checkNotProperty(key);
+        return attributes.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        if (metadata.containsKey(key)) {
+            synchronized (propertyLock) {
+                return Context.super.replace(key, oldValue, newValue);
+            }
+        }
+        if (newValue == null) {
+            return attributes.remove(key, oldValue);
+        }
+        return attributes.replace(key, oldValue, checkType(key, newValue));
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        if (metadata.containsKey(key)) {
+            synchronized (propertyLock) {
+                return Context.super.replace(key, value);
+            }
+        }
+        if (value == null) {
+            return attributes.remove(key);
+        }
+        return attributes.replace(key, checkType(key, value));
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        if (metadata.containsKey(key)) {
+            synchronized (propertyLock) {
+                return Context.super.computeIfAbsent(key, mappingFunction);
+            }
+        }
+        return attributes.computeIfAbsent(key, k -> checkType(k, mappingFunction.apply(k)));
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        if (metadata.containsKey(key)) {
+            synchronized (propertyLock) {
+                return Context.super.computeIfPresent(key, remappingFunction);
+            }
+        }
+        return attributes.computeIfPresent(key, (k, v) -> checkType(k, remappingFunction.apply(k, v)));
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        if (metadata.containsKey(key)) {
+            synchronized (propertyLock) {
+                return Context.super.compute(key, remappingFunction);
+            }
+        }
+        return attributes.compute(key, (k, v) -> checkType(k, remappingFunction.apply(k, v)));
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        if (metadata.containsKey(key)) {
+            synchronized (propertyLock) {
+                return Context.super.merge(key, value, remappingFunction);
+            }
+        }
+        return attributes.merge(key, checkType(key, value),
+                (oldValue, newValue) -> checkType(key, remappingFunction.apply(oldValue, newValue)));
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        synchronized (propertyLock) {
+            for (int i = 0, n = metadata.size(); i < n; i++) {
+                PropertyAccessor accessor = metadata.get(i);
+                String name = accessor.getName();
+                accessor.write(this, function.apply(name, accessor.isReadable() ? accessor.read(this) : null));
+            }
+        }
+        attributes.replaceAll((k, v) -> {
+            Object value = function.apply(k, v);
+            if (value == null) {
+                throw new NullPointerException("Attribute '" + k + "' cannot be replaced with null");
+            }
+            return checkType(k, value);
+        });
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private Object readProperty(PropertyAccessor accessor) {
+        synchronized (propertyLock) {
+            return accessor.read(this);
+        }
+    }
+
+    private void checkNotProperty(Object key) {
+        if (metadata.containsKey(key)) {
+            throw new PropertyAccessException((String) key, PropertyAccessException.Reason.NOT_REMOVABLE, null);
+        }
+    }
+
+    private static Object checkType(String key, Object value) {
+        if (value != null) {
+            ContextKey<?> contextKey = ContextKey.forName(key);
+            if (contextKey != null) {
+                contextKey.cast(value);
+            }
+        }
+        return value;
+    }
+
+
+    // --------------------------------------------------------- Private Classes
+
+    /**
+     * <p>Entries of the properties, in slot order, followed by the entries
+     * of the attributes.</p>
+     */
+    private final class EntrySetImpl extends AbstractSet<Map.Entry<String, Object>> {
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new Iterator<Map.Entry<String, Object>>() {
+                private int property;
+                private boolean lastProperty;
+                private final Iterator<Map.Entry<String, Object>> attributeIterator =
+                        attributes.entrySet().iterator();
+
+                @Override
+                public boolean hasNext() {
+                    return property < metadata.size() || attributeIterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<String, Object> next() {
+                    lastProperty = property < metadata.size();
+                    if (lastProperty) {
+                        return new PropertyEntry(metadata.get(property++));
+                    }
+                    return attributeIterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (lastProperty) {
+                        throw new PropertyAccessException(metadata.get(property - 1).getName(),
+                                PropertyAccessException.Reason.NOT_REMOVABLE, null);
+                    }
+                    attributeIterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentContext.this.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentContext.this.clear();
+        }
+    }
+
+    /**
+     * <p><code>Map.Entry</code> reading and writing a local property.</p>
+     */
+    private final class PropertyEntry implements Map.Entry<String, Object> {
+        private final PropertyAccessor accessor;
+
+        PropertyEntry(PropertyAccessor accessor) {
+            this.accessor = accessor;
+        }
+
+        @Override
+        public String getKey() {
+            return accessor.getName();
+        }
+
+        @Override
+        public Object getValue() {
+            return accessor.isReadable() ? readProperty(accessor) : null;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return put(accessor.getName(), value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
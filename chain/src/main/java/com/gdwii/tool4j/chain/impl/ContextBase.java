@@ -2,16 +2,11 @@ package com.gdwii.tool4j.chain.impl;
 
 
 import com.gdwii.tool4j.chain.Context;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.gdwii.tool4j.chain.ContextKey;
 
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 
 /**
@@ -24,13 +19,17 @@ import java.util.stream.Collectors;
  * subclass), exposes them as key-value pairs in the <code>Map</code>,
  * with the key being the name of the property itself.</p>
  *
+ * <p>Values stored under a registered {@link ContextKey} are kept in an
+ * array indexed by the slot of the key, whether they are stored with
+ * <code>put(ContextKey, value)</code> or with <code>put(name, value)</code>,
+ * and are visible through both the typed and the <code>Map</code>
+ * methods.</p>
+ *
  * <p><strong>IMPLEMENTATION NOTE</strong> - Because <code>empty</code> is a
  * read-only property defined by the <code>Map</code> interface, it may not
  * be utilized as an attribute key or property name.</p>
  */
 public class ContextBase implements Context {
-    private static final Logger logger = LoggerFactory.getLogger(ContextBase.class);
-
 // ------------------------------------------------------------ Constructors
     /**
      * Default, no argument constructor.
@@ -62,18 +61,42 @@ public class ContextBase implements Context {
     private Map<String, Object> internalContainer = EMPTY_MAP;
 
     /**
-     * <p>The <code>PropertyDescriptor</code>s for all JavaBeans properties
-     * of this {@link Context} implementation class, keyed by property name.
-     * This collection is allocated only if there are any JavaBeans
-     * properties.</p>
+     * <p>The compiled {@link PropertyAccessor}s for all JavaBeans properties
+     * of this {@link Context} implementation class.  The metadata is
+     * shared by all instances of the same class.</p>
      */
-    private Map<String, PropertyDescriptor> propertyDescriptors = createPropertyDescriptors();
+    private final ContextMetadata metadata = ContextMetadata.of(getClass());
 
     /**
-     * <p>Zero-length array of parameter values for calling property getters.
-     * </p>
+     * <p>Values of registered {@link ContextKey}s, indexed by key slot.
+     * Allocated when the first such value is stored.</p>
+     */
+    private Object[] slots;
+
+    /**
+     * <p>Number of non-<code>null</code> elements of <code>slots</code>.</p>
+     */
+    private int slotCount;
+
+    /**
+     * <p>Live entry for each JavaBeans property, indexed by slot.  Allocated
+     * on the first iteration over <code>entrySet()</code>.</p>
+     */
+    private MapEntryImpl[] propertyEntries;
+
+    /**
+     * <p>Live entry for each key slot, allocated on demand during iteration
+     * over <code>entrySet()</code>.</p>
+     */
+    private SlotEntry[] slotEntries;
+
+    /**
+     * <p>Lazily created views returned by <code>entrySet()</code>,
+     * <code>keySet()</code> and <code>values()</code>.</p>
      */
-    private static final Object[] zeroParams = new Object[0];
+    private Set<Map.Entry<String, Object>> entrySet;
+    private Set<String> keySet;
+    private Collection<Object> values;
 
     /**
      * <p>Zero-length array of parameter values for calling property getters.
@@ -88,6 +111,25 @@ public class ContextBase implements Context {
      */
     public void clear() {
         internalContainer.clear();
+        if (slotCount > 0) {
+            Arrays.fill(slots, null);
+            slotCount = 0;
+        }
+    }
+
+
+    /**
+     * <p>Prepare this {@link Context} for reuse, for example by a
+     * {@link ContextPool}.  The default implementation removes all
+     * attributes and {@link com.gdwii.tool4j.chain.ContextKey} values but
+     * keeps the storage allocated for them.</p>
+     *
+     * <p>JavaBeans properties cannot be reset generically; subclasses that
+     * declare properties should override this method to reset them, and
+     * call <code>super.reset()</code>.</p>
+     */
+    public void reset() {
+        clear();
     }
 
 
@@ -108,16 +150,23 @@ public class ContextBase implements Context {
             return true;
         }
 
-        // Case 2 -- check the values of our readable properties
-        return propertyDescriptors.entrySet().stream()
-                .anyMatch(entry -> {
-                    PropertyDescriptor propertyDescriptor = entry.getValue();
-                    if (propertyDescriptor.getReadMethod() != null) {
-                        Object prop = readProperty(propertyDescriptor);
-                        return Objects.equals(value, prop);
-                    }
-                    return false;
-                });
+        // Case 2 -- value found in a key slot
+        if (slotCount > 0) {
+            for (Object slot : slots) {
+                if (slot != null && slot.equals(value)) {
+                    return true;
+                }
+            }
+        }
+
+        // Case 3 -- check the values of our readable properties
+        for (int i = 0, n = metadata.size(); i < n; i++) {
+            PropertyAccessor accessor = metadata.get(i);
+            if (accessor.isReadable() && Objects.equals(value, accessor.read(this))) {
+                return true;
+            }
+        }
+        return false;
     }
 
 
@@ -131,9 +180,10 @@ public class ContextBase implements Context {
      * @return Set of entries in the Context.
      */
     public Set<Map.Entry<String, Object>> entrySet() {
-        Set<Map.Entry<String, Object>> entrySet = new HashSet<>();
-        for(String key : keySet()){
-            entrySet.add(new MapEntryImpl(key, get(key)));
+        Set<Map.Entry<String, Object>> entrySet = this.entrySet;
+        if (entrySet == null) {
+            entrySet = new EntrySetImpl();
+            this.entrySet = entrySet;
         }
         return entrySet;
     }
@@ -162,23 +212,46 @@ public class ContextBase implements Context {
         }
 
         // Case 1 -- this is a local property
-        PropertyDescriptor descriptor = propertyDescriptors.get(key);
-        if (descriptor != null) {
-            if (descriptor.getReadMethod() != null) {
-                return readProperty(descriptor);
+        PropertyAccessor accessor = metadata.get(key);
+        if (accessor != null) {
+            if (accessor.isReadable()) {
+                return accessor.read(this);
             } else {
                 return null;
             }
         }
 
-        // Case 2 -- retrieve value from our underlying Map
+        // Case 2 -- this is a registered ContextKey
+        if (slots != null) {
+            ContextKey<?> contextKey = ContextKey.forName(key);
+            if (contextKey != null) {
+                return getSlot(contextKey.getIndex());
+            }
+        }
+
+        // Case 3 -- retrieve value from our underlying Map
         return internalContainer.get(key);
     }
 
 
+    /**
+     * <p>Return the value stored under the specified {@link ContextKey}
+     * by indexing its slot.</p>
+     *
+     * @param key The key of the value to be returned
+     * @param <T> Type of the value
+     * @return The value stored under <code>key</code>
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        return (T) getSlot(key.getIndex());
+    }
+
+
     @Override
     public int size() {
-        return propertyDescriptors.size() + internalContainer.size();
+        return metadata.size() + slotCount + internalContainer.size();
     }
 
     /**
@@ -190,12 +263,21 @@ public class ContextBase implements Context {
      *  <code>false</code>.
      */
     public boolean isEmpty() {
-        return propertyDescriptors.isEmpty() && internalContainer.isEmpty();
+        return metadata.size() == 0 && slotCount == 0 && internalContainer.isEmpty();
     }
 
     @Override
     public boolean containsKey(Object key) {
-        return propertyDescriptors.containsKey(key) || internalContainer.containsKey(key);
+        if (metadata.containsKey(key)) {
+            return true;
+        }
+        if (slots != null) {
+            ContextKey<?> contextKey = ContextKey.forName(key);
+            if (contextKey != null) {
+                return getSlot(contextKey.getIndex()) != null;
+            }
+        }
+        return internalContainer.containsKey(key);
     }
 
 
@@ -209,9 +291,11 @@ public class ContextBase implements Context {
      * @return The set of keys for objects in this Context.
      */
     public Set<String> keySet() {
-        Set<String> keySet = new HashSet<>();
-        keySet.addAll(propertyDescriptors.keySet());
-        keySet.addAll(internalContainer.keySet());
+        Set<String> keySet = this.keySet;
+        if (keySet == null) {
+            keySet = new KeySetImpl();
+            this.keySet = keySet;
+        }
         return keySet;
     }
 
@@ -219,7 +303,8 @@ public class ContextBase implements Context {
     /**
      * <p>Override the default <code>Map</code> behavior to set the value
      * of a local property if the specified key matches a local property name.
-     * </p>
+     * A key naming a registered {@link ContextKey} stores the value in the
+     * slot of that key, which only accepts values of its type.</p>
      *
      * @param key Key of the value to be stored or replaced
      * @param value New value to be stored
@@ -229,6 +314,9 @@ public class ContextBase implements Context {
      *  reading or wrting this local property value
      * @exception UnsupportedOperationException if this local property does not
      *  have both a read method and a write method
+     * @exception IllegalArgumentException if <code>key</code> is the name
+     *  of a registered {@link ContextKey} and <code>value</code> is not of
+     *  its type
      */
     public Object put(String key, Object value) {
         // Case 1 -- no local properties
@@ -237,21 +325,43 @@ public class ContextBase implements Context {
         }
 
         // Case 2 -- this is a local property
-        PropertyDescriptor descriptor = propertyDescriptors.get(key);
-        if (descriptor != null) {
+        PropertyAccessor accessor = metadata.get(key);
+        if (accessor != null) {
             Object previous = null;
-            if (descriptor.getReadMethod() != null) {
-                previous = readProperty(descriptor);
+            if (accessor.isReadable()) {
+                previous = accessor.read(this);
             }
-            writeProperty(descriptor, value);
+            accessor.write(this, value);
             return previous;
         }
 
-        // Case 3 -- store or replace value in our underlying map
+        // Case 3 -- this is a registered ContextKey
+        ContextKey<?> contextKey = ContextKey.size() == 0 ? null : ContextKey.forName(key);
+        if (contextKey != null) {
+            return putSlot(contextKey.getIndex(), contextKey.cast(value));
+        }
+
+        // Case 4 -- store or replace value in our underlying map
         Map<String, Object> internalContainer = ensureInternalContainer();
         return internalContainer.put(key, value);
     }
 
+
+    /**
+     * <p>Store the specified value in the slot of the specified
+     * {@link ContextKey}.  Storing <code>null</code> removes the value.</p>
+     *
+     * @param key The key of the value to be stored
+     * @param value New value to be stored
+     * @param <T> Type of the value
+     * @return The previous value stored under <code>key</code>
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T put(ContextKey<T> key, T value) {
+        return (T) putSlot(key.getIndex(), value);
+    }
+
     /**
      * <p>Override the default <code>Map</code> behavior to call the
      * <code>put()</code> method individually for each key-value pair
@@ -287,16 +397,38 @@ public class ContextBase implements Context {
         }
 
         // Case 1 -- this is a local property
-        if (propertyDescriptors.containsKey(key)) {
-                throw new UnsupportedOperationException
-                        ("Local property '" + key + "' cannot be removed");
+        if (metadata.containsKey(key)) {
+                throw new PropertyAccessException((String) key, PropertyAccessException.Reason.NOT_REMOVABLE, null);
         }
 
-        // Case 2 -- remove from underlying Map
+        // Case 2 -- this is a registered ContextKey
+        if (slots != null) {
+            ContextKey<?> contextKey = ContextKey.forName(key);
+            if (contextKey != null) {
+                return removeSlot(contextKey.getIndex());
+            }
+        }
+
+        // Case 3 -- remove from underlying Map
         return internalContainer.remove(key);
     }
 
 
+    /**
+     * <p>Remove the value stored in the slot of the specified
+     * {@link ContextKey}.</p>
+     *
+     * @param key The key of the value to be removed
+     * @param <T> Type of the value
+     * @return The removed value
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T remove(ContextKey<T> key) {
+        return (T) removeSlot(key.getIndex());
+    }
+
+
     /**
      * <p>Override the default <code>Map</code> behavior to return a
      * <code>Collection</code> that meets the specified default behavior except
@@ -307,7 +439,118 @@ public class ContextBase implements Context {
      * @return The collection of values in this Context.
      */
     public Collection<Object> values() {
-        throw new UnsupportedOperationException("values unsupported");
+        Collection<Object> values = this.values;
+        if (values == null) {
+            values = new ValuesImpl();
+            this.values = values;
+        }
+        return values;
+    }
+
+
+    /**
+     * <p>Override the default <code>Map</code> behavior to visit the local
+     * properties and the underlying <code>Map</code> directly, without
+     * creating entries.</p>
+     *
+     * @param action The action to be performed for each entry
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (int i = 0, n = metadata.size(); i < n; i++) {
+            PropertyAccessor accessor = metadata.get(i);
+            action.accept(accessor.getName(), accessor.isReadable() ? accessor.read(this) : null);
+        }
+        if (slotCount > 0) {
+            Object[] slots = this.slots;
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] != null) {
+                    action.accept(ContextKey.forIndex(i).getName(), slots[i]);
+                }
+            }
+        }
+        internalContainer.forEach(action);
+    }
+
+
+    /**
+     * <p>Override the default <code>Map</code> behavior to look the key up
+     * only once.  A local property is always present, so its value is
+     * returned even if it is <code>null</code>.</p>
+     *
+     * @param key Key of the value to be returned
+     * @param defaultValue Value returned if the key is not present
+     * @return The value for the specified key, or <code>defaultValue</code>
+     */
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if (metadata.containsKey(key)) {
+            return get(key);
+        }
+        if (slots != null) {
+            ContextKey<?> contextKey = ContextKey.forName(key);
+            if (contextKey != null) {
+                Object value = getSlot(contextKey.getIndex());
+                return value != null ? value : defaultValue;
+            }
+        }
+        return internalContainer.getOrDefault(key, defaultValue);
+    }
+
+
+    /**
+     * <p>Override the default <code>Map</code> behavior to compute a missing
+     * value with a single lookup of the underlying <code>Map</code>, and to
+     * write absent (<code>null</code>) local properties through their
+     * setter.</p>
+     *
+     * @param key Key of the value to be computed
+     * @param mappingFunction Function computing the missing value
+     * @return The current (existing or computed) value for the key,
+     *  or <code>null</code> if the computed value is <code>null</code>
+     *
+     * @exception UnsupportedOperationException if a computed local property
+     *  does not have a write method
+     */
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is not null");
+        }
+
+        // Case 1 -- this is a local property
+        PropertyAccessor accessor = metadata.get(key);
+        if (accessor != null) {
+            Object value = accessor.isReadable() ? accessor.read(this) : null;
+            if (value == null) {
+                value = mappingFunction.apply(key);
+                if (value != null) {
+                    accessor.write(this, value);
+                }
+            }
+            return value;
+        }
+
+        // Case 2 -- this is a registered ContextKey
+        ContextKey<?> contextKey = ContextKey.size() == 0 ? null : ContextKey.forName(key);
+        if (contextKey != null) {
+            Object value = getSlot(contextKey.getIndex());
+            if (value == null) {
+                value = contextKey.cast(mappingFunction.apply(key));
+                putSlot(contextKey.getIndex(), value);
+            }
+            return value;
+        }
+
+        // Case 3 -- avoid allocating the underlying Map for a null value
+        if (internalContainer == EMPTY_MAP) {
+            Object value = mappingFunction.apply(key);
+            if (value != null) {
+                ensureInternalContainer().put(key, value);
+            }
+            return value;
+        }
+        return internalContainer.computeIfAbsent(key, mappingFunction);
     }
 
 
@@ -322,100 +565,305 @@ public class ContextBase implements Context {
         return internalContainer;
     }
 
-    private Map<String, PropertyDescriptor> createPropertyDescriptors() {
-        if(ContextBase.class.equals(getClass())){
-            return Collections.emptyMap();
+    private Object getSlot(int index) {
+        Object[] slots = this.slots;
+        if (slots == null || index >= slots.length) {
+            return null;
+        }
+        return slots[index];
+    }
+
+    private Object putSlot(int index, Object value) {
+        if (value == null) {
+            return removeSlot(index);
+        }
+        Object[] slots = this.slots;
+        if (slots == null || index >= slots.length) {
+            // Size for every key registered so far to avoid repeated growth
+            Object[] results = new Object[Math.max(ContextKey.size(), index + 1)];
+            if (slots != null) {
+                System.arraycopy(slots, 0, results, 0, slots.length);
+            }
+            slots = results;
+            this.slots = slots;
+        }
+        Object previous = slots[index];
+        slots[index] = value;
+        if (previous == null) {
+            slotCount++;
+        }
+        return previous;
+    }
+
+    private Object removeSlot(int index) {
+        Object[] slots = this.slots;
+        if (slots == null || index >= slots.length) {
+            return null;
+        }
+        Object previous = slots[index];
+        if (previous != null) {
+            slots[index] = null;
+            slotCount--;
+        }
+        return previous;
+    }
+
+    private SlotEntry slotEntry(int index) {
+        SlotEntry[] slotEntries = this.slotEntries;
+        if (slotEntries == null || index >= slotEntries.length) {
+            SlotEntry[] results = new SlotEntry[slots.length];
+            if (slotEntries != null) {
+                System.arraycopy(slotEntries, 0, results, 0, slotEntries.length);
+            }
+            slotEntries = results;
+            this.slotEntries = slotEntries;
+        }
+        SlotEntry entry = slotEntries[index];
+        if (entry == null) {
+            entry = new SlotEntry(ContextKey.forIndex(index));
+            slotEntries[index] = entry;
+        }
+        return entry;
+    }
+
+    private MapEntryImpl propertyEntry(int index) {
+        MapEntryImpl[] propertyEntries = this.propertyEntries;
+        if (propertyEntries == null) {
+            propertyEntries = new MapEntryImpl[metadata.size()];
+            for (int i = 0; i < propertyEntries.length; i++) {
+                propertyEntries[i] = new MapEntryImpl(metadata.get(i));
+            }
+            this.propertyEntries = propertyEntries;
+        }
+        return propertyEntries[index];
+    }
+
+    // --------------------------------------------------------- Private Classes
+    /**
+     * <p>Base iterator over the local properties (in slot order), then the
+     * non-empty key slots, then the entries of the underlying
+     * <code>Map</code>.  Removal is not supported for local properties.</p>
+     */
+    private abstract class ContextIterator<E> implements Iterator<E> {
+        private static final int NONE = 0;
+        private static final int PROPERTY = 1;
+        private static final int SLOT = 2;
+        private static final int ATTRIBUTE = 3;
+
+        private int index;
+        private int slot;
+        private Iterator<Map.Entry<String, Object>> attributes;
+        private int last = NONE;
+
+        public boolean hasNext() {
+            if (index < metadata.size()) {
+                return true;
+            }
+            if (nextSlot() >= 0) {
+                return true;
+            }
+            return attributes().hasNext();
+        }
+
+        public E next() {
+            if (index < metadata.size()) {
+                last = PROPERTY;
+                return property(index++);
+            }
+            int next = nextSlot();
+            if (next >= 0) {
+                last = SLOT;
+                slot = next + 1;
+                return slot(next);
+            }
+            Map.Entry<String, Object> entry = attributes().next();
+            last = ATTRIBUTE;
+            return attribute(entry);
+        }
+
+        public void remove() {
+            switch (last) {
+                case PROPERTY:
+                    throw new PropertyAccessException(metadata.get(index - 1).getName(),
+                            PropertyAccessException.Reason.NOT_REMOVABLE, null);
+                case SLOT:
+                    removeSlot(slot - 1);
+                    break;
+                case ATTRIBUTE:
+                    attributes.remove();
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+            last = NONE;
+        }
+
+        private int nextSlot() {
+            Object[] slots = ContextBase.this.slots;
+            if (slots == null) {
+                return -1;
+            }
+            int next = slot;
+            while (next < slots.length && slots[next] == null) {
+                next++;
+            }
+            return next < slots.length ? next : -1;
+        }
+
+        private Iterator<Map.Entry<String, Object>> attributes() {
+            Iterator<Map.Entry<String, Object>> attributes = this.attributes;
+            if (attributes == null) {
+                attributes = internalContainer.entrySet().iterator();
+                this.attributes = attributes;
+            }
+            return attributes;
+        }
+
+        abstract E property(int index);
+
+        abstract E slot(int index);
+
+        abstract E attribute(Map.Entry<String, Object> entry);
+    }
+
+    private final class EntryIterator extends ContextIterator<Map.Entry<String, Object>> {
+        Map.Entry<String, Object> property(int index) {
+            return propertyEntry(index);
+        }
+
+        Map.Entry<String, Object> slot(int index) {
+            return slotEntry(index);
+        }
+
+        Map.Entry<String, Object> attribute(Map.Entry<String, Object> entry) {
+            return entry;
+        }
+    }
+
+    private final class KeyIterator extends ContextIterator<String> {
+        String property(int index) {
+            return metadata.get(index).getName();
         }
 
-        // Retrieve the set of property descriptors for this Context class
-        try {
-            PropertyDescriptor[] pds = Introspector.getBeanInfo
-                    (getClass()).getPropertyDescriptors(); // 由于内部有缓存,性能有一定的保证
-            return Arrays.stream(pds)
-                    .filter(pd -> {
-                        String name = pd.getName();
-                        return !("class".equals(name) || "empty".equals(name));
-                    }) // Add descriptor (ignoring getClass() and isEmpty())
-                    .collect(Collectors.toMap(PropertyDescriptor::getName, Function.identity()));
-        } catch (IntrospectionException e) {
-            logger.warn("class:{} could not introspect", getClass(), e);
-            return Collections.emptyMap();
+        String slot(int index) {
+            return ContextKey.forIndex(index).getName();
+        }
+
+        String attribute(Map.Entry<String, Object> entry) {
+            return entry.getKey();
         }
     }
 
+    private final class ValuesIterator extends ContextIterator<Object> {
+        Object property(int index) {
+            PropertyAccessor accessor = metadata.get(index);
+            return accessor.isReadable() ? accessor.read(ContextBase.this) : null;
+        }
+
+        Object slot(int index) {
+            return slots[index];
+        }
+
+        Object attribute(Map.Entry<String, Object> entry) {
+            return entry.getValue();
+        }
+    }
 
     /**
-     * <p>Get and return the value for the specified property.</p>
-     *
-     * @param descriptor <code>PropertyDescriptor</code> for the
-     *  specified property
-     *
-     * @exception IllegalArgumentException if an exception is thrown
-     *  reading this local property value
-     * @exception UnsupportedOperationException if this local property does not
-     *  have a read method.
+     * <p>Live view of the entries of this {@link Context}.</p>
      */
-    private Object readProperty(PropertyDescriptor descriptor) {
+    private final class EntrySetImpl extends AbstractSet<Map.Entry<String, Object>> {
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
 
-        try {
-            Method method = descriptor.getReadMethod();
-            if (method == null) {
-                throw new UnsupportedOperationException
-                        ("Property '" + descriptor.getName()
-                                + "' is not readable");
+        public int size() {
+            return ContextBase.this.size();
+        }
+
+        public boolean contains(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
             }
-            return (method.invoke(this, zeroParams));
-        } catch (Exception e) {
-            throw new UnsupportedOperationException
-                    ("Exception reading property '" + descriptor.getName()
-                            + "': " + e.getMessage());
+            Map.Entry entry = (Map.Entry) obj;
+            Object key = entry.getKey();
+            return containsKey(key) && Objects.equals(entry.getValue(), get(key));
         }
 
+        public boolean remove(Object obj) {
+            if (!contains(obj)) {
+                return false;
+            }
+            ContextBase.this.remove(((Map.Entry) obj).getKey());
+            return true;
+        }
+
+        public void clear() {
+            ContextBase.this.clear();
+        }
     }
 
     /**
-     * <p>Set the value for the specified property.</p>
-     *
-     * @param descriptor <code>PropertyDescriptor</code> for the
-     *  specified property
-     * @param value The new value for this property (must be of the
-     *  correct type)
-     *
-     * @exception IllegalArgumentException if an exception is thrown
-     *  writing this local property value
-     * @exception UnsupportedOperationException if this local property does not
-     *  have a write method.
+     * <p>Live view of the keys of this {@link Context}.</p>
      */
-    private void writeProperty(PropertyDescriptor descriptor, Object value) {
+    private final class KeySetImpl extends AbstractSet<String> {
+        public Iterator<String> iterator() {
+            return new KeyIterator();
+        }
+
+        public int size() {
+            return ContextBase.this.size();
+        }
 
-        try {
-            Method method = descriptor.getWriteMethod();
-            if (method == null) {
-                throw new UnsupportedOperationException
-                        ("Property '" + descriptor.getName()
-                                + "' is not writeable");
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+
+        public boolean remove(Object key) {
+            if (!containsKey(key)) {
+                return false;
             }
-            method.invoke(this, value);
-        } catch (Exception e) {
-            throw new UnsupportedOperationException
-                    ("Exception writing property '" + descriptor.getName()
-                            + "': " + e.getMessage());
+            ContextBase.this.remove(key);
+            return true;
+        }
+
+        public void clear() {
+            ContextBase.this.clear();
         }
     }
 
-    // --------------------------------------------------------- Private Classes
     /**
-     * <p>Private implementation of <code>Map.Entry</code> for each item in
-     * <code>EntrySetImpl</code>.</p>
+     * <p>Live view of the values of this {@link Context}.</p>
+     */
+    private final class ValuesImpl extends AbstractCollection<Object> {
+        public Iterator<Object> iterator() {
+            return new ValuesIterator();
+        }
+
+        public int size() {
+            return ContextBase.this.size();
+        }
+
+        public boolean contains(Object value) {
+            return containsValue(value);
+        }
+
+        public void clear() {
+            ContextBase.this.clear();
+        }
+    }
+
+    /**
+     * <p>Private implementation of <code>Map.Entry</code> for each local
+     * property in <code>EntrySetImpl</code>.  The value is read from and
+     * written to the property itself.</p>
      */
     private class MapEntryImpl implements Map.Entry<String, Object> {
-        MapEntryImpl(String key, Object value) {
-            this.key = key;
-            this.value = value;
+        MapEntryImpl(PropertyAccessor accessor) {
+            this.accessor = accessor;
         }
 
-        private String key;
-        private Object value;
+        private final PropertyAccessor accessor;
 
         public boolean equals(Object obj) {
             if (obj == null) {
@@ -424,38 +872,67 @@ public class ContextBase implements Context {
                 return (false);
             }
             Map.Entry entry = (Map.Entry) obj;
-            if (key == null) {
-                return (entry.getKey() == null);
-            }
-            if (key.equals(entry.getKey())) {
-                if (value == null) {
-                    return (entry.getValue() == null);
-                } else {
-                    return (value.equals(entry.getValue()));
-                }
-            } else {
+            return getKey().equals(entry.getKey())
+                    && Objects.equals(getValue(), entry.getValue());
+        }
+
+        public String getKey() {
+            return accessor.getName();
+        }
+
+        public Object getValue() {
+            return accessor.isReadable() ? accessor.read(ContextBase.this) : null;
+        }
+
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ ((value == null) ? 0 : value.hashCode());
+        }
+
+        public Object setValue(Object value) {
+            return ContextBase.this.put(getKey(), value);
+        }
+
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * <p>Private implementation of <code>Map.Entry</code> for each non-empty
+     * key slot in <code>EntrySetImpl</code>.</p>
+     */
+    private class SlotEntry implements Map.Entry<String, Object> {
+        SlotEntry(ContextKey<?> key) {
+            this.key = key;
+        }
+
+        private final ContextKey<?> key;
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
                 return (false);
             }
+            Map.Entry entry = (Map.Entry) obj;
+            return getKey().equals(entry.getKey())
+                    && Objects.equals(getValue(), entry.getValue());
         }
 
         public String getKey() {
-            return this.key;
+            return key.getName();
         }
 
         public Object getValue() {
-            return this.value;
+            return getSlot(key.getIndex());
         }
 
         public int hashCode() {
-            return (((key == null) ? 0 : key.hashCode())
-                    ^ ((value == null) ? 0 : value.hashCode()));
+            Object value = getValue();
+            return getKey().hashCode() ^ ((value == null) ? 0 : value.hashCode());
         }
 
         public Object setValue(Object value) {
-            Object previous = this.value;
-            ContextBase.this.put(this.key, value);
-            this.value = value;
-            return previous;
+            return putSlot(key.getIndex(), key.cast(value));
         }
 
         public String toString() {
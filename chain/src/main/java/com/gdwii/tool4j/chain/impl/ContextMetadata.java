@@ -0,0 +1,140 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.*;
+
+
+/**
+ * <p>Immutable description of the JavaBeans properties of a
+ * {@link com.gdwii.tool4j.chain.Context} implementation class.</p>
+ *
+ * <p>One instance is computed per class, on first use, and shared by every
+ * context of that class; constructing a context therefore costs a single
+ * <code>ClassValue</code> lookup.  Each property is assigned a dense index
+ * (its <em>slot</em>) in ascending name order, so that callers can walk the
+ * properties of a context without iterating a map.</p>
+ */
+final class ContextMetadata {
+    private static final Logger logger = LoggerFactory.getLogger(ContextMetadata.class);
+
+    /**
+     * <p>Metadata of a class without JavaBeans properties.</p>
+     */
+    static final ContextMetadata EMPTY = new ContextMetadata(new PropertyAccessor[0]);
+
+    private static final ClassValue<ContextMetadata> METADATA = new ClassValue<ContextMetadata>() {
+        @Override
+        protected ContextMetadata computeValue(Class<?> type) {
+            return introspect(type);
+        }
+    };
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>Property accessors, indexed by slot.</p>
+     */
+    private final PropertyAccessor[] accessors;
+
+    /**
+     * <p>Property accessors, keyed by property name.</p>
+     */
+    private final Map<String, PropertyAccessor> accessorsByName;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    private ContextMetadata(PropertyAccessor[] accessors) {
+        this.accessors = accessors;
+        if (accessors.length == 0) {
+            this.accessorsByName = Collections.emptyMap();
+        } else {
+            Map<String, PropertyAccessor> accessorsByName = new HashMap<>(accessors.length * 2);
+            for (PropertyAccessor accessor : accessors) {
+                accessorsByName.put(accessor.getName(), accessor);
+            }
+            this.accessorsByName = accessorsByName;
+        }
+    }
+
+    /**
+     * <p>Return the metadata of the specified context class.</p>
+     *
+     * @param type {@link com.gdwii.tool4j.chain.Context} implementation class
+     * @return The shared metadata of <code>type</code>
+     */
+    static ContextMetadata of(Class<?> type) {
+        if (ContextBase.class == type) {
+            return EMPTY;
+        }
+        return METADATA.get(type);
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return The number of JavaBeans properties
+     */
+    int size() {
+        return accessors.length;
+    }
+
+    /**
+     * <p>Return the accessor of the property with the specified name, if any;
+     * otherwise, return <code>null</code>.</p>
+     *
+     * @param name Property name
+     * @return The accessor of the named property
+     */
+    PropertyAccessor get(Object name) {
+        return accessorsByName.get(name);
+    }
+
+    /**
+     * <p>Return the accessor assigned to the specified slot.</p>
+     *
+     * @param index Slot of the property, in <code>[0, size())</code>
+     * @return The accessor of the property
+     */
+    PropertyAccessor get(int index) {
+        return accessors[index];
+    }
+
+    boolean containsKey(Object name) {
+        return accessorsByName.containsKey(name);
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+    private static ContextMetadata introspect(Class<?> type) {
+        // Retrieve the set of property descriptors for this Context class
+        PropertyDescriptor[] pds;
+        try {
+            pds = Introspector.getBeanInfo(type).getPropertyDescriptors();
+        } catch (IntrospectionException e) {
+            logger.warn("class:{} could not introspect", type, e);
+            return EMPTY;
+        }
+
+        // Add descriptor (ignoring getClass() and isEmpty())
+        List<PropertyAccessor> accessors = new ArrayList<>(pds.length);
+        for (PropertyDescriptor pd : pds) {
+            String name = pd.getName();
+            if (!("class".equals(name) || "empty".equals(name))) {
+                accessors.add(PropertyAccessor.of(pd, accessors.size()));
+            }
+        }
+        if (accessors.isEmpty()) {
+            return EMPTY;
+        }
+        return new ContextMetadata(accessors.toArray(new PropertyAccessor[0]));
+    }
+}
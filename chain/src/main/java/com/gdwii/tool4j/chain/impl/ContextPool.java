@@ -0,0 +1,218 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.Command;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+
+/**
+ * <p>Opt-in pool of reusable {@link ContextBase} instances, for callers
+ * that execute {@link com.gdwii.tool4j.chain.Chain}s at a rate where
+ * allocating a new context (and its attribute map) per call shows up in
+ * GC activity.</p>
+ *
+ * <p>Each thread keeps its own stack of idle contexts, so that
+ * <code>acquire()</code> and <code>release()</code> are uncontended.  A
+ * released context is {@link ContextBase#reset() reset} before it is
+ * handed out again.  Contexts must not be used after they have been
+ * released, and must not escape the execution they were acquired for.</p>
+ *
+ * <p>In debug mode (constructor flag, or the system property
+ * <code>tool4j.chain.contextPool.debug=true</code>) the pool records where
+ * each context was acquired, reports contexts that were garbage collected
+ * without being released, and rejects contexts that are released twice.
+ * Debug mode is considerably slower and is meant for tests.</p>
+ *
+ * <p>This implementation is thread-safe.</p>
+ *
+ * @param <C> Type of the pooled contexts
+ */
+public class ContextPool<C extends ContextBase> {
+    private static final Logger logger = LoggerFactory.getLogger(ContextPool.class);
+
+    /**
+     * <p>System property enabling debug mode for pools created without an
+     * explicit flag.</p>
+     */
+    public static final String DEBUG_PROPERTY = "tool4j.chain.contextPool.debug";
+
+    /**
+     * <p>Default number of idle contexts kept per thread.</p>
+     */
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final Supplier<? extends C> factory;
+
+    private final int maxIdle;
+
+    private final boolean debug;
+
+    private final ThreadLocal<ArrayDeque<C>> idle = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * <p>Contexts handed out and not yet released (debug mode only).</p>
+     */
+    private final Set<LeakTracker<C>> outstanding;
+
+    private final ReferenceQueue<C> leaked;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * <p>Create a pool keeping at most {@link #DEFAULT_MAX_IDLE} idle
+     * contexts per thread.</p>
+     *
+     * @param factory Creates new contexts when no idle one is available
+     */
+    public ContextPool(Supplier<? extends C> factory) {
+        this(factory, DEFAULT_MAX_IDLE, Boolean.getBoolean(DEBUG_PROPERTY));
+    }
+
+    /**
+     * @param factory Creates new contexts when no idle one is available
+     * @param maxIdle Maximum number of idle contexts kept per thread
+     * @param debug <code>true</code> to enable leak detection
+     *
+     * @exception IllegalArgumentException if <code>factory</code> is
+     *  <code>null</code> or <code>maxIdle</code> is negative
+     */
+    public ContextPool(Supplier<? extends C> factory, int maxIdle, boolean debug) {
+        if (factory == null || maxIdle < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+        this.debug = debug;
+        this.outstanding = debug ? ConcurrentHashMap.newKeySet() : null;
+        this.leaked = debug ? new ReferenceQueue<>() : null;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * <p>Return an idle context of the current thread, or a new one if
+     * there is none.</p>
+     *
+     * @return A context without attributes
+     */
+    public C acquire() {
+        C context = idle.get().pollFirst();
+        if (context == null) {
+            context = factory.get();
+        }
+        if (debug) {
+            reportLeaks();
+            outstanding.add(new LeakTracker<>(context, leaked));
+        }
+        return context;
+    }
+
+    /**
+     * <p>Reset the specified context and keep it for reuse by the current
+     * thread.  Contexts beyond the idle limit are left to the garbage
+     * collector.</p>
+     *
+     * @param context Context previously returned by <code>acquire()</code>
+     *
+     * @exception IllegalStateException in debug mode, if the context was
+     *  not acquired from this pool or was already released
+     */
+    public void release(C context) {
+        if (context == null) {
+            return;
+        }
+        if (debug && !untrack(context)) {
+            throw new IllegalStateException("Context " + context.getClass().getName()
+                    + "@" + Integer.toHexString(System.identityHashCode(context))
+                    + " was not acquired from this pool or was already released");
+        }
+        context.reset();
+        ArrayDeque<C> contexts = idle.get();
+        if (contexts.size() < maxIdle) {
+            contexts.offerFirst(context);
+        }
+    }
+
+    /**
+     * <p>Execute the specified command with a pooled context, and reclaim
+     * the context afterwards, whatever the outcome.  Results the caller
+     * needs must be copied out of the context by the command (or use
+     * <code>acquire()</code> and <code>release()</code> directly).</p>
+     *
+     * @param command {@link Command} or {@link com.gdwii.tool4j.chain.Chain}
+     *  to be executed
+     * @param initializer Populates the context before execution
+     * @return The result of <code>command.execute()</code>
+     *
+     * @exception Exception if thrown by the command
+     */
+    public boolean execute(Command command, Consumer<? super C> initializer) throws Exception {
+        C context = acquire();
+        try {
+            initializer.accept(context);
+            return command.execute(context);
+        } finally {
+            release(context);
+        }
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+    private boolean untrack(C context) {
+        for (LeakTracker<C> tracker : outstanding) {
+            if (tracker.get() == context) {
+                tracker.clear();
+                return outstanding.remove(tracker);
+            }
+        }
+        return false;
+    }
+
+    private void reportLeaks() {
+        Reference<? extends C> reference;
+        while ((reference = leaked.poll()) != null) {
+            LeakTracker<?> tracker = (LeakTracker<?>) reference;
+            if (outstanding.remove(tracker)) {
+                logger.warn("{} was garbage collected without being released to the ContextPool",
+                        tracker.type.getName(), tracker.site);
+            }
+        }
+    }
+
+
+    // --------------------------------------------------------- Private Classes
+
+    /**
+     * <p>Weak reference to an outstanding context, remembering where it was
+     * acquired.</p>
+     */
+    private static final class LeakTracker<C> extends WeakReference<C> {
+        private final Class<?> type;
+        private final Throwable site;
+
+        LeakTracker(C context, ReferenceQueue<? super C> queue) {
+            super(context, queue);
+            this.type = context.getClass();
+            this.site = new Throwable("Context acquired here");
+        }
+    }
+}
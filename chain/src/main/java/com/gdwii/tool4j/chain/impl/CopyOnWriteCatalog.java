@@ -0,0 +1,103 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.Catalog;
+import com.gdwii.tool4j.chain.Command;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ * <p>{@link Catalog} for read-mostly dispatch that still allows rare hot
+ * reloads.  Lookups read an {@link ImmutableCatalog} snapshot without
+ * locking; <code>addCommand()</code> and <code>replaceAll()</code> build a
+ * new snapshot and publish it, so readers never block and never see a
+ * partially updated catalog.</p>
+ *
+ * <p>Each update copies the whole catalog, which makes it unsuitable for
+ * catalogs modified frequently; use {@link CatalogBase} for those.</p>
+ *
+ * <p>This implementation is thread-safe.</p>
+ */
+public class CopyOnWriteCatalog implements Catalog {
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>Current snapshot of the commands.</p>
+     */
+    private volatile ImmutableCatalog snapshot;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create an empty catalog.
+     */
+    public CopyOnWriteCatalog() {
+        this.snapshot = new ImmutableCatalog(Collections.<String, Command>emptyMap());
+    }
+
+    /**
+     * <p>Create a catalog whose commands are those of the specified
+     * catalog.</p>
+     *
+     * @param catalog The {@link Catalog} to be copied
+     */
+    public CopyOnWriteCatalog(Catalog catalog) {
+        this.snapshot = ImmutableCatalog.copyOf(catalog);
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * <p>Add a new name and associated {@link Command}, replacing any
+     * previous command for that name, by publishing a new snapshot.</p>
+     *
+     * @param name Name of the new command
+     * @param command {@link Command} to be returned
+     *  for later lookups on this name
+     */
+    @Override
+    public synchronized void addCommand(String name, Command command) {
+        Map<String, Command> commands = snapshot.toMap();
+        commands.put(name, command);
+        snapshot = new ImmutableCatalog(commands);
+    }
+
+    /**
+     * <p>Replace all commands of this catalog at once.</p>
+     *
+     * @param commands Map of the new {@link Command}s, keyed by name
+     */
+    public synchronized void replaceAll(Map<String, ? extends Command> commands) {
+        snapshot = new ImmutableCatalog(commands);
+    }
+
+    @Override
+    public Command getCommand(String name) {
+        return snapshot.getCommand(name);
+    }
+
+    @Override
+    public Iterator<String> getNames() {
+        return snapshot.getNames();
+    }
+
+    /**
+     * @return The current, immutable snapshot of this catalog
+     */
+    public ImmutableCatalog getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Converts this Catalog to a String.  Useful for debugging purposes.
+     * @return a representation of this catalog as a String
+     */
+    public String toString() {
+        return snapshot.toString();
+    }
+}
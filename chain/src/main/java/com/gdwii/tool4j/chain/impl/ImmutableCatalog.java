@@ -0,0 +1,330 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.Catalog;
+import com.gdwii.tool4j.chain.Command;
+
+import java.util.*;
+
+
+/**
+ * <p>Frozen {@link Catalog}, for catalogs that are built at startup and
+ * only read afterwards.</p>
+ *
+ * <p>Command names are indexed by a perfect hash built with the
+ * <em>hash and displace</em> method: each name falls into a small bucket,
+ * and each bucket has a multiplier, chosen at build time, that sends its
+ * names to distinct free slots.  A lookup therefore takes two
+ * multiplications of the cached hash code of the name, reads one
+ * multiplier and one slot, and compares one name; it never probes.  Names
+ * and commands are interleaved in a single array, with no entry objects.
+ * In the unlikely case where two names have the same hash code, the
+ * catalog falls back to a binary search of the sorted names.</p>
+ *
+ * <p><code>addCommand()</code> throws
+ * <code>UnsupportedOperationException</code>; use a
+ * {@link CopyOnWriteCatalog} to replace commands at runtime.</p>
+ *
+ * <p>This implementation is thread-safe.</p>
+ */
+public class ImmutableCatalog implements Catalog {
+    /**
+     * <p>Number of multipliers tried for a bucket before the table is
+     * enlarged.</p>
+     */
+    private static final int MAX_ATTEMPTS = 1 << 12;
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>Command names, sorted.</p>
+     */
+    private final String[] names;
+
+    /**
+     * <p>{@link Command}s in the order of <code>names</code>.</p>
+     */
+    private final Command[] commands;
+
+    /**
+     * <p>Odd multiplier of each bucket, or <code>null</code> if the names
+     * are looked up by binary search.</p>
+     */
+    private final int[] multipliers;
+
+    /**
+     * <p>Name and {@link Command} of each slot, at indices
+     * <code>2 * slot</code> and <code>2 * slot + 1</code>.</p>
+     */
+    private final Object[] table;
+
+    private final int bucketShift;
+
+    private final int slotShift;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * <p>Create a catalog of the specified commands.</p>
+     *
+     * @param commands Map of {@link Command}s, keyed by name
+     *
+     * @exception IllegalArgumentException if a name or a {@link Command}
+     *  is <code>null</code>
+     */
+    public ImmutableCatalog(Map<String, ? extends Command> commands) {
+        String[] names = commands.keySet().toArray(new String[0]);
+        for (String name : names) {
+            if (name == null || commands.get(name) == null) {
+                throw new IllegalArgumentException("Command '" + name + "' is null");
+            }
+        }
+        Arrays.sort(names);
+        int n = names.length;
+        this.names = names;
+        this.commands = new Command[n];
+        for (int i = 0; i < n; i++) {
+            this.commands[i] = commands.get(names[i]);
+        }
+
+        // At least two buckets and two slots, so that the shifts are < 32
+        int bucketBits = bits(Math.max(2, n / 4));
+        int slotBits = bits(Math.max(2, n + n / 4 + 1));
+        int[] multipliers = null;
+        String[] keys = null;
+        if (hasDistinctHashCodes(names)) {
+            for (int maxSlotBits = slotBits + 3; slotBits <= maxSlotBits; slotBits++) {
+                multipliers = new int[1 << bucketBits];
+                keys = new String[1 << slotBits];
+                if (place(names, multipliers, keys, 32 - bucketBits, 32 - slotBits)) {
+                    break;
+                }
+                keys = null;
+            }
+        }
+
+        this.bucketShift = 32 - bucketBits;
+        this.slotShift = 32 - slotBits;
+        if (keys == null) {
+            // No perfect hash (names with equal hash codes cannot be
+            // separated): fall back to a binary search of the sorted names
+            this.multipliers = null;
+            this.table = null;
+        } else {
+            this.multipliers = multipliers;
+            this.table = new Object[keys.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    table[2 * i] = keys[i];
+                    table[2 * i + 1] = commands.get(keys[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Create a frozen copy of the specified catalog.</p>
+     *
+     * @param catalog The {@link Catalog} to be copied
+     * @return A catalog with the same commands
+     */
+    public static ImmutableCatalog copyOf(Catalog catalog) {
+        if (catalog instanceof ImmutableCatalog) {
+            return (ImmutableCatalog) catalog;
+        }
+        Map<String, Command> commands = new HashMap<>();
+        for (Iterator<String> names = catalog.getNames(); names.hasNext(); ) {
+            String name = names.next();
+            Command command = catalog.getCommand(name);
+            if (command != null) {
+                commands.put(name, command);
+            }
+        }
+        return new ImmutableCatalog(commands);
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * <p>Not supported: this catalog is immutable.</p>
+     *
+     * @param name Name of the new command
+     * @param command {@link Command} to be returned
+     *  for later lookups on this name
+     *
+     * @exception UnsupportedOperationException always
+     */
+    @Override
+    public void addCommand(String name, Command command) {
+        throw new UnsupportedOperationException("ImmutableCatalog cannot be modified");
+    }
+
+    /**
+     * <p>Return the {@link Command} associated with the
+     * specified name, if any; otherwise, return <code>null</code>.</p>
+     *
+     * @param name Name for which a {@link Command}
+     *  should be retrieved
+     * @return The Command associated with the specified name.
+     */
+    @Override
+    public Command getCommand(String name) {
+        if (name == null) {
+            return null;
+        }
+        int[] multipliers = this.multipliers;
+        if (multipliers == null) {
+            int index = Arrays.binarySearch(names, name);
+            return index < 0 ? null : commands[index];
+        }
+        int hash = mix(name.hashCode());
+        int index = ((hash * multipliers[hash >>> bucketShift]) >>> slotShift) << 1;
+        Object key = table[index];
+        return (key == name || name.equals(key)) ? (Command) table[index + 1] : null;
+    }
+
+    /**
+     * <p>Return an <code>Iterator</code> over the names of the commands of
+     * this catalog, in ascending order.</p>
+     *
+     * @return An iterator of the names in this Catalog.
+     */
+    @Override
+    public Iterator<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names)).iterator();
+    }
+
+    /**
+     * @return The number of commands in this catalog
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * <p>Return the commands of this catalog as a new, mutable map.</p>
+     *
+     * @return Map of the {@link Command}s, keyed by name
+     */
+    public Map<String, Command> toMap() {
+        Map<String, Command> map = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], commands[i]);
+        }
+        return map;
+    }
+
+    /**
+     * Converts this Catalog to a String.  Useful for debugging purposes.
+     * @return a representation of this catalog as a String
+     */
+    public String toString() {
+        return "[" + getClass().getName() + ": " + String.join(", ", names) + "]";
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * <p>Place the names, in buckets of decreasing size, at distinct
+     * slots.</p>
+     *
+     * @return <code>false</code> if a bucket could not be placed
+     */
+    private static boolean place(String[] names, int[] multipliers, String[] keys,
+                                 int bucketShift, int slotShift) {
+        int buckets = multipliers.length;
+        List<List<String>> members = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++) {
+            members.add(new ArrayList<>(4));
+        }
+        for (String name : names) {
+            members.get(mix(name.hashCode()) >>> bucketShift).add(name);
+        }
+        Integer[] order = new Integer[buckets];
+        for (int b = 0; b < buckets; b++) {
+            order[b] = b;
+        }
+        Arrays.sort(order, (a, b) -> members.get(b).size() - members.get(a).size());
+
+        int[] candidate = new int[4];
+        for (int b : order) {
+            List<String> bucket = members.get(b);
+            int size = bucket.size();
+            if (size == 0) {
+                break;
+            }
+            if (candidate.length < size) {
+                candidate = new int[size];
+            }
+            boolean placed = false;
+            for (int attempt = 0; attempt < MAX_ATTEMPTS && !placed; attempt++) {
+                int multiplier = scramble(attempt + 1) | 1;
+                placed = true;
+                for (int k = 0; k < size && placed; k++) {
+                    int slot = (mix(bucket.get(k).hashCode()) * multiplier) >>> slotShift;
+                    if (keys[slot] != null) {
+                        placed = false;
+                    }
+                    for (int j = 0; j < k && placed; j++) {
+                        if (candidate[j] == slot) {
+                            placed = false;
+                        }
+                    }
+                    candidate[k] = slot;
+                }
+                if (placed) {
+                    multipliers[b] = multiplier;
+                    for (int k = 0; k < size; k++) {
+                        keys[candidate[k]] = bucket.get(k);
+                    }
+                }
+            }
+            if (!placed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasDistinctHashCodes(String[] names) {
+        Set<Integer> hashCodes = new HashSet<>(names.length * 2);
+        for (String name : names) {
+            if (!hashCodes.add(name.hashCode())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>Fibonacci hashing: spreads the hash code into the high bits, which
+     * select the bucket.</p>
+     */
+    private static int mix(int h) {
+        return h * 0x9E3779B9;
+    }
+
+    /**
+     * <p>Finalization step of MurmurHash3, generating the candidate
+     * multipliers.</p>
+     */
+    private static int scramble(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @return The number of bits of the smallest power of two not less
+     *  than <code>n</code>
+     */
+    private static int bits(int n) {
+        return 32 - Integer.numberOfLeadingZeros(n - 1);
+    }
+}
@@ -0,0 +1,168 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>Lock-free histogram of latencies in nanoseconds, with log-linear
+ * buckets in the manner of HdrHistogram: values below 16 have their own
+ * bucket, and every power of two above is split into 16 buckets, which
+ * bounds the relative error of the reported percentiles to 1/16.  The
+ * whole <code>long</code> range fits in 960 buckets.</p>
+ *
+ * <p>Bucket counts are striped in the manner of <code>LongAdder</code>:
+ * they start in one <code>AtomicLongArray</code>, and each failed
+ * compare-and-set on a bucket doubles the number of stripes, up to the
+ * number of processors.  A thread records into the stripe chosen by its
+ * id, so threads recording the same latency stop sharing one hot
+ * element; uncontended histograms keep a single stripe.  Readers sum the
+ * stripes.  Recording a value costs one compare-and-set and the increment
+ * of two <code>LongAdder</code>s.  Reading percentiles while values are
+ * being recorded gives approximate results.</p>
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private static final int MAX_STRIPES =
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>Stripes of the bucket counts; a power of two of them.</p>
+     */
+    private volatile AtomicLongArray[] stripes = {new AtomicLongArray(BUCKETS)};
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @param nanos Recorded latency; negative values are recorded as zero
+     */
+    void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        int index = indexOf(value);
+        AtomicLongArray[] stripes = this.stripes;
+        AtomicLongArray counts = stripes[stripeOf(Thread.currentThread(), stripes.length)];
+        long current = counts.get(index);
+        if (!counts.compareAndSet(index, current, current + 1)) {
+            counts.incrementAndGet(index);
+            grow(stripes);
+        }
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getTotal() {
+        return total.sum();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) total.sum() / n;
+    }
+
+    /**
+     * <p>Return the lowest value of the bucket containing the specified
+     * percentile of the recorded values.</p>
+     *
+     * @param percentile Percentile, in <code>[0, 100]</code>
+     * @return Latency in nanoseconds, or <code>0</code> if nothing was
+     *  recorded
+     */
+    long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (AtomicLongArray counts : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = counts.get(i);
+                snapshot[i] += c;
+                n += c;
+            }
+        }
+        if (n == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(n * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return lowestValueOf(i);
+            }
+        }
+        return lowestValueOf(BUCKETS - 1);
+    }
+
+    void reset() {
+        for (AtomicLongArray counts : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0L);
+            }
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * <p>Double the stripes, unless another thread already did or there
+     * are as many as processors.</p>
+     */
+    private synchronized void grow(AtomicLongArray[] seen) {
+        if (stripes != seen || seen.length >= MAX_STRIPES) {
+            return;
+        }
+        AtomicLongArray[] grown = Arrays.copyOf(seen, seen.length << 1);
+        for (int i = seen.length; i < grown.length; i++) {
+            grown[i] = new AtomicLongArray(BUCKETS);
+        }
+        stripes = grown;
+    }
+
+    static int stripeOf(Thread thread, int stripes) {
+        return (int) ((thread.getId() * 0x9E3779B97F4A7C15L) >>> 32) & (stripes - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long lowestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+}
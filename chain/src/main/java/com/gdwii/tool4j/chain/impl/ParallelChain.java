@@ -0,0 +1,267 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.BatchResult;
+import com.gdwii.tool4j.chain.ChainListener;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * <p>Group of independent {@link Command}s executed concurrently, such as
+ * enrichment lookups that do not depend on each other.</p>
+ *
+ * <p>Unlike {@link ChainBase}, every configured {@link Command} is executed,
+ * each one on the supplied <code>Executor</code>; {@link AsyncCommand}s are
+ * awaited without blocking a thread.  Once all of them have completed:</p>
+ * <ul>
+ * <li>The result is <code>true</code> if any {@link Command} returned
+ *     <code>true</code>.</li>
+ * <li>If one {@link Command} threw an exception, it is the exception of
+ *     the group.  If several did, the exception of the group is a new
+ *     {@link ParallelExecutionException} carrying all of them, so that
+ *     exceptions owned by the {@link Command}s are never modified.</li>
+ * <li>The <code>postprocess()</code> methods of all {@link Filter}s are
+ *     called in reverse configuration order with that exception, which is
+ *     thrown unless one of them handled it.</li>
+ * </ul>
+ *
+ * <p>The {@link Command}s share the {@link Context}, wrapped in a
+ * {@link SynchronizedContext} unless it already is one or is a
+ * {@link ConcurrentContext}.  A {@link ConcurrentContext} is passed as is,
+ * so {@link Command}s may cast it to its own class and do not serialize on
+ * a single lock; any other {@link Context} must not be cast.</p>
+ *
+ * <p>The default <code>Executor</code> is the common
+ * <code>ForkJoinPool</code>.  {@link Command}s that block on I/O should
+ * either implement {@link AsyncCommand} or be run on a dedicated
+ * <code>Executor</code>, such as a virtual thread per task executor where
+ * the runtime provides one.</p>
+ */
+public class ParallelChain extends ChainBase implements AsyncCommand {
+    // ----------------------------------------------------------- Constructors
+    /**
+     * <p>Construct a {@link ParallelChain} executing the specified
+     * {@link Command}s on the common <code>ForkJoinPool</code>.</p>
+     *
+     * @param commands The {@link Command}s to be configured
+     *
+     * @exception IllegalArgumentException if <code>commands</code>,
+     *  or one of the individual {@link Command} elements,
+     *  is <code>null</code>
+     */
+    public ParallelChain(Command[] commands) {
+        this(commands, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * <p>Construct a {@link ParallelChain} executing the specified
+     * {@link Command}s on the specified <code>Executor</code>.</p>
+     *
+     * @param commands The {@link Command}s to be configured
+     * @param executor The <code>Executor</code> running the commands
+     *
+     * @exception IllegalArgumentException if <code>commands</code>,
+     *  one of the individual {@link Command} elements, or
+     *  <code>executor</code> is <code>null</code>
+     */
+    public ParallelChain(Command[] commands, Executor executor) {
+        super(commands);
+        this.executor = checkExecutor(executor);
+    }
+
+    /**
+     * <p>Construct a {@link ParallelChain} executing the specified
+     * {@link Command}s on the specified <code>Executor</code>.</p>
+     *
+     * @param commands The {@link Command}s to be configured
+     * @param executor The <code>Executor</code> running the commands
+     *
+     * @exception IllegalArgumentException if <code>commands</code>,
+     *  one of the individual {@link Command} elements, or
+     *  <code>executor</code> is <code>null</code>
+     */
+    public ParallelChain(Collection<? extends Command> commands, Executor executor) {
+        super(commands);
+        this.executor = checkExecutor(executor);
+    }
+
+    private static Executor checkExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException();
+        }
+        return executor;
+    }
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * <p>The <code>Executor</code> running the {@link Command}s of this
+     * group.</p>
+     */
+    protected final Executor executor;
+
+    // ---------------------------------------------------------- Chain Methods
+    /**
+     * <p>Execute all {@link Command}s concurrently and wait for them.</p>
+     *
+     * @param context The {@link Context} to be processed
+     *
+     * @throws Exception the merged exception of the {@link Command}s, if
+     *  not handled by a <code>postprocess()</code> method of a
+     *  {@link Filter}
+     * @throws IllegalArgumentException if <code>context</code>
+     *  is <code>null</code>
+     *
+     * @return <code>true</code> if any {@link Command} returned
+     *  <code>true</code>
+     */
+    @Override
+    public boolean execute(Context context) throws Exception {
+        return AsyncCommand.super.execute(context);
+    }
+
+    /**
+     * <p>Execute all {@link Command}s concurrently.</p>
+     *
+     * @param context The {@link Context} to be processed
+     *
+     * @throws IllegalArgumentException if <code>context</code>
+     *  is <code>null</code>
+     *
+     * @return Stage completing with <code>true</code> if any {@link Command}
+     *  returned <code>true</code>, or exceptionally with the merged
+     *  exception of the {@link Command}s if no {@link Filter} handled it
+     */
+    @Override
+    public CompletionStage<Boolean> executeAsync(Context context) {
+        // Verify our parameters
+        if (context == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Context shared = context instanceof ConcurrentContext || context instanceof SynchronizedContext
+                ? context : new SynchronizedContext(context);
+        int n = commands.length;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[n];
+        for (int i = 0; i < n; i++) {
+            futures[i] = start(i, shared);
+        }
+        return CompletableFuture.allOf(futures).handle((ignored, failure) -> merge(shared, futures));
+    }
+
+    /**
+     * <p>Start the processing of every {@link Context} of the batch and wait
+     * for all of them.  The {@link Command}s already run on the
+     * <code>Executor</code> of this group, which is used instead of
+     * <code>executor</code>.</p>
+     *
+     * @param contexts The {@link Context}s to be processed
+     * @param executor Not used, may be <code>null</code>
+     * @return The outcome of each {@link Context}
+     * @throws IllegalArgumentException if <code>contexts</code> or one of
+     *  its elements is <code>null</code>
+     */
+    @Override
+    public BatchResult executeBatch(List<? extends Context> contexts, Executor executor) {
+        if (contexts == null || contexts.contains(null)) {
+            throw new IllegalArgumentException();
+        }
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(contexts.size());
+        for (Context context : contexts) {
+            futures.add(executeAsync(context).toCompletableFuture());
+        }
+
+        BatchResult batch = new BatchResult(futures.size());
+        for (int k = 0; k < futures.size(); k++) {
+            try {
+                batch.setResult(k, futures.get(k).join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (!(cause instanceof Exception)) {
+                    throw e;
+                }
+                batch.setException(k, (Exception) cause);
+            } catch (CancellationException e) {
+                batch.setException(k, e);
+            }
+        }
+        return batch;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private CompletableFuture<Boolean> start(int index, Context context) {
+        Command command = commands[index];
+        if (command instanceof AsyncCommand) {
+            ChainListener listener = getListener();
+            long start = listener == null ? 0L : System.nanoTime();
+            CompletableFuture<Boolean> future = CompletableFuture
+                    .supplyAsync(() -> ((AsyncCommand) command).executeAsync(context), executor)
+                    .thenCompose(stage -> stage);
+            if (listener != null) {
+                future.whenComplete((value, failure) -> {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    listener.commandExecuted(context, index, command, System.nanoTime() - start,
+                            Boolean.TRUE.equals(value), cause instanceof Exception ? (Exception) cause : null);
+                });
+            }
+            return future;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return execute(context, index);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * <p>Merge the outcomes of the completed commands in configuration
+     * order, then postprocess the {@link Filter}s.</p>
+     */
+    private boolean merge(Context context, CompletableFuture<?>[] futures) {
+        boolean saveResult = false;
+        List<Exception> failures = new ArrayList<>(1);
+        for (CompletableFuture<?> future : futures) {
+            try {
+                if (Boolean.TRUE.equals(future.join())) {
+                    saveResult = true;
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (!(cause instanceof Exception)) {
+                    // Errors are not passed to Filters, as in ChainBase
+                    throw e;
+                }
+                if (!failures.contains(cause)) {
+                    failures.add((Exception) cause);
+                }
+            } catch (Exception e) {
+                // Cancelled
+                failures.add(e);
+            }
+        }
+
+        Exception saveException = failures.isEmpty() ? null
+                : failures.size() == 1 ? failures.get(0) : new ParallelExecutionException(failures);
+        boolean handled = postprocess(context, commands.length - 1, saveException);
+        if ((saveException != null) && !handled) {
+            throw new CompletionException(saveException);
+        }
+        return saveResult;
+    }
+}
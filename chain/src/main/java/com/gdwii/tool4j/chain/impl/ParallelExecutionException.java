@@ -0,0 +1,45 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * <p>Thrown by a {@link ParallelChain} when several of its
+ * {@link com.gdwii.tool4j.chain.Command}s threw exceptions.  Its cause is
+ * the exception of the first of them, in configuration order; all of them
+ * are available from <code>getFailures()</code> and as suppressed
+ * exceptions.  The exceptions of the
+ * {@link com.gdwii.tool4j.chain.Command}s are not modified.</p>
+ */
+public class ParallelExecutionException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Exception> failures;
+
+    /**
+     * @param failures The exceptions of the failed
+     *  {@link com.gdwii.tool4j.chain.Command}s, in configuration order
+     */
+    public ParallelExecutionException(List<Exception> failures) {
+        super(failures.size() + " commands failed, first: " + failures.get(0), failures.get(0));
+        this.failures = Collections.unmodifiableList(failures);
+        for (int i = 1; i < failures.size(); i++) {
+            addSuppressed(failures.get(i));
+        }
+    }
+
+    /**
+     * @return The exceptions of the failed
+     *  {@link com.gdwii.tool4j.chain.Command}s, in configuration order
+     */
+    public List<Exception> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return ChainExceptions.isStackless() ? this : super.fillInStackTrace();
+    }
+}
@@ -0,0 +1,67 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+/**
+ * <p>Thrown when a local property of a {@link ContextBase} or a
+ * {@link ConcurrentContext} cannot be read, written or removed.  Its
+ * message is built when it is requested, and its stack trace is not
+ * captured in the stackless mode of {@link ChainExceptions}.</p>
+ */
+public class PropertyAccessException extends UnsupportedOperationException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * <p>Operation that failed.</p>
+     */
+    public enum Reason {
+        NOT_READABLE, NOT_WRITEABLE, READ_FAILED, WRITE_FAILED, NOT_REMOVABLE
+    }
+
+    private final String property;
+
+    private final Reason reason;
+
+    /**
+     * @param property Name of the property
+     * @param reason Operation that failed
+     * @param cause Exception thrown by the property method, if any
+     */
+    public PropertyAccessException(String property, Reason reason, Throwable cause) {
+        super(null, cause);
+        this.property = property;
+        this.reason = reason;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    @Override
+    public String getMessage() {
+        switch (reason) {
+            case NOT_READABLE:
+                return "Property '" + property + "' is not readable";
+            case NOT_WRITEABLE:
+                return "Property '" + property + "' is not writeable";
+            case READ_FAILED:
+                return "Exception reading property '" + property + "': " + causeMessage();
+            case WRITE_FAILED:
+                return "Exception writing property '" + property + "': " + causeMessage();
+            default:
+                return "Local property '" + property + "' cannot be removed";
+        }
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return ChainExceptions.isStackless() ? this : super.fillInStackTrace();
+    }
+
+    private String causeMessage() {
+        return getCause() == null ? null : getCause().getMessage();
+    }
+}
@@ -0,0 +1,248 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+
+/**
+ * <p>Compiled accessor for a single JavaBeans property of a
+ * {@link ContextBase} subclass.</p>
+ *
+ * <p>The getter and setter are bound once through
+ * <code>LambdaMetafactory</code>, so that reading or writing the property
+ * is a plain interface call instead of a reflective
+ * <code>Method.invoke()</code>.  Methods that the metafactory cannot link
+ * (for example methods of non-public classes) fall back to a
+ * <code>MethodHandle</code>, which is still considerably cheaper than
+ * reflection.  So do methods of bean classes that are not visible from
+ * the class loader of this class.</p>
+ */
+final class PropertyAccessor {
+    // ----------------------------------------------------- Instance Variables
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final String name;
+
+    /**
+     * <p>Slot of this property within its {@link ContextMetadata}.</p>
+     */
+    private final int index;
+
+    /**
+     * <p>Compiled getter, or <code>null</code> for a write-only property.</p>
+     */
+    private final Function<Object, Object> reader;
+
+    /**
+     * <p>Compiled setter, or <code>null</code> for a read-only property.</p>
+     */
+    private final BiConsumer<Object, Object> writer;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    private PropertyAccessor(String name, int index, Function<Object, Object> reader,
+                             BiConsumer<Object, Object> writer) {
+        this.name = name;
+        this.index = index;
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+    /**
+     * <p>Compile the read and write methods of the specified property.</p>
+     *
+     * @param descriptor <code>PropertyDescriptor</code> to compile
+     * @param index Slot assigned to the property
+     * @return The compiled accessor
+     *
+     * @exception IllegalStateException if a property method cannot be
+     *  bound at all
+     */
+    static PropertyAccessor of(PropertyDescriptor descriptor, int index) {
+        Method readMethod = descriptor.getReadMethod();
+        Method writeMethod = descriptor.getWriteMethod();
+        return new PropertyAccessor(descriptor.getName(), index,
+                readMethod == null ? null : compileReader(readMethod),
+                writeMethod == null ? null : compileWriter(writeMethod));
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    String getName() {
+        return name;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    boolean isReadable() {
+        return reader != null;
+    }
+
+    boolean isWriteable() {
+        return writer != null;
+    }
+
+    /**
+     * <p>Get the value of this property from the specified bean.</p>
+     *
+     * @param bean Bean to read from
+     * @return The property value
+     *
+     * @exception PropertyAccessException if this property does not
+     *  have a read method, or the read method throws an exception
+     */
+    Object read(Object bean) {
+        if (reader == null) {
+            throw new PropertyAccessException(name, PropertyAccessException.Reason.NOT_READABLE, null);
+        }
+        try {
+            return reader.apply(bean);
+        } catch (Exception e) {
+            throw new PropertyAccessException(name, PropertyAccessException.Reason.READ_FAILED, e);
+        }
+    }
+
+    /**
+     * <p>Set the value of this property on the specified bean.</p>
+     *
+     * @param bean Bean to write to
+     * @param value The new value for this property (must be of the
+     *  correct type)
+     *
+     * @exception PropertyAccessException if this property does not
+     *  have a write method, or the write method throws an exception
+     */
+    void write(Object bean, Object value) {
+        if (writer == null) {
+            throw new PropertyAccessException(name, PropertyAccessException.Reason.NOT_WRITEABLE, null);
+        }
+        try {
+            writer.accept(bean, value);
+        } catch (Exception e) {
+            throw new PropertyAccessException(name, PropertyAccessException.Reason.WRITE_FAILED, e);
+        }
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compileReader(Method method) {
+        MethodHandle handle = unreflect(method);
+        if (isLinkable(method) && isVisible(handle.type())) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle, handle.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable t) {
+                // Fall through to the method handle
+            }
+        }
+
+        MethodHandle getter = handle.asType(MethodType.methodType(Object.class, Object.class));
+        return bean -> {
+            try {
+                return getter.invokeExact(bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new UndeclaredThrowableException(t);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> compileWriter(Method method) {
+        MethodHandle handle = unreflect(method);
+        if (isLinkable(method) && isVisible(handle.type())) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle, handle.type().wrap().changeReturnType(void.class));
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable t) {
+                // Fall through to the method handle
+            }
+        }
+
+        MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (bean, value) -> {
+            try {
+                setter.invokeExact(bean, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new UndeclaredThrowableException(t);
+            }
+        };
+    }
+
+    /**
+     * <p>Generated lambda classes can only call methods that are accessible
+     * without privileges, so anything else is served by a method handle.</p>
+     */
+    private static boolean isLinkable(Method method) {
+        return Modifier.isPublic(method.getModifiers())
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    }
+
+    /**
+     * <p>Generated lambda classes resolve the types of the handle against
+     * the class loader of this class.  A bean class loaded by a child
+     * loader, such as the class loader of a web application sharing this
+     * library, is not visible from there and is served by a method
+     * handle.</p>
+     */
+    private static boolean isVisible(MethodType type) {
+        if (!isVisible(type.returnType())) {
+            return false;
+        }
+        for (Class<?> parameterType : type.parameterArray()) {
+            if (!isVisible(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, PropertyAccessor.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            if (!isLinkable(method)) {
+                method.setAccessible(true);
+            }
+            return LOOKUP.unreflect(method);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException("Property method '" + method
+                    + "' cannot be accessed", e);
+        }
+    }
+}
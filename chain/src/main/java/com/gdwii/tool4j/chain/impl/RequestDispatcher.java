@@ -0,0 +1,528 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.CatalogFactory;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>In-process request engine: executes the {@link Command} identified by
+ * a command ID of a {@link CatalogFactory}, typically a chain of handlers,
+ * with a {@link Context} representing the request, on its own thread.</p>
+ *
+ * <p>Each request runs on a virtual thread when the runtime provides them,
+ * and otherwise on a pool of <code>maxConcurrency</code> platform threads.
+ * At most <code>maxConcurrency</code> requests execute at a time; up to
+ * <code>queueCapacity</code> more wait for their turn.  When the queue is
+ * full, <code>dispatch()</code> rejects the request at once, or waits for
+ * room up to the specified timeout, so that callers feel the backpressure
+ * instead of queueing without bound.</p>
+ *
+ * <p>Once installed, the dispatcher is registered as an MBean of the
+ * platform <code>MBeanServer</code> named</p>
+ * <pre>
+ * com.gdwii.tool4j.chain:type=RequestDispatcher,name=<em>name</em>
+ * </pre>
+ *
+ * <p>This implementation is thread-safe.</p>
+ */
+public class RequestDispatcher implements RequestDispatcherMBean, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RequestDispatcher.class);
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final String name;
+
+    private final CatalogFactory factory;
+
+    private final int maxConcurrency;
+
+    private final int queueCapacity;
+
+    private final ExecutorService executor;
+
+    private final boolean ownsExecutor;
+
+    private final boolean virtualThreads;
+
+    /**
+     * <p>Permits of admitted requests, queued or executing.</p>
+     */
+    private final Semaphore admission;
+
+    /**
+     * <p>Permits of executing requests.</p>
+     */
+    private final Semaphore running;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+
+    private final LatencyHistogram executionLatency = new LatencyHistogram();
+
+    private volatile long resetNanos = System.nanoTime();
+
+    private volatile boolean shutdown;
+
+    private ObjectName registered;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * <p>Create a dispatcher running requests on virtual threads, or on its
+     * own pool of platform threads when virtual threads are not
+     * available.</p>
+     *
+     * @param name Name of the dispatcher, used for its threads and MBean
+     * @param factory The factory resolving command IDs
+     * @param maxConcurrency Maximum number of requests executed concurrently
+     * @param queueCapacity Maximum number of admitted requests waiting for
+     *  execution
+     */
+    public RequestDispatcher(String name, CatalogFactory factory, int maxConcurrency, int queueCapacity) {
+        this(name, factory, maxConcurrency, queueCapacity, null);
+    }
+
+    /**
+     * <p>Create a dispatcher running requests on the specified executor,
+     * which is not shut down with the dispatcher.</p>
+     *
+     * @param name Name of the dispatcher, used for its MBean
+     * @param factory The factory resolving command IDs
+     * @param maxConcurrency Maximum number of requests executed concurrently
+     * @param queueCapacity Maximum number of admitted requests waiting for
+     *  execution
+     * @param executor The executor of the requests, or <code>null</code>
+     *  for a dispatcher-owned executor
+     */
+    public RequestDispatcher(String name, CatalogFactory factory, int maxConcurrency, int queueCapacity,
+                             ExecutorService executor) {
+        if (name == null || factory == null || maxConcurrency <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.name = name;
+        this.factory = factory;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.admission = new Semaphore(maxConcurrency + queueCapacity);
+        this.running = new Semaphore(maxConcurrency);
+        if (executor != null) {
+            this.executor = executor;
+            this.ownsExecutor = false;
+            this.virtualThreads = false;
+        } else {
+            ExecutorService virtualExecutor = newVirtualThreadExecutor();
+            this.executor = virtualExecutor != null ? virtualExecutor : newPlatformExecutor(name, maxConcurrency);
+            this.ownsExecutor = true;
+            this.virtualThreads = virtualExecutor != null;
+        }
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * <p>Dispatch a request without waiting.  If the queue is full, the
+     * returned future is already completed with a
+     * <code>RejectedExecutionException</code>.</p>
+     *
+     * @param commandID The ID of the {@link Command}, as described by
+     *  {@link CatalogFactory#getCommand(String)}
+     * @param context The request
+     * @return Future completing with the result of the {@link Command}, or
+     *  exceptionally with the exception it threw
+     * @exception IllegalArgumentException if <code>commandID</code> is
+     *  malformed or <code>context</code> is <code>null</code>
+     */
+    public CompletableFuture<Boolean> dispatch(String commandID, Context context) {
+        return dispatch(factory.getCommandHandle(commandID), context);
+    }
+
+    /**
+     * <p>Dispatch a request, waiting up to the specified time for room in
+     * the queue.</p>
+     *
+     * @param commandID The ID of the {@link Command}, as described by
+     *  {@link CatalogFactory#getCommand(String)}
+     * @param context The request
+     * @param timeout Maximum time to wait for room in the queue
+     * @param unit Unit of <code>timeout</code>
+     * @return Future completing with the result of the {@link Command}, or
+     *  exceptionally with the exception it threw
+     * @exception InterruptedException if interrupted while waiting
+     * @exception IllegalArgumentException if <code>commandID</code> is
+     *  malformed or <code>context</code> is <code>null</code>
+     */
+    public CompletableFuture<Boolean> dispatch(String commandID, Context context, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return dispatch(factory.getCommandHandle(commandID), context, timeout, unit);
+    }
+
+    /**
+     * <p>Dispatch a request to the specified {@link Command} without
+     * waiting.</p>
+     *
+     * @param command The {@link Command} processing the request
+     * @param context The request
+     * @return Future completing with the result of the {@link Command}
+     * @see #dispatch(String, Context)
+     */
+    public CompletableFuture<Boolean> dispatch(Command command, Context context) {
+        checkArguments(command, context);
+        if (shutdown || !admission.tryAcquire()) {
+            return reject();
+        }
+        return submit(command, context);
+    }
+
+    /**
+     * <p>Dispatch a request to the specified {@link Command}, waiting up to
+     * the specified time for room in the queue.</p>
+     *
+     * @param command The {@link Command} processing the request
+     * @param context The request
+     * @param timeout Maximum time to wait for room in the queue
+     * @param unit Unit of <code>timeout</code>
+     * @return Future completing with the result of the {@link Command}
+     * @exception InterruptedException if interrupted while waiting
+     * @see #dispatch(String, Context, long, TimeUnit)
+     */
+    public CompletableFuture<Boolean> dispatch(Command command, Context context, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        checkArguments(command, context);
+        if (shutdown || !admission.tryAcquire(timeout, unit)) {
+            return reject();
+        }
+        return submit(command, context);
+    }
+
+    /**
+     * <p>Dispatch a request, waiting for room in the queue, and wait for
+     * its result.</p>
+     *
+     * @param commandID The ID of the {@link Command}
+     * @param context The request
+     * @return The result of the {@link Command}
+     * @exception RejectedExecutionException if the dispatcher is shut down
+     * @exception Exception the exception the {@link Command} threw
+     */
+    public boolean execute(String commandID, Context context) throws Exception {
+        Command command = factory.getCommandHandle(commandID);
+        checkArguments(command, context);
+        if (shutdown) {
+            reject();
+            throw new RejectedExecutionException("dispatcher [" + name + "] is shut down");
+        }
+        admission.acquire();
+        try {
+            return submit(command, context).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * <p>Stop admitting requests.  Admitted requests are still
+     * executed.</p>
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * <p>Wait until every admitted request has finished, after
+     * <code>shutdown()</code>.</p>
+     *
+     * @param timeout Maximum time to wait
+     * @param unit Unit of <code>timeout</code>
+     * @return <code>true</code> if every request has finished
+     * @exception InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        int permits = maxConcurrency + queueCapacity;
+        if (!admission.tryAcquire(permits, timeout, unit)) {
+            return false;
+        }
+        admission.release(permits);
+        return true;
+    }
+
+    /**
+     * <p>Shut down the dispatcher and unregister its MBean.</p>
+     */
+    @Override
+    public void close() {
+        shutdown();
+        uninstall();
+    }
+
+    /**
+     * <p>Register this dispatcher as an MBean.</p>
+     */
+    public synchronized void install() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(ChainMetrics.DOMAIN + ":type=RequestDispatcher"
+                    + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            registered = objectName;
+        } catch (JMException e) {
+            logger.warn("dispatcher:{} could not register MBean", name, e);
+        }
+    }
+
+    /**
+     * <p>Unregister the MBean of this dispatcher.</p>
+     */
+    public synchronized void uninstall() {
+        if (registered != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+            } catch (JMException e) {
+                logger.debug("MBean:{} already unregistered", registered, e);
+            }
+            registered = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public double getThroughput() {
+        long elapsedNanos = System.nanoTime() - resetNanos;
+        if (elapsedNanos <= 0L) {
+            return 0.0;
+        }
+        return (completed.sum() + failed.sum()) * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public double getMeanQueueNanos() {
+        return queueLatency.getMean();
+    }
+
+    @Override
+    public long get99thPercentileQueueNanos() {
+        return queueLatency.getPercentile(99.0);
+    }
+
+    @Override
+    public double getMeanExecutionNanos() {
+        return executionLatency.getMean();
+    }
+
+    @Override
+    public long get99thPercentileExecutionNanos() {
+        return executionLatency.getPercentile(99.0);
+    }
+
+    @Override
+    public long getMaxExecutionNanos() {
+        return executionLatency.getMax();
+    }
+
+    @Override
+    public void reset() {
+        submitted.reset();
+        rejected.reset();
+        completed.reset();
+        failed.reset();
+        queueLatency.reset();
+        executionLatency.reset();
+        resetNanos = System.nanoTime();
+    }
+
+    public String toString() {
+        return "RequestDispatcher[" + name + "]";
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private static void checkArguments(Command command, Context context) {
+        if (command == null || context == null) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private CompletableFuture<Boolean> reject() {
+        rejected.increment();
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        future.completeExceptionally(new RejectedExecutionException(
+                shutdown ? "dispatcher [" + name + "] is shut down" : "dispatcher [" + name + "] queue is full"));
+        return future;
+    }
+
+    /**
+     * <p>Submit an admitted request; the caller holds its admission
+     * permit.</p>
+     */
+    private CompletableFuture<Boolean> submit(Command command, Context context) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        long admittedNanos = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> run(command, context, future, admittedNanos));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            admission.release();
+            rejected.increment();
+            future.completeExceptionally(e);
+            return future;
+        }
+        submitted.increment();
+        return future;
+    }
+
+    private void run(Command command, Context context, CompletableFuture<Boolean> future, long admittedNanos) {
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            queued.decrementAndGet();
+            admission.release();
+            failed.increment();
+            future.completeExceptionally(e);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        long startNanos = System.nanoTime();
+        queueLatency.record(startNanos - admittedNanos);
+
+        boolean result = false;
+        Throwable failure = null;
+        try {
+            result = command.execute(context);
+        } catch (Throwable t) {
+            failure = t;
+        }
+
+        // Release the permits before completing the future, so that its
+        // callbacks may dispatch again
+        executionLatency.record(System.nanoTime() - startNanos);
+        active.decrementAndGet();
+        running.release();
+        admission.release();
+        if (failure == null) {
+            completed.increment();
+            future.complete(result);
+        } else {
+            failed.increment();
+            future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * <p>Return <code>Executors.newVirtualThreadPerTaskExecutor()</code>
+     * when the runtime provides it; this module is compiled for Java 8.</p>
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Before Java 21, or preview features disabled
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(String name, int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // The admission permits bound the queue
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
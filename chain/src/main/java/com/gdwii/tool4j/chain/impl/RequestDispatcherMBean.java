@@ -0,0 +1,79 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+/**
+ * <p>JMX management interface of {@link RequestDispatcher}.  Latencies are
+ * in nanoseconds.</p>
+ */
+public interface RequestDispatcherMBean {
+    /**
+     * @return Name the dispatcher is registered under
+     */
+    String getName();
+
+    /**
+     * @return <code>true</code> if requests run on virtual threads
+     */
+    boolean isVirtualThreads();
+
+    /**
+     * @return Maximum number of requests executed concurrently
+     */
+    int getMaxConcurrency();
+
+    /**
+     * @return Maximum number of admitted requests waiting for execution
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return Number of admitted requests waiting for execution
+     */
+    int getQueueDepth();
+
+    /**
+     * @return Number of requests being executed
+     */
+    int getActiveCount();
+
+    /**
+     * @return Number of admitted requests
+     */
+    long getSubmittedCount();
+
+    /**
+     * @return Number of requests rejected because the queue was full or the
+     *  dispatcher was shut down
+     */
+    long getRejectedCount();
+
+    /**
+     * @return Number of requests whose chain completed normally
+     */
+    long getCompletedCount();
+
+    /**
+     * @return Number of requests whose chain threw an exception
+     */
+    long getFailedCount();
+
+    /**
+     * @return Finished requests per second since the last reset
+     */
+    double getThroughput();
+
+    double getMeanQueueNanos();
+
+    long get99thPercentileQueueNanos();
+
+    double getMeanExecutionNanos();
+
+    long get99thPercentileExecutionNanos();
+
+    long getMaxExecutionNanos();
+
+    /**
+     * <p>Reset all counters and histograms.</p>
+     */
+    void reset();
+}
@@ -0,0 +1,334 @@
+package com.gdwii.tool4j.chain.impl;
+
+
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.ContextKey;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+
+/**
+ * <p>Thread-safe view of a {@link Context} that is not thread-safe itself,
+ * in the manner of <code>Collections.synchronizedMap()</code>: every
+ * operation, including the compound <code>Map</code> operations such as
+ * <code>computeIfAbsent()</code>, holds the lock of this view.  The
+ * collection views lock this view as well, but iteration over them must
+ * be synchronized on this view by the caller:</p>
+ * <pre>
+ * synchronized (view) {
+ *     for (String key : view.keySet()) { ... }
+ * }
+ * </pre>
+ *
+ * <p>All access to the underlying {@link Context} must go through the
+ * view while it is shared.</p>
+ */
+public class SynchronizedContext implements Context {
+    // ----------------------------------------------------- Instance Variables
+
+    private final Context context;
+
+    private transient Set<String> keySet;
+
+    private transient Collection<Object> values;
+
+    private transient Set<Map.Entry<String, Object>> entrySet;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * @param context The {@link Context} to be shared
+     *
+     * @exception IllegalArgumentException if <code>context</code> is
+     *  <code>null</code>
+     */
+    public SynchronizedContext(Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException();
+        }
+        this.context = context;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return The underlying {@link Context}
+     */
+    public Context getContext() {
+        return context;
+    }
+
+    @Override
+    public synchronized <T> T get(ContextKey<T> key) {
+        return context.get(key);
+    }
+
+    @Override
+    public synchronized <T> T put(ContextKey<T> key, T value) {
+        return context.put(key, value);
+    }
+
+    @Override
+    public synchronized <T> T remove(ContextKey<T> key) {
+        return context.remove(key);
+    }
+
+    // ------------------------------------------------------------- Map Methods
+
+    public synchronized int size() {
+        return context.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return context.isEmpty();
+    }
+
+    public synchronized boolean containsKey(Object key) {
+        return context.containsKey(key);
+    }
+
+    public synchronized boolean containsValue(Object value) {
+        return context.containsValue(value);
+    }
+
+    public synchronized Object get(Object key) {
+        return context.get(key);
+    }
+
+    public synchronized Object put(String key, Object value) {
+        return context.put(key, value);
+    }
+
+    public synchronized Object remove(Object key) {
+        return context.remove(key);
+    }
+
+    public synchronized void putAll(Map<? extends String, ?> m) {
+        context.putAll(m);
+    }
+
+    public synchronized void clear() {
+        context.clear();
+    }
+
+    public synchronized Set<String> keySet() {
+        if (keySet == null) {
+            keySet = new SynchronizedSet<>(context.keySet());
+        }
+        return keySet;
+    }
+
+    public synchronized Collection<Object> values() {
+        if (values == null) {
+            values = new SynchronizedCollection<>(context.values());
+        }
+        return values;
+    }
+
+    public synchronized Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new SynchronizedSet<>(context.entrySet());
+        }
+        return entrySet;
+    }
+
+    @Override
+    public synchronized Object getOrDefault(Object key, Object defaultValue) {
+        return context.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<? super String, ? super Object> action) {
+        context.forEach(action);
+    }
+
+    @Override
+    public synchronized void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        context.replaceAll(function);
+    }
+
+    @Override
+    public synchronized Object putIfAbsent(String key, Object value) {
+        return context.putIfAbsent(key, value);
+    }
+
+    @Override
+    public synchronized boolean remove(Object key, Object value) {
+        return context.remove(key, value);
+    }
+
+    @Override
+    public synchronized boolean replace(String key, Object oldValue, Object newValue) {
+        return context.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public synchronized Object replace(String key, Object value) {
+        return context.replace(key, value);
+    }
+
+    @Override
+    public synchronized Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        return context.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public synchronized Object computeIfPresent(String key,
+                                                BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        return context.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public synchronized Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        return context.compute(key, remappingFunction);
+    }
+
+    @Override
+    public synchronized Object merge(String key, Object value,
+                                     BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        return context.merge(key, value, remappingFunction);
+    }
+
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        synchronized (this) {
+            return context.equals(obj);
+        }
+    }
+
+    public synchronized int hashCode() {
+        return context.hashCode();
+    }
+
+    public synchronized String toString() {
+        return context.toString();
+    }
+
+
+    // -------------------------------------------------------- Private Classes
+
+    /**
+     * <p>Collection view locking the enclosing context.  Its iterator is
+     * not synchronized.</p>
+     */
+    private class SynchronizedCollection<E> implements Collection<E> {
+        final Collection<E> collection;
+
+        SynchronizedCollection(Collection<E> collection) {
+            this.collection = collection;
+        }
+
+        public int size() {
+            synchronized (SynchronizedContext.this) {
+                return collection.size();
+            }
+        }
+
+        public boolean isEmpty() {
+            synchronized (SynchronizedContext.this) {
+                return collection.isEmpty();
+            }
+        }
+
+        public boolean contains(Object o) {
+            synchronized (SynchronizedContext.this) {
+                return collection.contains(o);
+            }
+        }
+
+        public Iterator<E> iterator() {
+            return collection.iterator(); // Must be synchronized by the caller
+        }
+
+        public Object[] toArray() {
+            synchronized (SynchronizedContext.this) {
+                return collection.toArray();
+            }
+        }
+
+        public <T> T[] toArray(T[] a) {
+            synchronized (SynchronizedContext.this) {
+                return collection.toArray(a);
+            }
+        }
+
+        public boolean add(E e) {
+            synchronized (SynchronizedContext.this) {
+                return collection.add(e);
+            }
+        }
+
+        public boolean remove(Object o) {
+            synchronized (SynchronizedContext.this) {
+                return collection.remove(o);
+            }
+        }
+
+        public boolean containsAll(Collection<?> c) {
+            synchronized (SynchronizedContext.this) {
+                return collection.containsAll(c);
+            }
+        }
+
+        public boolean addAll(Collection<? extends E> c) {
+            synchronized (SynchronizedContext.this) {
+                return collection.addAll(c);
+            }
+        }
+
+        public boolean removeAll(Collection<?> c) {
+            synchronized (SynchronizedContext.this) {
+                return collection.removeAll(c);
+            }
+        }
+
+        public boolean retainAll(Collection<?> c) {
+            synchronized (SynchronizedContext.this) {
+                return collection.retainAll(c);
+            }
+        }
+
+        public void clear() {
+            synchronized (SynchronizedContext.this) {
+                collection.clear();
+            }
+        }
+
+        public String toString() {
+            synchronized (SynchronizedContext.this) {
+                return collection.toString();
+            }
+        }
+    }
+
+    private class SynchronizedSet<E> extends SynchronizedCollection<E> implements Set<E> {
+        SynchronizedSet(Set<E> set) {
+            super(set);
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            synchronized (SynchronizedContext.this) {
+                return collection.equals(o);
+            }
+        }
+
+        public int hashCode() {
+            synchronized (SynchronizedContext.this) {
+                return collection.hashCode();
+            }
+        }
+    }
+}
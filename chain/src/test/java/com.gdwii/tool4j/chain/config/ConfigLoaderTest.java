@@ -0,0 +1,221 @@
+package com.gdwii.tool4j.chain.config;
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.BatchCommand;
+import com.gdwii.tool4j.chain.BatchResult;
+import com.gdwii.tool4j.chain.CatalogFactory;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import com.gdwii.tool4j.chain.generic.BulkheadFilter;
+import com.gdwii.tool4j.chain.generic.CircuitBreakerFilter;
+import com.gdwii.tool4j.chain.impl.CatalogFactoryBase;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.config.ConfigLoaderTest
+ * @description: 声明式命令目录配置测试
+ * @author gdw
+ */
+public class ConfigLoaderTest {
+    private static final String PREFIX = ConfigLoaderTest.class.getName() + "$";
+
+    @Test
+    public void propertiesAndXmlAgree() throws Exception {
+        List<CatalogConfig> properties = ConfigLoader.parseProperties(stream(
+                "web.login=" + PREFIX + "LoginCommand\n"
+                        + "web.request=" + PREFIX + "AuditFilter, " + PREFIX + "LoginCommand\n"));
+        List<CatalogConfig> xml = ConfigLoader.parseXml(stream(
+                "<catalogs><catalog name=\"web\">"
+                        + "<command name=\"login\" class=\"" + PREFIX + "LoginCommand\"/>"
+                        + "<chain name=\"request\">"
+                        + "<command class=\"" + PREFIX + "AuditFilter\"/>"
+                        + "<command class=\"" + PREFIX + "LoginCommand\"/>"
+                        + "</chain></catalog></catalogs>"));
+
+        assertEquals(properties.toString(), xml.toString());
+    }
+
+    @Test
+    public void registersLazyCommandsFromIndex() throws Exception {
+        List<CatalogConfig> configs = ConfigLoader.parseProperties(stream(
+                "web.request=" + PREFIX + "AuditFilter," + PREFIX + "LoginCommand\n"));
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        CatalogIndex.write(Collections.singletonList(configs.get(0).resolve(getClass().getClassLoader())), index);
+
+        CatalogFactory factory = new CatalogFactoryBase();
+        new ConfigLoader(factory).register(CatalogIndex.read(new ByteArrayInputStream(index.toByteArray())));
+
+        int created = LoginCommand.instances;
+        Command command = factory.getCommand("web:request");
+        assertTrue(command instanceof ChainBase);
+        assertEquals(created, LoginCommand.instances);
+
+        ContextBase context = new ContextBase();
+        assertTrue(command.execute(context));
+        assertEquals(created + 1, LoginCommand.instances);
+        assertEquals(Boolean.TRUE, context.get("audited"));
+    }
+
+    @Test
+    public void proxiesKeepCapabilities() throws Exception {
+        CatalogFactory factory = new CatalogFactoryBase();
+        new ConfigLoader(factory).register(ConfigLoader.parseProperties(stream(
+                "jobs.fetch=" + PREFIX + "FetchCommand\n"
+                        + "jobs.load=" + PREFIX + "LoadFilter\n")));
+
+        Command fetch = factory.getCommand("jobs:fetch");
+        assertTrue(fetch instanceof AsyncCommand);
+        assertFalse(fetch instanceof BatchCommand || fetch instanceof Filter);
+        assertFalse(((LazyCommand) fetch).isInstantiated());
+        assertTrue(((AsyncCommand) fetch).executeAsync(new ContextBase()).toCompletableFuture().get());
+
+        Command load = factory.getCommand("jobs:load");
+        assertTrue(load instanceof BatchCommand && load instanceof Filter);
+        assertFalse(load instanceof AsyncCommand);
+        BatchResult batch = ((BatchCommand) load).executeBatch(Arrays.asList(new ContextBase(), new ContextBase()));
+        assertTrue(batch.getResult(1));
+    }
+
+    @Test
+    public void setsXmlPropertiesThroughIndex() throws Exception {
+        List<CatalogConfig> configs = ConfigLoader.parseXml(stream(
+                "<catalogs><catalog name=\"web\">"
+                        + "<command name=\"bulkhead\" class=\"" + BulkheadFilter.class.getName() + "\">"
+                        + "<property name=\"maxConcurrentCalls\" value=\"3\"/>"
+                        + "<property name=\"maxWaitMillis\" value=\"20\"/>"
+                        + "</command>"
+                        + "<chain name=\"request\">"
+                        + "<command class=\"" + CircuitBreakerFilter.class.getName() + "\">"
+                        + "<property name=\"failureRateThreshold\" value=\"0.25\"/>"
+                        + "</command>"
+                        + "<command class=\"" + PREFIX + "LoginCommand\"/>"
+                        + "</chain></catalog></catalogs>"));
+        assertEquals(Collections.singletonMap("failureRateThreshold", "0.25"),
+                configs.get(0).getCommands().get(1).getProperties(0));
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        CatalogIndex.write(Collections.singletonList(configs.get(0).resolve(getClass().getClassLoader())), index);
+
+        CatalogFactory factory = new CatalogFactoryBase();
+        new ConfigLoader(factory).register(CatalogIndex.read(new ByteArrayInputStream(index.toByteArray())));
+
+        assertTrue(factory.getCommand("web:request").execute(new ContextBase()));
+        BulkheadFilter bulkhead = (BulkheadFilter) ((LazyCommand) factory.getCommand("web:bulkhead")).getCommand();
+        assertEquals(3, bulkhead.getMaxConcurrentCalls());
+        assertEquals(20L, bulkhead.getMaxWaitMillis());
+    }
+
+    @Test
+    public void unknownPropertyFailsOnInstantiation() throws Exception {
+        LazyCommand proxy = LazyCommand.of(PREFIX + "LoginCommand", 0,
+                Collections.singletonMap("color", "red"), getClass().getClassLoader());
+        try {
+            proxy.getCommand();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[color]"));
+        }
+    }
+
+    @Test
+    public void overloadedSetters() throws Exception {
+        LazyCommand proxy = LazyCommand.of(PREFIX + "OverloadedCommand", 0,
+                Collections.singletonMap("limit", "7"), getClass().getClassLoader());
+        assertEquals("String 7", ((OverloadedCommand) proxy.getCommand()).limit);
+
+        proxy = LazyCommand.of(PREFIX + "OverloadedCommand", 0,
+                Collections.singletonMap("size", "7"), getClass().getClassLoader());
+        try {
+            proxy.getCommand();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("2 setters"));
+        }
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static class LoginCommand implements Command {
+        static int instances;
+
+        public LoginCommand() {
+            instances++;
+        }
+
+        @Override
+        public boolean execute(Context context) {
+            return true;
+        }
+    }
+
+    public static class OverloadedCommand implements Command {
+        String limit;
+
+        public void setLimit(int limit) {
+            this.limit = "int " + limit;
+        }
+
+        public void setLimit(String limit) {
+            this.limit = "String " + limit;
+        }
+
+        public void setSize(int size) {
+        }
+
+        public void setSize(long size) {
+        }
+
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+    }
+
+    public static class FetchCommand implements AsyncCommand {
+        @Override
+        public CompletionStage<Boolean> executeAsync(Context context) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+
+    public static class LoadFilter implements BatchCommand, Filter {
+        @Override
+        public boolean execute(Context context) {
+            return true;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            return false;
+        }
+    }
+
+    public static class AuditFilter implements Filter {
+        @Override
+        public boolean execute(Context context) {
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            context.put("audited", true);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.gdwii.tool4j.chain.generic;
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.generic.BulkheadFilterTest
+ * @description: 舱壁隔离测试
+ * @author gdw
+ */
+public class BulkheadFilterTest {
+    @Test
+    public void rejectsBeyondLimit() throws Exception {
+        BulkheadFilter bulkhead = new BulkheadFilter(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChainBase chain = new ChainBase(new Command[]{bulkhead, context -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }});
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return chain.execute(new ContextBase());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        try {
+            chain.execute(new ContextBase());
+            fail();
+        } catch (CommandRejectedException expected) {
+            assertEquals(1, bulkhead.getRejectedCount());
+        }
+
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    public void guardReturnsPermitOnError() throws Exception {
+        BulkheadFilter bulkhead = new BulkheadFilter(1);
+        ChainBase chain = new ChainBase(new Command[]{bulkhead.guard(context -> {
+            throw new Error("boom");
+        })});
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                chain.execute(new ContextBase());
+                fail();
+            } catch (Error expected) {
+                assertEquals(1, bulkhead.getAvailablePermits());
+            }
+        }
+        assertEquals(0, bulkhead.getRejectedCount());
+    }
+
+    @Test
+    public void asyncGuardHoldsPermitUntilCompletion() throws Exception {
+        BulkheadFilter bulkhead = new BulkheadFilter(1);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        AsyncCommand guard = (AsyncCommand) bulkhead.guard((AsyncCommand) context -> result);
+
+        CompletableFuture<Boolean> first = guard.executeAsync(new ContextBase()).toCompletableFuture();
+        assertEquals(0, bulkhead.getAvailablePermits());
+        try {
+            guard.executeAsync(new ContextBase()).toCompletableFuture().join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof CommandRejectedException);
+        }
+        result.completeExceptionally(new Error("boom"));
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(1, bulkhead.getAvailablePermits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void guardRejectsFilter() {
+        new BulkheadFilter().guard(new BulkheadFilter());
+    }
+}
@@ -0,0 +1,121 @@
+package com.gdwii.tool4j.chain.generic;
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.generic.CachingCommandTest
+ * @description: 结果缓存命令测试
+ * @author gdw
+ */
+public class CachingCommandTest {
+    @Test
+    public void replaysOutputsOnHit() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        Command rate = context -> {
+            executions.incrementAndGet();
+            context.put("rate", "USD".equals(context.get("currency")) ? 7 : 1);
+            return true;
+        };
+        CachingCommand cached = new CachingCommand(rate, new String[]{"currency"}, new String[]{"rate", "note"});
+
+        ContextBase first = new ContextBase();
+        first.put("currency", "USD");
+        assertTrue(cached.execute(first));
+
+        ContextBase second = new ContextBase();
+        second.put("currency", "USD");
+        second.put("note", "stale");
+        assertTrue(cached.execute(second));
+        assertEquals(7, second.get("rate"));
+        assertFalse(second.containsKey("note"));
+
+        ContextBase other = new ContextBase();
+        other.put("currency", "EUR");
+        cached.execute(other);
+        assertEquals(1, other.get("rate"));
+
+        assertEquals(2, executions.get());
+        assertEquals(1, cached.getHitCount());
+        assertEquals(1.0 / 3, cached.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void evictsAndExpires() throws Exception {
+        CachingCommand cached = new CachingCommand(context -> false, new String[]{"id"}, new String[0]);
+        cached.setMaxSize(2);
+        cached.setTtlMillis(30);
+        for (int id = 0; id < 3; id++) {
+            ContextBase context = new ContextBase();
+            context.put("id", id);
+            cached.execute(context);
+        }
+        assertEquals(2, cached.getSize());
+        assertEquals(1, cached.getEvictionCount());
+
+        Thread.sleep(40);
+        cached.purge();
+        assertEquals(0, cached.getSize());
+        assertEquals(2, cached.getExpirationCount());
+    }
+
+    @Test
+    public void concurrentLookups() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CachingCommand cached = new CachingCommand(context -> {
+            executions.incrementAndGet();
+            context.put("square", (Integer) context.get("id") * (Integer) context.get("id"));
+            return true;
+        }, new String[]{"id"}, new String[]{"square"});
+        Thread[] threads = new Thread[4];
+        AtomicInteger wrong = new AtomicInteger();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    ContextBase context = new ContextBase();
+                    context.put("id", i % 100);
+                    try {
+                        cached.execute(context);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    if (!Integer.valueOf(i % 100 * (i % 100)).equals(context.get("square"))) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, wrong.get());
+        assertEquals(100, cached.getSize());
+        assertEquals(40000, cached.getHitCount() + cached.getMissCount());
+        assertEquals(executions.get(), cached.getMissCount());
+    }
+
+    @Test
+    public void rejectsFiltersAndAsyncCommands() {
+        try {
+            new CachingCommand(new BulkheadFilter(), new String[0], new String[0]);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // postprocess() would be lost
+        }
+        try {
+            new CachingCommand((AsyncCommand) context -> CompletableFuture.completedFuture(true),
+                    new String[0], new String[0]);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // asynchronous execution would be lost
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.gdwii.tool4j.chain.generic;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.impl.ChainBase;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.generic.CircuitBreakerFilterTest
+ * @description: 熔断器测试
+ * @author gdw
+ */
+public class CircuitBreakerFilterTest {
+    @Test
+    public void opensAndRecovers() throws Exception {
+        CircuitBreakerFilter breaker = new CircuitBreakerFilter();
+        breaker.setWindowSize(10);
+        breaker.setMinimumCalls(4);
+        breaker.setOpenMillis(50);
+        breaker.setHalfOpenCalls(2);
+        boolean[] failing = {true};
+        ChainBase chain = new ChainBase(new Command[]{breaker, context -> {
+            if (failing[0]) {
+                throw new IllegalStateException("down");
+            }
+            return true;
+        }});
+
+        for (int i = 0; i < 4; i++) {
+            try {
+                chain.execute(new ContextBase());
+                fail();
+            } catch (IllegalStateException expected) {
+                // recorded
+            }
+        }
+        assertEquals(CircuitBreakerFilter.State.OPEN, breaker.getState());
+        try {
+            chain.execute(new ContextBase());
+            fail();
+        } catch (CommandRejectedException e) {
+            assertSame(breaker, e.getFilter());
+        }
+        assertEquals(1, breaker.getRejectedCount());
+
+        Thread.sleep(60);
+        failing[0] = false;
+        assertTrue(chain.execute(new ContextBase()));
+        assertEquals(CircuitBreakerFilter.State.HALF_OPEN, breaker.getState());
+        assertTrue(chain.execute(new ContextBase()));
+        assertEquals(CircuitBreakerFilter.State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate(), 0.0);
+    }
+
+    @Test
+    public void onlyTrialCallsCloseTheCircuit() throws Exception {
+        CircuitBreakerFilter breaker = new CircuitBreakerFilter();
+        breaker.setMinimumCalls(2);
+        breaker.setOpenMillis(20);
+        breaker.setHalfOpenCalls(1);
+        IllegalStateException down = new IllegalStateException("down");
+
+        // Admitted while closed, completes after the circuit opened
+        ContextBase slow = new ContextBase();
+        breaker.execute(slow);
+        for (int i = 0; i < 2; i++) {
+            ContextBase context = new ContextBase();
+            breaker.execute(context);
+            breaker.postprocess(context, down);
+        }
+        assertEquals(CircuitBreakerFilter.State.OPEN, breaker.getState());
+
+        Thread.sleep(30);
+        ContextBase trial = new ContextBase();
+        breaker.execute(trial);
+        assertEquals(CircuitBreakerFilter.State.HALF_OPEN, breaker.getState());
+        breaker.postprocess(slow, null);
+        assertEquals(CircuitBreakerFilter.State.HALF_OPEN, breaker.getState());
+
+        // A trial of an earlier half-open phase does not count either
+        breaker.postprocess(trial, down);
+        assertEquals(CircuitBreakerFilter.State.OPEN, breaker.getState());
+        Thread.sleep(30);
+        ContextBase second = new ContextBase();
+        breaker.execute(second);
+        breaker.postprocess(trial, null);
+        assertEquals(CircuitBreakerFilter.State.HALF_OPEN, breaker.getState());
+
+        breaker.postprocess(second, null);
+        assertEquals(CircuitBreakerFilter.State.CLOSED, breaker.getState());
+        assertTrue(second.isEmpty());
+    }
+
+    @Test
+    public void halfOpenWithoutVerdictRearms() throws Exception {
+        CircuitBreakerFilter breaker = new CircuitBreakerFilter();
+        breaker.setMinimumCalls(2);
+        breaker.setOpenMillis(30);
+        breaker.setHalfOpenCalls(1);
+        boolean[] error = {false};
+        ChainBase chain = new ChainBase(new Command[]{breaker, context -> {
+            if (error[0]) {
+                throw new Error("boom");
+            }
+            throw new IllegalStateException("down");
+        }});
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                chain.execute(new ContextBase());
+                fail();
+            } catch (IllegalStateException expected) {
+                // recorded
+            }
+        }
+        assertEquals(CircuitBreakerFilter.State.OPEN, breaker.getState());
+
+        // The trial ends with an Error, without postprocess()
+        Thread.sleep(40);
+        error[0] = true;
+        try {
+            chain.execute(new ContextBase());
+            fail();
+        } catch (Error expected) {
+            assertEquals(CircuitBreakerFilter.State.HALF_OPEN, breaker.getState());
+        }
+        for (int i = 0; i < 3; i++) {
+            try {
+                chain.execute(new ContextBase());
+                fail();
+            } catch (CommandRejectedException expected) {
+                assertSame(breaker, expected.getFilter());
+            }
+        }
+
+        Thread.sleep(40);
+        ContextBase trial = new ContextBase();
+        breaker.execute(trial);
+        breaker.postprocess(trial, null);
+        assertEquals(CircuitBreakerFilter.State.CLOSED, breaker.getState());
+    }
+}
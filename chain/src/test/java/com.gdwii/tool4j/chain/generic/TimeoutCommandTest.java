@@ -0,0 +1,97 @@
+package com.gdwii.tool4j.chain.generic;
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.impl.ContextBase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.generic.TimeoutCommandTest
+ * @description: 超时命令测试
+ * @author gdw
+ */
+public class TimeoutCommandTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void timesOut() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        TimeoutCommand command = new TimeoutCommand(context -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return true;
+        }, 20, TimeUnit.MILLISECONDS, executor);
+
+        try {
+            command.execute(new ContextBase());
+            fail();
+        } catch (TimeoutException expected) {
+            // timed out
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(new TimeoutCommand(context -> true, 1, TimeUnit.SECONDS, executor).execute(new ContextBase()));
+    }
+
+    @Test
+    public void asyncCommandTimesOut() throws Exception {
+        CompletableFuture<Boolean> never = new CompletableFuture<>();
+        TimeoutCommand command = new TimeoutCommand((AsyncCommand) context -> never, 20, TimeUnit.MILLISECONDS);
+
+        try {
+            command.execute(new ContextBase());
+            fail();
+        } catch (TimeoutException expected) {
+            // timed out
+        }
+        assertFalse(never.isDone());
+
+        AsyncCommand completed = context -> CompletableFuture.completedFuture(true);
+        assertTrue(new TimeoutCommand(completed, 1, TimeUnit.SECONDS).execute(new ContextBase()));
+    }
+
+    @Test
+    public void passesOtherExceptions() throws Exception {
+        IllegalStateException failure = new IllegalStateException("failure");
+        TimeoutCommand plain = new TimeoutCommand(context -> {
+            throw failure;
+        }, 1, TimeUnit.SECONDS, executor);
+        try {
+            plain.execute(new ContextBase());
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+
+        CompletableFuture<Boolean> failed = new CompletableFuture<>();
+        failed.completeExceptionally(failure);
+        TimeoutCommand async = new TimeoutCommand((AsyncCommand) context -> failed, 1, TimeUnit.SECONDS);
+        try {
+            async.execute(new ContextBase());
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void plainCommandNeedsExecutor() {
+        new TimeoutCommand(context -> true, 1, TimeUnit.SECONDS, null);
+    }
+}
@@ -0,0 +1,198 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.AsyncCommand;
+import com.gdwii.tool4j.chain.ChainListener;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.AsyncChainBaseTest
+ * @description: 异步责任链测试
+ * @author gdw
+ */
+public class AsyncChainBaseTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void composesAsyncCommands() throws Exception {
+        AsyncChainBase chain = new AsyncChainBase(new Command[]{
+                new LogFilter("filter"), sync("first", false), delayed("second", false), sync("third", true)
+        }, executor);
+
+        assertTrue(chain.executeAsync(new ContextBase()).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("filter", "first", "second", "third", "postprocess filter null"), log);
+    }
+
+    @Test
+    public void postprocessOnFailure() throws Exception {
+        IllegalStateException failure = new IllegalStateException("failure");
+        AsyncChainBase chain = new AsyncChainBase(new Command[]{
+                new LogFilter("outer"), new LogFilter("inner"), failing(failure), sync("skipped", false)
+        }, executor);
+
+        try {
+            chain.executeAsync(new ContextBase()).toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(Arrays.asList("outer", "inner",
+                "postprocess inner failure", "postprocess outer failure"), log);
+    }
+
+    @Test
+    public void nestedAndBlocking() throws Exception {
+        AsyncChainBase inner = new AsyncChainBase(new Command[]{delayed("inner", false)}, executor);
+        AsyncChainBase outer = new AsyncChainBase(new Command[]{inner, sync("outer", false)}, executor);
+
+        assertFalse(outer.execute(new ContextBase()));
+        assertEquals(Arrays.asList("inner", "outer"), log);
+    }
+
+    @Test
+    public void failingListenerCompletesResult() throws Exception {
+        IllegalStateException failure = new IllegalStateException("listener");
+        AsyncChainBase chain = new AsyncChainBase(new Command[]{
+                new LogFilter("filter"), delayed("async", false), sync("skipped", false)
+        }, executor);
+        chain.setListener(new ChainListener() {
+            @Override
+            public void commandExecuted(Context context, int index, Command command,
+                                        long elapsedNanos, boolean result, Exception exception) {
+                if (command instanceof AsyncCommand) {
+                    throw failure;
+                }
+            }
+
+            @Override
+            public void filterPostprocessed(Context context, int index, Filter filter,
+                                            long elapsedNanos, boolean handled) {
+            }
+        });
+
+        try {
+            chain.executeAsync(new ContextBase()).toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(Arrays.asList("filter", "async", "postprocess filter listener"), log);
+    }
+
+    @Test
+    public void postprocessRunsOnce() throws Exception {
+        IllegalStateException failure = new IllegalStateException("listener");
+        AsyncChainBase chain = new AsyncChainBase(new Command[]{
+                new LogFilter("filter"), delayed("async", true)
+        }, executor);
+        chain.setListener(new ChainListener() {
+            @Override
+            public void commandExecuted(Context context, int index, Command command,
+                                        long elapsedNanos, boolean result, Exception exception) {
+            }
+
+            @Override
+            public void filterPostprocessed(Context context, int index, Filter filter,
+                                            long elapsedNanos, boolean handled) {
+                throw failure;
+            }
+        });
+
+        try {
+            chain.executeAsync(new ContextBase()).toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(Arrays.asList("filter", "async", "postprocess filter null"), log);
+    }
+
+    @Test
+    public void rejectedContinuationCompletesResult() throws Exception {
+        // Runs the first task, then rejects the continuation of the async command
+        AtomicInteger tasks = new AtomicInteger();
+        Executor rejecting = task -> {
+            if (tasks.incrementAndGet() > 1) {
+                throw new RejectedExecutionException("rejected");
+            }
+            task.run();
+        };
+        AsyncChainBase chain = new AsyncChainBase(new Command[]{
+                new LogFilter("filter"), delayed("async", false), sync("skipped", false)
+        }, rejecting);
+
+        try {
+            chain.executeAsync(new ContextBase()).toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(Arrays.asList("filter", "async", "postprocess filter rejected"), log);
+    }
+
+    private Command sync(String name, boolean result) {
+        return context -> {
+            log.add(name);
+            return result;
+        };
+    }
+
+    private Command delayed(String name, boolean result) {
+        return (AsyncCommand) context -> {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            timer.schedule(() -> {
+                log.add(name);
+                future.complete(result);
+            }, 10, TimeUnit.MILLISECONDS);
+            return future;
+        };
+    }
+
+    private Command failing(Exception failure) {
+        return (AsyncCommand) context -> {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            timer.schedule(() -> future.completeExceptionally(failure), 10, TimeUnit.MILLISECONDS);
+            return future;
+        };
+    }
+
+    private class LogFilter implements Filter {
+        private final String name;
+
+        LogFilter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean execute(Context context) {
+            log.add(name);
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            log.add("postprocess " + name + " " + (exception == null ? null : exception.getMessage()));
+            return false;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.BatchCommand;
+import com.gdwii.tool4j.chain.BatchResult;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.BatchExecutionTest
+ * @description: 批量执行测试
+ * @author gdw
+ */
+public class BatchExecutionTest {
+    private static final int SIZE = 1000;
+
+    @Test
+    public void batchMatchesExecute() throws Exception {
+        ChainBase chain = new ChainBase(new Command[]{
+                new RecordingFilter(), new Doubler(), new Validator(), new Finisher()});
+
+        List<ContextBase> batch = contexts();
+        BatchResult result = chain.executeBatch(batch);
+
+        assertEquals(SIZE, result.size());
+        List<ContextBase> expectedContexts = contexts();
+        for (int k = 0; k < SIZE; k++) {
+            ContextBase expected = expectedContexts.get(k);
+            boolean expectedResult = false;
+            Exception expectedException = null;
+            try {
+                expectedResult = chain.execute(expected);
+            } catch (Exception e) {
+                expectedException = e;
+            }
+            assertEquals(new HashMap<>(expected), new HashMap<>(batch.get(k)));
+            assertEquals(expectedResult, result.getResult(k));
+            assertEquals(String.valueOf(expectedException), String.valueOf(result.getException(k)));
+        }
+        // Validator fails one in seven, and RecordingFilter handles one in three of those
+        assertTrue(result.getFailedCount() > 0);
+    }
+
+    @Test
+    public void batchCommandIsCalledPerChunk() {
+        Doubler doubler = new Doubler();
+        ChainBase chain = new ChainBase(new Command[]{doubler});
+
+        BatchResult result = chain.executeBatch(contexts());
+
+        assertEquals(0, result.getFailedCount());
+        assertTrue(doubler.calls.get() < SIZE / 100);
+    }
+
+    private static List<ContextBase> contexts() {
+        List<ContextBase> contexts = new ArrayList<>(SIZE);
+        for (int k = 0; k < SIZE; k++) {
+            ContextBase context = new ContextBase();
+            context.put("value", k);
+            contexts.add(context);
+        }
+        return contexts;
+    }
+
+    private static class RecordingFilter implements Filter {
+        @Override
+        public boolean execute(Context context) {
+            context.put("filtered", true);
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            context.put("postprocessed", exception == null ? "ok" : exception.getMessage());
+            return exception != null && (Integer) context.get("value") % 3 == 0;
+        }
+    }
+
+    private static class Doubler implements BatchCommand {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public BatchResult executeBatch(List<? extends Context> contexts) {
+            calls.incrementAndGet();
+            return BatchCommand.super.executeBatch(contexts);
+        }
+
+        @Override
+        public boolean execute(Context context) {
+            context.put("doubled", (Integer) context.get("value") * 2);
+            return false;
+        }
+    }
+
+    private static class Validator implements Command {
+        @Override
+        public boolean execute(Context context) {
+            int value = (Integer) context.get("value");
+            if (value % 7 == 0) {
+                throw new IllegalStateException("invalid " + value);
+            }
+            return value % 5 == 0;
+        }
+    }
+
+    private static class Finisher implements Command {
+        @Override
+        public boolean execute(Context context) {
+            context.put("finished", true);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.CatalogFactory;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.CommandHandle;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.CatalogFactoryBaseTest
+ * @description: 命令ID解析缓存测试
+ * @author gdw
+ */
+public class CatalogFactoryBaseTest {
+
+    @Test
+    public void handlesFollowRegistryChanges() throws Exception {
+        CatalogFactory factory = new CatalogFactoryBase();
+        CommandHandle handle = factory.getCommandHandle("catalog:command");
+        assertSame(handle, factory.getCommandHandle("catalog:command"));
+        assertNull(handle.getCommand());
+
+        CatalogBase catalog = new CatalogBase();
+        factory.addCatalog("catalog", catalog);
+        assertNull(handle.getCommand());
+
+        Command command = context -> true;
+        catalog.addCommand("command", command);
+        assertSame(command, handle.getCommand());
+        assertSame(command, factory.getCommand("catalog:command"));
+        assertTrue(handle.execute(new ContextBase()));
+
+        CatalogBase replacement = new CatalogBase();
+        Command other = context -> false;
+        replacement.addCommand("command", other);
+        factory.addCatalog("catalog", replacement);
+        assertSame(other, handle.getCommand());
+    }
+
+    @Test
+    public void rejectsMalformedIds() {
+        CatalogFactory factory = new CatalogFactoryBase();
+        for (String commandID : new String[]{null, "command", " :command", "catalog: ", "a:b:c"}) {
+            try {
+                factory.getCommand(commandID);
+                fail(commandID);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.ChainCompilerTest
+ * @description: 扁平化责任链与嵌套责任链的执行结果一致性测试
+ * @author gdw
+ */
+public class ChainCompilerTest {
+    private final Random random = new Random(20190601L);
+
+    @Test
+    public void flattensNestedChains() {
+        ChainBase chain = new ChainBase(new Command[]{
+                new LogFilter("a", false),
+                new ChainBase(new Command[]{new LogCommand("b", Outcome.CONTINUE), new ChainBase(new Command[0])}),
+                new LogCommand("c", Outcome.COMPLETE)
+        });
+
+        CompiledChain compiled = ChainCompiler.compile(chain);
+        assertEquals(3, compiled.commands.length);
+    }
+
+    @Test
+    public void equivalentToNestedChains() throws Exception {
+        for (int round = 0; round < 2000; round++) {
+            ChainBase chain = randomChain(0);
+            CompiledChain compiled = ChainCompiler.compile(chain);
+
+            assertEquals("round " + round, run(chain), run(compiled));
+        }
+    }
+
+    private List<String> run(ChainBase chain) {
+        ContextBase context = new ContextBase();
+        List<String> log = new ArrayList<>();
+        context.put("log", log);
+        try {
+            log.add("result " + chain.execute(context));
+        } catch (Exception e) {
+            log.add("exception " + e.getMessage());
+        }
+        return log;
+    }
+
+    private ChainBase randomChain(int depth) {
+        int n = random.nextInt(5);
+        Command[] commands = new Command[n];
+        for (int i = 0; i < n; i++) {
+            int kind = random.nextInt(depth < 3 ? 4 : 3);
+            String name = depth + "." + i;
+            if (kind == 0) {
+                commands[i] = new LogFilter(name, random.nextInt(3) == 0);
+            } else if (kind == 3) {
+                commands[i] = randomChain(depth + 1);
+            } else {
+                int outcome = random.nextInt(10);
+                commands[i] = new LogCommand(name,
+                        outcome < 6 ? Outcome.CONTINUE : outcome < 8 ? Outcome.COMPLETE : Outcome.FAIL);
+            }
+        }
+        return new ChainBase(commands);
+    }
+
+    private enum Outcome {CONTINUE, COMPLETE, FAIL}
+
+    @SuppressWarnings("unchecked")
+    private static void log(Context context, String message) {
+        ((List<String>) context.get("log")).add(message);
+    }
+
+    private static class LogCommand implements Command {
+        private final String name;
+        private final Outcome outcome;
+
+        LogCommand(String name, Outcome outcome) {
+            this.name = name;
+            this.outcome = outcome;
+        }
+
+        @Override
+        public boolean execute(Context context) {
+            log(context, "execute " + name);
+            if (outcome == Outcome.FAIL) {
+                throw new IllegalStateException(name);
+            }
+            return outcome == Outcome.COMPLETE;
+        }
+    }
+
+    private static class LogFilter implements Filter {
+        private final String name;
+        private final boolean handles;
+
+        LogFilter(String name, boolean handles) {
+            this.name = name;
+            this.handles = handles;
+        }
+
+        @Override
+        public boolean execute(Context context) {
+            log(context, "execute " + name);
+            return false;
+        }
+
+        @Override
+        public boolean postprocess(Context context, Exception exception) {
+            log(context, "postprocess " + name + " " + (exception == null ? null : exception.getMessage()));
+            return handles;
+        }
+    }
+}
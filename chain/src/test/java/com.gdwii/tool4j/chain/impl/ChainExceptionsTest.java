@@ -0,0 +1,65 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import com.gdwii.tool4j.chain.controller.impl.RequestContext;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.ChainExceptionsTest
+ * @description: 无栈异常模式与postprocess异常计数测试
+ * @author gdw
+ */
+public class ChainExceptionsTest {
+    @Test
+    public void stacklessPropertyAccessException() {
+        boolean stackless = ChainExceptions.isStackless();
+        try {
+            ChainExceptions.setStackless(true);
+            try {
+                new RequestContext("request").put("name", "other");
+                fail();
+            } catch (PropertyAccessException e) {
+                assertEquals(0, e.getStackTrace().length);
+                assertEquals("name", e.getProperty());
+                assertEquals("Property 'name' is not writeable", e.getMessage());
+            }
+
+            ChainExceptions.setStackless(false);
+            try {
+                new RequestContext("request").remove("name");
+                fail();
+            } catch (PropertyAccessException e) {
+                assertTrue(e.getStackTrace().length > 0);
+                assertEquals(PropertyAccessException.Reason.NOT_REMOVABLE, e.getReason());
+            }
+        } finally {
+            ChainExceptions.setStackless(stackless);
+        }
+    }
+
+    @Test
+    public void countsPostprocessFailures() throws Exception {
+        Filter failing = new Filter() {
+            @Override
+            public boolean execute(Context context) {
+                return false;
+            }
+
+            @Override
+            public boolean postprocess(Context context, Exception exception) {
+                throw new IllegalStateException("postprocess");
+            }
+        };
+        ChainBase chain = new ChainBase(new Command[]{failing, context -> true});
+
+        long before = ChainExceptions.getPostprocessFailureCount();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(chain.execute(new ContextBase()));
+        }
+        assertEquals(before + 3, ChainExceptions.getPostprocessFailureCount());
+    }
+}
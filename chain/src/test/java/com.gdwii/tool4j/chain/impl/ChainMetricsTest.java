@@ -0,0 +1,112 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.ChainMetricsTest
+ * @description: 责任链命令耗时统计测试
+ * @author gdw
+ */
+public class ChainMetricsTest {
+
+    @Test
+    public void histogramBuckets() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            long lowest = LatencyHistogram.lowestValueOf(index);
+            assertTrue(lowest <= value);
+            assertTrue(value - lowest <= lowest / 16);
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500000, histogram.getPercentile(50.0), 500000 / 16);
+        assertEquals(990000, histogram.getPercentile(99.0), 990000 / 16);
+        assertEquals(1000000, histogram.getMax());
+    }
+
+    @Test
+    public void histogramRecordsConcurrently() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(1000L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400000, histogram.getCount());
+        assertEquals(1000, histogram.getPercentile(100.0), 1000 / 16);
+
+        histogram.reset();
+        assertEquals(0, histogram.getPercentile(50.0));
+    }
+
+    @Test
+    public void recordsOutcomes() throws Exception {
+        Filter filter = new Filter() {
+            @Override
+            public boolean execute(Context context) {
+                return false;
+            }
+
+            @Override
+            public boolean postprocess(Context context, Exception exception) {
+                return exception != null;
+            }
+        };
+        Command command = context -> {
+            if (context.containsKey("fail")) {
+                throw new IllegalStateException();
+            }
+            return context.containsKey("complete");
+        };
+        CatalogBase catalog = new CatalogBase();
+        ChainBase chain = new ChainBase(new Command[]{filter, command});
+        catalog.addCommand("chain", chain);
+
+        List<ChainMetrics> installed = ChainMetrics.install("metricsTest", catalog);
+        try {
+            chain.execute(new ContextBase());
+            ContextBase complete = new ContextBase();
+            complete.put("complete", true);
+            chain.execute(complete);
+            ContextBase fail = new ContextBase();
+            fail.put("fail", true);
+            chain.execute(fail);
+
+            List<CommandMetrics> metrics = installed.get(0).getCommandMetrics();
+            assertEquals(3, metrics.get(0).getContinuedCount());
+            assertEquals(3, metrics.get(0).getPostprocessCount());
+            assertEquals(1, metrics.get(0).getHandledCount());
+            assertEquals(1, metrics.get(1).getCompletedCount());
+            assertEquals(1, metrics.get(1).getContinuedCount());
+            assertEquals(1, metrics.get(1).getExceptionCount());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(ChainMetrics.DOMAIN + ":type=Command,catalog=\"metricsTest\",*");
+            assertEquals(2, server.queryNames(name, null).size());
+        } finally {
+            installed.forEach(ChainMetrics::uninstall);
+        }
+        assertNull(chain.getListener());
+    }
+}
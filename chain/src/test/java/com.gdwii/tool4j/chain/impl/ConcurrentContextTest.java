@@ -0,0 +1,79 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.Command;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.ConcurrentContextTest
+ * @description: 线程安全Context测试
+ * @author gdw
+ */
+public class ConcurrentContextTest {
+
+    @Test
+    public void propertiesAndAttributes() {
+        CounterContext context = new CounterContext();
+        context.put("name", "counter");
+        context.put("attribute", "value");
+        context.put("attribute", null);
+
+        assertEquals("counter", context.getName());
+        assertFalse(context.containsKey("attribute"));
+        assertEquals(1, context.size());
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("name", "counter");
+        assertEquals(expected, context);
+        try {
+            context.remove("name");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void atomicMergeFromParallelCommands() throws Exception {
+        int threads = 8;
+        int increments = 10000;
+        Command[] commands = new Command[threads];
+        for (int i = 0; i < threads; i++) {
+            commands[i] = context -> {
+                for (int j = 0; j < increments; j++) {
+                    context.merge("count", 1, (a, b) -> (Integer) a + (Integer) b);
+                    context.compute("name", (key, value) -> value == null ? "1" : String.valueOf(Integer.parseInt((String) value) + 1));
+                }
+                return false;
+            };
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CounterContext context = new CounterContext();
+            new ParallelChain(commands, executor).execute(context);
+
+            assertEquals(threads * increments, context.get("count"));
+            assertEquals(String.valueOf(threads * increments), context.getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static class CounterContext extends ConcurrentContext {
+        private volatile String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
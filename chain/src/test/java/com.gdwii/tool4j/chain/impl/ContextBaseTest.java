@@ -0,0 +1,229 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.ContextKey;
+import com.gdwii.tool4j.chain.controller.impl.RequestContext;
+import com.gdwii.tool4j.chain.controller.impl.ResponseContext;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.ContextBaseTest
+ * @description: ContextBase属性与属性值透明性测试
+ * @author gdw
+ */
+public class ContextBaseTest {
+    private static final ContextKey<String> USER = ContextKey.of("test.user", String.class);
+    private static final ContextKey<Integer> COUNT = ContextKey.of("test.count", Integer.class);
+
+    @Test
+    public void propertyReadWrite() {
+        RequestContext context = new RequestContext("request");
+        ResponseContext response = new ResponseContext("response");
+
+        assertEquals("request", context.get("name"));
+        assertNull(context.put("response", response));
+        assertSame(response, context.getResponse());
+        assertSame(response, context.get("response"));
+        assertTrue(context.containsValue(response));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyProperty() {
+        new RequestContext("request").put("name", "other");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void wrongPropertyType() {
+        new RequestContext("request").put("response", "not a response");
+    }
+
+    @Test
+    public void attributes() {
+        RequestContext context = new RequestContext("request");
+        assertNull(context.put("attribute", 1));
+        assertEquals(1, context.put("attribute", 2));
+        assertEquals(2, context.get("attribute"));
+        assertEquals(3, context.size()); // name, response, attribute
+        assertEquals(2, context.remove("attribute"));
+        assertFalse(context.containsKey("attribute"));
+    }
+
+    @Test
+    public void views() {
+        RequestContext context = new RequestContext("request");
+        context.put("attribute", "value");
+
+        Map<String, Object> copy = new HashMap<>();
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(3, copy.size());
+        assertEquals("request", copy.get("name"));
+        assertEquals("value", copy.get("attribute"));
+        assertTrue(copy.containsKey("response"));
+
+        assertTrue(context.keySet().contains("name"));
+        assertTrue(context.values().contains("value"));
+        assertEquals(3, context.values().size());
+
+        // views are live
+        context.put("other", "value");
+        assertEquals(4, context.keySet().size());
+        assertTrue(context.keySet().remove("other"));
+        assertFalse(context.containsKey("other"));
+
+        Map<String, Object> visited = new HashMap<>();
+        context.forEach(visited::put);
+        assertEquals(copy, visited);
+    }
+
+    @Test
+    public void entrySetWritesThrough() {
+        RequestContext context = new RequestContext("request");
+        ResponseContext response = new ResponseContext("response");
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            if ("response".equals(entry.getKey())) {
+                entry.setValue(response);
+            }
+        }
+        assertSame(response, context.getResponse());
+    }
+
+    @Test
+    public void iteratorRemove() {
+        RequestContext context = new RequestContext("request");
+        context.put("attribute", "value");
+        Iterator<String> keys = context.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if ("attribute".equals(key)) {
+                keys.remove();
+            } else {
+                try {
+                    keys.remove();
+                    fail("property " + key + " removed");
+                } catch (UnsupportedOperationException e) {
+                    // expected
+                }
+            }
+        }
+        assertEquals(2, context.size());
+    }
+
+    @Test
+    public void computeIfAbsent() {
+        RequestContext context = new RequestContext("request");
+        ResponseContext response = new ResponseContext("response");
+        assertSame(response, context.computeIfAbsent("response", key -> response));
+        assertSame(response, context.getResponse());
+        assertEquals("value", context.computeIfAbsent("attribute", key -> "value"));
+        assertEquals("value", context.computeIfAbsent("attribute", key -> "other"));
+        assertNull(context.computeIfAbsent("missing", key -> null));
+        assertFalse(context.containsKey("missing"));
+        assertEquals("default", context.getOrDefault("missing", "default"));
+    }
+
+    @Test
+    public void contextKeys() {
+        ContextBase context = new ContextBase();
+        assertNull(context.put(USER, "gdw"));
+        assertEquals("gdw", context.get(USER));
+        assertEquals("gdw", context.get(USER.getName()));
+        assertEquals("gdw", context.put(USER.getName(), "other"));
+        assertEquals("other", context.get(USER));
+
+        context.put(COUNT, 1);
+        context.put("attribute", "value");
+        assertEquals(3, context.size());
+        assertEquals(3, context.entrySet().size());
+        assertTrue(context.containsKey(COUNT.getName()));
+        assertTrue(context.containsValue(1));
+
+        Map<String, Object> copy = new HashMap<>(context);
+        assertEquals(1, copy.get(COUNT.getName()));
+        assertEquals("other", copy.get(USER.getName()));
+
+        assertEquals(Integer.valueOf(1), context.remove(COUNT));
+        assertNull(context.get(COUNT));
+        context.put(COUNT, null);
+        assertEquals(2, context.size());
+
+        context.clear();
+        assertTrue(context.isEmpty());
+        assertNull(context.get(USER));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void contextKeyNameChecksType() {
+        new ContextBase().put(COUNT.getName(), "one");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void contextKeyType() {
+        new ContextBase().put(COUNT.getName(), "not a number");
+    }
+
+    @Test
+    public void primitiveAndNonPublicProperty() {
+        HiddenContext context = new HiddenContext();
+        context.put("count", 3);
+        assertEquals(3, context.get("count"));
+        assertEquals(3, context.count);
+    }
+
+    static class HiddenContext extends ContextBase {
+        private int count;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+
+    /**
+     * 子类加载器加载的ContextBase子类，属性访问不能依赖chain所在类加载器可见的类
+     */
+    @Test
+    public void subclassOfChildClassLoader() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+
+        Path dir = Files.createTempDirectory("child");
+        Path source = dir.resolve("p/MyCtx.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, ("package p;\n"
+                + "public class MyCtx extends com.gdwii.tool4j.chain.impl.ContextBase {\n"
+                + "    private String foo = \"bar\";\n"
+                + "    public String getFoo() { return foo; }\n"
+                + "    public void setFoo(String foo) { this.foo = foo; }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+        String classPath = new File(ContextBase.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                + File.pathSeparator + System.getProperty("java.class.path");
+        assertEquals(0, compiler.run(null, null, null, "-classpath", classPath, "-d", dir.toString(), source.toString()));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> context = (Map<String, Object>) loader.loadClass("p.MyCtx").newInstance();
+            assertEquals("bar", context.get("foo"));
+            assertEquals("bar", context.put("foo", "baz"));
+            assertEquals("baz", context.get("foo"));
+        }
+    }
+}
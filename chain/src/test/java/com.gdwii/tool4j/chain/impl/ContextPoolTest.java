@@ -0,0 +1,35 @@
+package com.gdwii.tool4j.chain.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.ContextPoolTest
+ * @description: ContextPool复用及调试模式测试
+ * @author gdw
+ */
+public class ContextPoolTest {
+    @Test
+    public void reuse() throws Exception {
+        ContextPool<ContextBase> pool = new ContextPool<>(ContextBase::new);
+        ContextBase first = pool.acquire();
+        first.put("attribute", "value");
+        pool.release(first);
+
+        ContextBase second = pool.acquire();
+        assertSame(first, second);
+        assertTrue(second.isEmpty());
+
+        assertTrue(pool.execute(context -> context.containsKey("attribute"),
+                context -> context.put("attribute", "value")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseTwice() {
+        ContextPool<ContextBase> pool = new ContextPool<>(ContextBase::new, 4, true);
+        ContextBase context = pool.acquire();
+        pool.release(context);
+        pool.release(context);
+    }
+}
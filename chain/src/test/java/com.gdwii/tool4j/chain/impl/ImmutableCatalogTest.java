@@ -0,0 +1,80 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.Command;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.ImmutableCatalogTest
+ * @description: 不可变命令目录测试
+ * @author gdw
+ */
+public class ImmutableCatalogTest {
+
+    @Test
+    public void perfectHashLookup() {
+        for (int n : new int[]{0, 1, 2, 7, 100, 5000}) {
+            Map<String, Command> commands = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                commands.put("command" + i, context -> false);
+            }
+            ImmutableCatalog catalog = new ImmutableCatalog(commands);
+
+            assertEquals(n, catalog.size());
+            for (Map.Entry<String, Command> entry : commands.entrySet()) {
+                assertSame(entry.getValue(), catalog.getCommand(new String(entry.getKey())));
+            }
+            assertNull(catalog.getCommand("missing"));
+            assertNull(catalog.getCommand(null));
+        }
+    }
+
+    @Test
+    public void equalHashCodes() {
+        Map<String, Command> commands = new HashMap<>();
+        Command aa = context -> false;
+        Command bb = context -> true;
+        // "Aa" and "BB" have the same hash code
+        commands.put("Aa", aa);
+        commands.put("BB", bb);
+        ImmutableCatalog catalog = new ImmutableCatalog(commands);
+
+        assertSame(aa, catalog.getCommand("Aa"));
+        assertSame(bb, catalog.getCommand("BB"));
+        assertNull(catalog.getCommand("C"));
+    }
+
+    @Test
+    public void copyOnWrite() {
+        CatalogBase source = new CatalogBase();
+        Command first = context -> false;
+        source.addCommand("first", first);
+        CopyOnWriteCatalog catalog = new CopyOnWriteCatalog(source);
+        ImmutableCatalog snapshot = catalog.getSnapshot();
+
+        Command second = context -> true;
+        catalog.addCommand("second", second);
+        assertSame(first, catalog.getCommand("first"));
+        assertSame(second, catalog.getCommand("second"));
+        assertNull(snapshot.getCommand("second"));
+
+        List<String> names = new ArrayList<>();
+        for (Iterator<String> iterator = catalog.getNames(); iterator.hasNext(); ) {
+            names.add(iterator.next());
+        }
+        assertEquals(2, names.size());
+        try {
+            snapshot.addCommand("third", second);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+}
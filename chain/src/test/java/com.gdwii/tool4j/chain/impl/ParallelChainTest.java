@@ -0,0 +1,127 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.BatchResult;
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.Context;
+import com.gdwii.tool4j.chain.Filter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.ParallelChainTest
+ * @description: 并行命令组测试
+ * @author gdw
+ */
+public class ParallelChainTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void runsConcurrently() throws Exception {
+        CountDownLatch latch = new CountDownLatch(3);
+        Command[] commands = new Command[3];
+        for (int i = 0; i < commands.length; i++) {
+            String name = "lookup" + i;
+            commands[i] = context -> {
+                latch.countDown();
+                // Only completes if all commands run at the same time
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+                context.put(name, Thread.currentThread().getName());
+                return false;
+            };
+        }
+        ContextBase context = new ContextBase();
+
+        assertFalse(new ParallelChain(commands, executor).execute(context));
+        assertEquals(3, context.size());
+    }
+
+    @Test
+    public void mergesExceptionsInOrder() throws Exception {
+        IllegalStateException first = new IllegalStateException("first");
+        IllegalArgumentException second = new IllegalArgumentException("second");
+        ParallelChain chain = new ParallelChain(new Command[]{
+                context -> true,
+                context -> {
+                    Thread.sleep(50);
+                    throw first;
+                },
+                context -> {
+                    throw second;
+                }
+        }, executor);
+
+        try {
+            chain.execute(new ContextBase());
+            fail();
+        } catch (ParallelExecutionException e) {
+            assertSame(first, e.getCause());
+            assertEquals(Arrays.asList(first, second), e.getFailures());
+            assertArrayEquals(new Throwable[]{second}, e.getSuppressed());
+            // The exceptions of the commands are left as they were
+            assertEquals(0, first.getSuppressed().length);
+        }
+    }
+
+    @Test
+    public void singleExceptionIsThrownAsIs() throws Exception {
+        IllegalStateException failure = new IllegalStateException("failure");
+        ParallelChain chain = new ParallelChain(new Command[]{
+                context -> false,
+                context -> {
+                    throw failure;
+                }
+        }, executor);
+
+        try {
+            chain.execute(new ContextBase());
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void batchIgnoresExecutor() throws Exception {
+        ParallelChain chain = new ParallelChain(new Command[]{context -> context.put("seen", true) == null}, executor);
+
+        BatchResult batch = chain.executeBatch(Arrays.asList(new ContextBase(), new ContextBase()), null);
+        assertTrue(batch.getResult(0));
+        assertTrue(batch.getResult(1));
+    }
+
+    @Test
+    public void filterHandlesException() throws Exception {
+        StringBuilder log = new StringBuilder();
+        Filter filter = new Filter() {
+            @Override
+            public boolean execute(Context context) {
+                return false;
+            }
+
+            @Override
+            public boolean postprocess(Context context, Exception exception) {
+                log.append(exception.getMessage());
+                return true;
+            }
+        };
+        ParallelChain chain = new ParallelChain(new Command[]{filter, context -> {
+            throw new IllegalStateException("failure");
+        }}, executor);
+
+        assertFalse(chain.execute(new ContextBase()));
+        assertEquals("failure", log.toString());
+    }
+}
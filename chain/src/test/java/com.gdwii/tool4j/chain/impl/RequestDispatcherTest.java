@@ -0,0 +1,74 @@
+package com.gdwii.tool4j.chain.impl;
+
+import com.gdwii.tool4j.chain.Command;
+import com.gdwii.tool4j.chain.controller.impl.ControllerCatalog;
+import com.gdwii.tool4j.chain.controller.impl.HandlerCommand;
+import com.gdwii.tool4j.chain.controller.impl.RequestContext;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.RequestDispatcherTest
+ * @description: 请求分发器测试
+ * @author gdw
+ */
+public class RequestDispatcherTest {
+    @Test
+    public void dispatchesToController() throws Exception {
+        ControllerCatalog controller = new ControllerCatalog();
+        controller.addHandler(new HandlerCommand("login"));
+        CatalogFactoryBase factory = new CatalogFactoryBase();
+        factory.addCatalog("web", controller);
+
+        try (RequestDispatcher dispatcher = new RequestDispatcher("web", factory, 2, 8)) {
+            RequestContext request = new RequestContext("login");
+            assertTrue(dispatcher.dispatch("web:login", request).get(5, TimeUnit.SECONDS));
+            assertEquals("login", request.getResponse().getName());
+
+            assertTrue(dispatcher.execute("web:login", new RequestContext("login")));
+            assertEquals(2, dispatcher.getCompletedCount());
+            assertEquals(0, dispatcher.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Command blocking = context -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        };
+
+        try (RequestDispatcher dispatcher = new RequestDispatcher("test", new CatalogFactoryBase(), 1, 1)) {
+            CompletableFuture<Boolean> first = dispatcher.dispatch(blocking, new ContextBase());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Boolean> second = dispatcher.dispatch(blocking, new ContextBase());
+            assertEquals(1, dispatcher.getActiveCount());
+            assertEquals(1, dispatcher.getQueueDepth());
+
+            CompletableFuture<Boolean> third = dispatcher.dispatch(blocking, new ContextBase(), 10, TimeUnit.MILLISECONDS);
+            try {
+                third.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            assertEquals(1, dispatcher.getRejectedCount());
+
+            release.countDown();
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertTrue(second.get(5, TimeUnit.SECONDS));
+            dispatcher.shutdown();
+            assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(2, dispatcher.getSubmittedCount());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.gdwii.tool4j.chain.impl;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @className: com.gdwii.tool4j.chain.impl.SynchronizedContextTest
+ * @description: SynchronizedContext以自身为锁的测试
+ * @author gdw
+ */
+public class SynchronizedContextTest {
+    @Test
+    public void iterationUnderViewLockExcludesWriters() throws Exception {
+        ContextBase context = new ContextBase();
+        for (int i = 0; i < 100; i++) {
+            context.put("key" + i, i);
+        }
+        SynchronizedContext view = new SynchronizedContext(context);
+
+        Thread writer = new Thread(() -> view.put("written", "value"));
+        synchronized (view) {
+            writer.start();
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (writer.getState() != Thread.State.BLOCKED) {
+                assertTrue("writer was not blocked by the view lock: " + writer.getState(),
+                        writer.isAlive() && System.nanoTime() < deadline);
+                Thread.yield();
+            }
+
+            int count = 0;
+            for (Map.Entry<String, Object> entry : view.entrySet()) {
+                assertNotNull(entry.getKey());
+                count++;
+            }
+            assertEquals(100, count);
+            assertFalse(context.containsKey("written"));
+        }
+        writer.join(5000);
+        assertEquals("value", view.get("written"));
+        assertEquals(101, view.keySet().size());
+    }
+
+    @Test
+    public void compoundOperationsHoldViewLock() throws Exception {
+        SynchronizedContext view = new SynchronizedContext(new ContextBase());
+        Thread writer = new Thread(() -> view.computeIfAbsent("computed", key -> "value"));
+        synchronized (view) {
+            writer.start();
+            writer.join(200);
+            assertTrue(writer.isAlive());
+            assertFalse(view.getContext().containsKey("computed"));
+        }
+        writer.join(5000);
+        assertEquals("value", view.get("computed"));
+    }
+}
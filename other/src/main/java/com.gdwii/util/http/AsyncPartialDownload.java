@@ -0,0 +1,420 @@
+package com.gdwii.util.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 异步分段下载实现
+ *
+ * PartialDownload在整个下载过程中占用一个容器线程，慢速客户端会耗尽容器的线程池。
+ * 本类基于Servlet 3.1的AsyncContext及WriteListener：消息头的处理与PartialDownload相同，
+ * 数据只在输出就绪(isReady)时写出一块，输出未就绪时立即返回，由容器在可写时回调，少量线程即可服务大量慢速下载。
+ *
+ * 		bytesPerSecond限制单个连接的带宽(令牌桶，最多积累一秒的令牌)，令牌不足时由定时线程在令牌足够后继续写出；
+ * 		transferPermits限制同时进行的下载数，多个下载请求应共用同一个Semaphore，没有许可时响应503及Retry-After。
+ *
+ * 请求不支持异步(isAsyncSupported为false)时按PartialDownload同步下载。
+ * @author gdwii
+ *
+ */
+public class AsyncPartialDownload extends PartialDownload {
+	/**
+	 * 每次写出的最大字节数
+	 */
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * 令牌不足时继续写出的定时线程
+	 */
+	private static final ScheduledThreadPoolExecutor TIMER;
+
+	static {
+		AtomicInteger threadNumber = new AtomicInteger();
+		TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "download-throttle-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		TIMER.setRemoveOnCancelPolicy(true);
+	}
+
+	private final HttpServletRequest request;
+	private final HttpServletResponse response;
+	private final File file;
+
+	/**
+	 * 单个连接每秒最多写出的字节数，0表示不限制
+	 */
+	private long bytesPerSecond;
+
+	/**
+	 * 同时进行的下载的许可，为null表示不限制
+	 */
+	private Semaphore transferPermits;
+
+	/**
+	 * 没有许可时Retry-After的秒数
+	 */
+	private int retryAfterSeconds = 1;
+
+	/**
+	 * 异步请求的超时时间，0表示不超时，由容器的连接超时处理停滞的客户端
+	 */
+	private long asyncTimeout;
+
+	/**
+	 * 是否已开始异步写出，开始后由写出结束时释放许可
+	 */
+	private boolean started;
+
+	public AsyncPartialDownload(HttpServletRequest request, HttpServletResponse response, File file) {
+		super(request, response, file);
+		this.request = request;
+		this.response = response;
+		this.file = file;
+	}
+
+	/**
+	 * @param bytesPerSecond 单个连接每秒最多写出的字节数，0表示不限制
+	 */
+	public void setBytesPerSecond(long bytesPerSecond) {
+		if(bytesPerSecond < 0){
+			throw new IllegalArgumentException("bytesPerSecond must not be negative");
+		}
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * @param transferPermits 同时进行的下载的许可，多个下载请求共用
+	 */
+	public void setTransferPermits(Semaphore transferPermits) {
+		this.transferPermits = transferPermits;
+	}
+
+	public void setRetryAfterSeconds(int retryAfterSeconds) {
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	/**
+	 * @param asyncTimeout 异步请求的超时时间(毫秒)，0表示不超时
+	 */
+	public void setAsyncTimeout(long asyncTimeout) {
+		this.asyncTimeout = asyncTimeout;
+	}
+
+	/**
+	 * 获取许可后开始下载，没有许可则响应503
+	 * 需要写出数据时开始异步写出并立即返回，写出结束时释放许可
+	 */
+	@Override
+	public void download(){
+		if(transferPermits != null && !transferPermits.tryAcquire()){
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+			return;
+		}
+		try{
+			super.download();
+		}finally {
+			if(!started && transferPermits != null){
+				transferPermits.release(); // 304、416或同步下载
+			}
+		}
+	}
+
+	@Override
+	void copyData(List<Range> ranges, String boundary) {
+		if(!request.isAsyncSupported()){
+			super.copyData(ranges, boundary);
+			return;
+		}
+
+		MappedFileCache.Mapping mapping = null;
+		FileChannel in = null;
+		try{
+			mapping = acquireMapping();
+			if(mapping == null){
+				in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			}
+			ServletOutputStream out = response.getOutputStream();
+			AsyncContext asyncContext = request.startAsync();
+			asyncContext.setTimeout(asyncTimeout);
+			Writer writer = new Writer(asyncContext, out, parts(ranges, boundary), mapping, in);
+			asyncContext.addListener(writer);
+			started = true; // 此后由writer释放资源及许可
+			try{
+				out.setWriteListener(writer);
+			}catch (RuntimeException e){
+				writer.finish();
+				throw e;
+			}
+		}catch (IOException | RuntimeException e){
+			if(!started){
+				closeQuietly(mapping, in);
+			}
+			throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 依次写出的各部分，multipart/byteranges时每部分先写出分段消息头
+	 */
+	private List<Part> parts(List<Range> ranges, String boundary) {
+		List<Part> parts = new ArrayList<>();
+		for(Range range : ranges){
+			parts.add(new Part(boundary == null ? null : partHeader(boundary, range), range.start, range.end));
+		}
+		if(boundary != null){
+			parts.add(new Part(closeDelimiter(boundary), 0, -1));
+		}
+		return parts;
+	}
+
+	private static void closeQuietly(MappedFileCache.Mapping mapping, FileChannel in) {
+		if(mapping != null){
+			mapping.close();
+		}
+		if(in != null){
+			try {
+				in.close();
+			} catch (IOException e) {
+				// 忽略
+			}
+		}
+	}
+
+	/**
+	 * 先写出prefix，再写出文件[start, end]
+	 */
+	private static final class Part {
+		final byte[] prefix;
+		final long start;
+		final long end;
+
+		Part(String prefix, long start, long end) {
+			this.prefix = prefix == null ? null : prefix.getBytes(StandardCharsets.ISO_8859_1);
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * 输出就绪时写出数据，同一时刻只由容器回调或定时线程中的一个调用onWritePossible
+	 *
+	 * 		onError、onTimeout及onComplete可能与写出并发，由其它线程释放资源；
+	 * 		读取文件(fill)与释放资源(release)在同一把锁(Writer)内进行，结束后不再读取已关闭的文件或已解除的映射。
+	 */
+	private final class Writer implements WriteListener, AsyncListener {
+		private final AsyncContext asyncContext;
+		private final ServletOutputStream out;
+		private final List<Part> parts;
+		private final MappedFileCache.Mapping mapping;
+		private final FileChannel in;
+		private final AtomicBoolean finished = new AtomicBoolean();
+
+		/**
+		 * 待写出的数据为chunk[offset, offset + pending)
+		 */
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private byte[] chunk;
+		private int offset;
+		private int pending;
+
+		/**
+		 * 当前部分的序号、是否已写出prefix及文件的下一个读取位置
+		 */
+		private int partIndex;
+		private boolean prefixWritten;
+		private long position;
+
+		/**
+		 * 令牌桶中的字节数及上次补充令牌的时间
+		 */
+		private long tokens;
+		private long refillNanos = System.nanoTime();
+
+		Writer(AsyncContext asyncContext, ServletOutputStream out, List<Part> parts, MappedFileCache.Mapping mapping, FileChannel in) {
+			this.asyncContext = asyncContext;
+			this.out = out;
+			this.parts = parts;
+			this.mapping = mapping;
+			this.in = in;
+			this.tokens = bytesPerSecond;
+		}
+
+		@Override
+		public void onWritePossible() throws IOException {
+			while(!finished.get() && out.isReady()){
+				if(pending == 0 && !fill()){
+					finish();
+					return;
+				}
+
+				int len = pending;
+				if(bytesPerSecond > 0){
+					len = (int) Math.min(len, acquireTokens());
+					if(len == 0){
+						// 令牌不足，输出仍然就绪，容器不会回调，由定时线程在积累约0.1秒的令牌后继续
+						long wanted = Math.min(pending, Math.max(bytesPerSecond / 10, 1));
+						long delayNanos = TimeUnit.SECONDS.toNanos(1) * wanted / bytesPerSecond;
+						TIMER.schedule(this::scheduleResume, Math.max(delayNanos, 1), TimeUnit.NANOSECONDS);
+						return;
+					}
+					tokens -= len;
+				}
+				out.write(chunk, offset, len);
+				offset += len;
+				pending -= len;
+			}
+		}
+
+		/**
+		 * 定时线程中执行，写出已结束时不再继续
+		 */
+		private void scheduleResume() {
+			if(finished.get()){
+				return;
+			}
+			try{
+				asyncContext.start(this::resume);
+			}catch (IllegalStateException e){
+				// 异步请求已结束
+			}
+		}
+
+		private void resume() {
+			if(finished.get()){
+				return;
+			}
+			try{
+				onWritePossible();
+			}catch (IOException | RuntimeException e){
+				onError(e);
+			}
+		}
+
+		/**
+		 * 补充令牌，最多积累一秒的令牌
+		 * @return 可用的令牌数
+		 */
+		private long acquireTokens() {
+			long now = System.nanoTime();
+			long elapsed = Math.min(now - refillNanos, TimeUnit.SECONDS.toNanos(1));
+			long refill = elapsed * bytesPerSecond / TimeUnit.SECONDS.toNanos(1);
+			if(refill > 0){
+				tokens = Math.min(tokens + refill, bytesPerSecond);
+				refillNanos = now;
+			}
+			return tokens;
+		}
+
+		/**
+		 * 准备下一块待写出的数据，数据拷贝到buffer后才写出
+		 * @return 是否还有数据，写出已结束时返回false
+		 */
+		private synchronized boolean fill() throws IOException {
+			if(finished.get()){
+				return false;
+			}
+			while(partIndex < parts.size()){
+				Part part = parts.get(partIndex);
+				if(!prefixWritten){
+					prefixWritten = true;
+					position = part.start;
+					if(part.prefix != null){
+						chunk = part.prefix;
+						offset = 0;
+						pending = chunk.length;
+						return true;
+					}
+				}
+				if(position <= part.end){
+					int len = (int) Math.min(buffer.length, part.end - position + 1);
+					if(mapping != null){
+						mapping.slice(position, len).get(buffer, 0, len);
+					}else{
+						ByteBuffer target = ByteBuffer.wrap(buffer, 0, len);
+						while(target.hasRemaining()){
+							if(in.read(target, position + target.position()) < 0){
+								throw new IOException("file is truncated at " + (position + target.position()));
+							}
+						}
+					}
+					chunk = buffer;
+					offset = 0;
+					pending = len;
+					position += len;
+					return true;
+				}
+				partIndex ++;
+				prefixWritten = false;
+			}
+			return false;
+		}
+
+		/**
+		 * 写出结束，释放资源及许可并结束异步请求
+		 */
+		private void finish() {
+			if(release()){
+				asyncContext.complete();
+			}
+		}
+
+		private boolean release() {
+			synchronized (this) {
+				if(!finished.compareAndSet(false, true)){
+					return false;
+				}
+				closeQuietly(mapping, in);
+			}
+			if(transferPermits != null){
+				transferPermits.release();
+			}
+			return true;
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			finish();
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			finish();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.gdwii.util.http;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 直接缓冲区池
+ *
+ * 直接缓冲区的分配和回收代价较高，下载时重复使用，避免每次请求分配。
+ * 池中最多保留MAX_POOLED个缓冲区，超出的缓冲区归还时直接丢弃。
+ */
+abstract class DirectBufferPool {
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int MAX_POOLED = 32;
+
+	private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+
+	private static final AtomicInteger POOLED = new AtomicInteger();
+
+	/**
+	 * @return 已清空的缓冲区，用完必须调用release归还
+	 */
+	static ByteBuffer acquire() {
+		ByteBuffer buffer = POOL.poll();
+		if(buffer == null){
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		POOLED.decrementAndGet();
+		return buffer;
+	}
+
+	static void release(ByteBuffer buffer) {
+		if(POOLED.incrementAndGet() > MAX_POOLED){
+			POOLED.decrementAndGet();
+			return;
+		}
+		buffer.clear();
+		POOL.offer(buffer);
+	}
+}
@@ -0,0 +1,139 @@
+package com.gdwii.util.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多线程下载的断点日志
+ *
+ * 日志与下载文件放在同一目录，文件名为下载文件名加上.journal后缀，内容为文本：
+ * 		第一行是文件的校验信息(文件大小、分块大小、ETag、Last-Modified)
+ * 		此后每完成一个分块追加一行： 分块序号 分块CRC32(十六进制)
+ *
+ * 续传时只有校验信息与服务器当前返回的一致才采用日志，否则重新开始。
+ * 每追加一行都立即刷到磁盘，进程中断时最后一行可能不完整，读取时忽略不合法的行；
+ * 同一分块出现多次时以最后一次为准。
+ */
+class DownloadJournal implements Closeable {
+	static final String SUFFIX = ".journal";
+
+	private final Path path;
+
+	/**
+	 * 已完成的分块序号 -> 分块CRC32
+	 */
+	private final Map<Integer, Long> completed = new HashMap<>();
+
+	private final FileChannel channel;
+
+	/**
+	 * 日志是否沿用了上次的下载进度
+	 */
+	private final boolean resumed;
+
+	private DownloadJournal(Path path, FileChannel channel, boolean resumed) {
+		this.path = path;
+		this.channel = channel;
+		this.resumed = resumed;
+	}
+
+	/**
+	 * 打开断点日志
+	 * @param path 日志文件
+	 * @param header 文件的校验信息，与日志记录的不一致则丢弃原有进度
+	 * @return
+	 */
+	static DownloadJournal open(Path path, String header) throws IOException {
+		if(Files.exists(path)){
+			List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+			if(!lines.isEmpty() && lines.get(0).equals(header)){
+				FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				DownloadJournal journal = new DownloadJournal(path, channel, true);
+				for(int i = 1; i < lines.size(); i ++){
+					journal.parse(lines.get(i));
+				}
+				// 上次中断在行中间时，补上换行，避免与下一行粘连
+				if(channel.size() > 0 && !endsWithNewLine(path, channel.size())){
+					journal.write("\n");
+				}
+				return journal;
+			}
+		}
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		DownloadJournal journal = new DownloadJournal(path, channel, false);
+		journal.write(header + "\n");
+		return journal;
+	}
+
+	boolean isResumed() {
+		return resumed;
+	}
+
+	/**
+	 * @return 已完成的分块序号 -> 分块CRC32
+	 */
+	synchronized Map<Integer, Long> getCompleted() {
+		return new HashMap<>(completed);
+	}
+
+	/**
+	 * 记录一个已完成的分块，调用前分块数据必须已刷到磁盘
+	 * @param index 分块序号
+	 * @param crc 分块CRC32
+	 */
+	synchronized void complete(int index, long crc) throws IOException {
+		write(index + " " + Long.toHexString(crc) + "\n");
+		completed.put(index, crc);
+	}
+
+	/**
+	 * 关闭并删除日志，下载完成或无法续传时调用
+	 */
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(path);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void parse(String line) {
+		int blank = line.indexOf(' ');
+		if(blank <= 0 || blank == line.length() - 1){
+			return;
+		}
+		try{
+			completed.put(Integer.parseInt(line.substring(0, blank)), Long.parseLong(line.substring(blank + 1), 16));
+		}catch (NumberFormatException e){
+			// 不完整的行
+		}
+	}
+
+	private void write(String text) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		channel.force(false);
+	}
+
+	private static boolean endsWithNewLine(Path path, long size) throws IOException {
+		try(FileChannel in = FileChannel.open(path, StandardOpenOption.READ)){
+			ByteBuffer last = ByteBuffer.allocate(1);
+			in.read(last, size - 1);
+			return last.get(0) == '\n';
+		}
+	}
+}
@@ -1,13 +1,40 @@
 package com.gdwii.util.http;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.gdwii.converter.DatatypeConverter;
+
 public abstract class HttpResponeUtil {
+	/**
+	 * 最多缓存多少个文件的内容摘要ETag
+	 */
+	private static final int MAX_CONTENT_ETAGS = 1024;
+
+	/**
+	 * 文件路径 -> 内容摘要ETag，按访问顺序淘汰
+	 */
+	private static final Map<String, ContentETag> CONTENT_ETAGS = new LinkedHashMap<String, ContentETag>(16, 0.75f, true){
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ContentETag> eldest) {
+			return size() > MAX_CONTENT_ETAGS;
+		}
+	};
+
 	/**
 	 * 请求重定向
 	 * @param response
@@ -50,12 +77,146 @@ public abstract class HttpResponeUtil {
 	 * @param request
 	 * @param response
 	 * @param fileName 下载后用户看到的文件名
+	 * @see #checkNotModified(HttpServletRequest, HttpServletResponse, String, long) 先判断客户端缓存是否有效，有效则不用下载
 	 */
 	public static void setDownloadHeader(HttpServletRequest request, HttpServletResponse response, String fileName){
 		response.setContentType("application/octet-stream");
 		response.addHeader( "Content-Disposition", "attachment;filename=\"" + downloadFileNameProcess(fileName, request)  + "\"");
 	}
 	
+	/**
+	 * 由文件大小及最后修改时间生成ETag，格式为"大小-修改时间"(均为十六进制)
+	 *
+	 * 不需要读取文件内容，文件被修改时大小或修改时间随之改变。
+	 * 作为强校验器使用，If-Range可以据此续传。
+	 * @param file
+	 * @return
+	 */
+	public static String eTag(File file){
+		return "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+	}
+
+	/**
+	 * 由文件内容的MD5生成ETag
+	 *
+	 * 同样内容的文件在不同服务器上ETag一致，但首次计算需要读取整个文件；
+	 * 结果按文件路径缓存，文件大小或修改时间变化后重新计算。
+	 * @param file
+	 * @return
+	 */
+	public static String contentETag(File file){
+		String path = file.getAbsolutePath();
+		long length = file.length();
+		long lastModified = file.lastModified();
+		synchronized (CONTENT_ETAGS) {
+			ContentETag cached = CONTENT_ETAGS.get(path);
+			if(cached != null && cached.length == length && cached.lastModified == lastModified){
+				return cached.eTag;
+			}
+		}
+
+		String eTag;
+		try(InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), MessageDigest.getInstance("MD5"))){
+			byte[] b = new byte[8192];
+			while(in.read(b) >= 0){
+				// 读取时计算摘要
+			}
+			eTag = "\"" + DatatypeConverter.printHexBinary(((DigestInputStream) in).getMessageDigest().digest()).toLowerCase() + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			throw new InternalError("MD5 not supported", e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		synchronized (CONTENT_ETAGS) {
+			CONTENT_ETAGS.put(path, new ContentETag(length, lastModified, eTag));
+		}
+		return eTag;
+	}
+
+	/**
+	 * 设置ETag及Last-Modified，并判断客户端缓存的内容是否仍然有效
+	 *
+	 * 按RFC 7232的顺序判断：
+	 * 		有If-None-Match时，任一ETag与eTag一致(弱比较)或为*则未修改，此时忽略If-Modified-Since；
+	 * 		否则有If-Modified-Since时，lastModified(精确到秒)不晚于该时间则未修改。
+	 * 未修改时响应304，调用方不用再返回内容。
+	 * @param request
+	 * @param response
+	 * @param eTag
+	 * @param lastModified 最后修改时间(毫秒)
+	 * @return 是否未修改
+	 */
+	public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String eTag, long lastModified){
+		response.setHeader("ETag", eTag);
+		response.setDateHeader("Last-Modified", lastModified);
+
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		boolean notModified;
+		if(ifNoneMatch != null){
+			notModified = matchesAny(ifNoneMatch, eTag);
+		}else{
+			long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+			notModified = ifModifiedSince != -1 && lastModified / 1000 * 1000 <= ifModifiedSince;
+		}
+
+		if(notModified){
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		}
+		return notModified;
+	}
+
+	/**
+	 * 判断If-Range是否允许按Range分段返回
+	 *
+	 * If-Range是ETag时必须与eTag完全一致(强比较，弱ETag一律不一致)；
+	 * 是时间时必须与lastModified(精确到秒)相同。不一致时应忽略Range，返回整个文件。
+	 * @param request
+	 * @param eTag
+	 * @param lastModified 最后修改时间(毫秒)
+	 * @return 没有If-Range或If-Range与当前文件一致
+	 */
+	public static boolean isIfRangeMatched(HttpServletRequest request, String eTag, long lastModified){
+		String ifRange = request.getHeader("If-Range");
+		if(ifRange == null){
+			return true;
+		}
+		ifRange = ifRange.trim();
+		if(ifRange.startsWith("\"") || ifRange.startsWith("W/")){
+			return ifRange.equals(eTag) && !eTag.startsWith("W/");
+		}
+		return getDateHeader(request, "If-Range") == lastModified / 1000 * 1000;
+	}
+
+	/**
+	 * If-None-Match的任一ETag与eTag弱比较一致，或者为*
+	 */
+	private static boolean matchesAny(String eTags, String eTag){
+		String opaqueTag = stripWeak(eTag);
+		for(String candidate : eTags.split(",")){
+			candidate = candidate.trim();
+			if(candidate.equals("*") || stripWeak(candidate).equals(opaqueTag)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String stripWeak(String eTag){
+		return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+	}
+
+	/**
+	 * @return 时间格式不正确或不存在返回-1
+	 */
+	private static long getDateHeader(HttpServletRequest request, String name){
+		try{
+			return request.getDateHeader(name);
+		}catch (IllegalArgumentException e){
+			return -1;
+		}
+	}
+
 	/**
 	 * 为了防止乱码,需要对文件名进行处理
 	 * @param fileName 待处理文件名
@@ -75,4 +236,16 @@ public abstract class HttpResponeUtil {
 			throw new RuntimeException(e);
 		}
 	}
-}
\ No newline at end of file
+
+	private static final class ContentETag {
+		final long length;
+		final long lastModified;
+		final String eTag;
+
+		ContentETag(long length, long lastModified, String eTag) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.eTag = eTag;
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package com.gdwii.util.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点文件的内存映射缓存
+ *
+ * 少数热门文件占了大部分下载请求，每次请求都打开并读取文件代价较高。
+ * 缓存把文件只读映射到内存(MappedByteBuffer)，分段请求直接返回映射的切片，不再读取文件。
+ *
+ * 		映射的总字节数超过maxBytes时按最近最少使用淘汰，超过maxFileSize的文件不缓存；
+ * 		每次获取时比较文件大小及修改时间，文件被修改则重新映射；
+ * 		映射按引用计数，被淘汰或失效时仍在使用的映射等到最后一个使用者close后才解除映射。
+ *
+ * 映射期间文件被截断时读取映射会导致JVM错误，被缓存的文件应当通过替换(重命名)更新，而不是原地改写。
+ * @author gdwii
+ *
+ */
+public class MappedFileCache {
+	/**
+	 * 解除映射的方法，JDK 9+为Unsafe.invokeCleaner；为null则使用JDK 8的DirectBuffer.cleaner()
+	 */
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try{
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+		}catch (ReflectiveOperationException | RuntimeException e){
+			invokeCleaner = null; // JDK 8
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	/**
+	 * 映射的总字节数上限
+	 */
+	private final long maxBytes;
+
+	/**
+	 * 单个文件的大小上限，不超过Integer.MAX_VALUE
+	 */
+	private final long maxFileSize;
+
+	/**
+	 * 文件路径 -> 映射，按访问顺序淘汰
+	 */
+	private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * 缓存中映射的总字节数
+	 */
+	private long mappedBytes;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maxBytes 映射的总字节数上限
+	 * @param maxFileSize 单个文件的大小上限，超过的文件不缓存
+	 */
+	public MappedFileCache(long maxBytes, long maxFileSize) {
+		if(maxBytes <= 0 || maxFileSize <= 0 || maxFileSize > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("maxBytes and maxFileSize must be positive, maxFileSize must not exceed Integer.MAX_VALUE");
+		}
+		this.maxBytes = maxBytes;
+		this.maxFileSize = maxFileSize;
+	}
+
+	/**
+	 * 获取文件的映射，没有缓存或文件已被修改则重新映射
+	 * @param file
+	 * @return 文件的映射，用完必须close；文件为空、不存在、超过maxFileSize或正在被修改时返回null
+	 */
+	public Mapping acquire(File file) throws IOException {
+		String path = file.getAbsolutePath();
+		long length = file.length();
+		long lastModified = file.lastModified();
+		if(length == 0 || length > maxFileSize){
+			return null;
+		}
+
+		synchronized (entries) {
+			Entry entry = entries.get(path);
+			if(entry != null && entry.matches(length, lastModified)){
+				hits.increment();
+				return new Mapping(entry);
+			}
+		}
+
+		misses.increment();
+		MappedByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			if(channel.size() != length){
+				return null; // 文件正在被修改
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		}
+
+		Entry entry = new Entry(buffer, length, lastModified);
+		synchronized (entries) {
+			Entry existing = entries.get(path);
+			if(existing != null && existing.matches(length, lastModified)){
+				// 其它线程已映射
+				unmap(buffer);
+				return new Mapping(existing);
+			}
+			if(existing != null){
+				remove(path, existing); // 文件已被修改
+			}
+			entries.put(path, entry);
+			mappedBytes += length;
+			Mapping mapping = new Mapping(entry);
+			evict();
+			return mapping;
+		}
+	}
+
+	/**
+	 * 移除文件的映射
+	 * @param file
+	 */
+	public void invalidate(File file) {
+		String path = file.getAbsolutePath();
+		synchronized (entries) {
+			Entry entry = entries.get(path);
+			if(entry != null){
+				remove(path, entry);
+			}
+		}
+	}
+
+	/**
+	 * 移除所有映射
+	 */
+	public void clear() {
+		synchronized (entries) {
+			for(Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ){
+				Entry entry = it.next();
+				it.remove();
+				mappedBytes -= entry.length;
+				entry.evict();
+			}
+		}
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return 缓存中映射的总字节数，不包括已淘汰但仍在使用的映射
+	 */
+	public long getMappedBytes() {
+		synchronized (entries) {
+			return mappedBytes;
+		}
+	}
+
+	public int getSize() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * 淘汰最近最少使用的映射，直到总字节数不超过上限；最近加入的映射保留
+	 */
+	private void evict() {
+		Iterator<Entry> it = entries.values().iterator();
+		while(mappedBytes > maxBytes && entries.size() > 1){
+			Entry eldest = it.next();
+			it.remove();
+			mappedBytes -= eldest.length;
+			evictions.increment();
+			eldest.evict();
+		}
+	}
+
+	private void remove(String path, Entry entry) {
+		entries.remove(path);
+		mappedBytes -= entry.length;
+		entry.evict();
+	}
+
+	/**
+	 * 解除映射，释放虚拟内存及文件句柄；无法解除时等待GC回收
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try{
+			if(INVOKE_CLEANER != null){
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			}else{
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if(cleaner != null){
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		}catch (ReflectiveOperationException | RuntimeException e){
+			// 由GC回收
+		}
+	}
+
+	/**
+	 * 缓存的映射，引用计数由entries的锁保护
+	 */
+	private final class Entry {
+		final MappedByteBuffer buffer;
+		final long length;
+		final long lastModified;
+
+		/**
+		 * 使用中的Mapping数
+		 */
+		int references;
+
+		/**
+		 * 是否已被淘汰或失效
+		 */
+		boolean evicted;
+
+		Entry(MappedByteBuffer buffer, long length, long lastModified) {
+			this.buffer = buffer;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+
+		boolean matches(long length, long lastModified) {
+			return this.length == length && this.lastModified == lastModified;
+		}
+
+		void evict() {
+			evicted = true;
+			if(references == 0){
+				unmap(buffer);
+			}
+		}
+
+		void release() {
+			synchronized (entries) {
+				if(--references == 0 && evicted){
+					unmap(buffer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 文件的映射，close之后不能再使用slice返回的切片
+	 */
+	public final class Mapping implements AutoCloseable {
+		private final Entry entry;
+		private volatile boolean closed;
+
+		private Mapping(Entry entry) {
+			this.entry = entry;
+			entry.references ++;
+		}
+
+		/**
+		 * @return 映射的文件大小
+		 */
+		public long length() {
+			return entry.length;
+		}
+
+		/**
+		 * 文件[position, position + count)的只读切片，不拷贝数据
+		 * @param position
+		 * @param count
+		 * @return
+		 */
+		public ByteBuffer slice(long position, long count) {
+			if(closed){
+				throw new IllegalStateException("mapping is closed");
+			}
+			if(position < 0 || count < 0 || position + count > entry.length){
+				throw new IndexOutOfBoundsException("position: " + position + ", count: " + count + ", length: " + entry.length);
+			}
+			ByteBuffer duplicate = entry.buffer.duplicate();
+			duplicate.limit((int) (position + count)).position((int) position);
+			return duplicate.slice();
+		}
+
+		@Override
+		public synchronized void close() {
+			if(!closed){
+				closed = true;
+				entry.release();
+			}
+		}
+	}
+}
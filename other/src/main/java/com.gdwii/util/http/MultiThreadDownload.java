@@ -1,109 +1,219 @@
 package com.gdwii.util.http;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
+import com.gdwii.converter.DatatypeConverter;
 import com.gdwii.util.StringUtils;
 
 /**
  * 多线程下载
- * 
+ *
  * 思路：
- * 		文件分块。 文件分块大小block = 文件大小 % 线程任务数 == 0 ? 文件大小 / 线程任务 ： 文件大小 / 线程任务 + 1
- * 		确定每一个线程下载对应用文件的位置指针。
- * 			现假设为每个线程分别编号runnableId     0 1 2 3 4
- * 			则第一个线程负责的下载位置是： 0*分块大小  到  (0+1)*分块大小-1
- * 			第二个线程负责的下载位置是： 1*分块大小   到  (1+1)*分块大小-1
- * 			即有开始下载位置 start = runnableId * block;
- * 			即有结束下载位置 end = (runnableId + 1) * block-1;
+ * 		文件分块。 文件分块大小block = 文件大小 % 线程任务数 == 0 ? 文件大小 / 线程任务 ： 文件大小 / 线程任务 + 1，
+ * 		但不超过maxBlockSize，大文件因此分成多于线程任务数的分块，每个线程任务依次领取未下载的分块。
+ * 		确定每一个分块对应文件的位置指针。
+ * 			现假设为每个分块分别编号index     0 1 2 3 4
+ * 			则第一个分块的下载位置是： 0*分块大小  到  (0+1)*分块大小-1
+ * 			第二个分块的下载位置是： 1*分块大小   到  (1+1)*分块大小-1
+ * 			即有开始下载位置 start = index * block;
+ * 			即有结束下载位置 end = (index + 1) * block-1;
  * 		最后通过设置连接的属性， conn.setRequestProperty("Range", "bytes=" + start + "-" + end);
+ *
+ * 断点续传：
+ * 		每完成一个分块，先把数据刷到磁盘，再把分块序号及分块的CRC32追加到断点日志(下载文件名.journal)。
+ * 		下载中断后重新下载时，服务器返回的文件大小、ETag、Last-Modified与日志记录的一致，则只下载日志中没有的分块；
+ * 		已完成的分块先按CRC32校验磁盘上的数据，校验不通过的重新下载。
+ * 		分块请求带上If-Range，文件在下载过程中被修改时服务器返回整个文件，此时放弃日志，下次重新下载。
+ * 		所有分块完成后计算整个文件的摘要，与服务器返回的Digest/Content-MD5或setExpectedDigest设置的摘要比对，一致后删除日志。
  */
 public class MultiThreadDownload {
+	/**
+	 * 默认的最大分块大小
+	 */
+	public static final long DEFAULT_MAX_BLOCK_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * 没有指定摘要算法时，整个文件的摘要算法
+	 */
+	private static final String DEFAULT_DIGEST_ALGORITHM = "MD5";
+
 	/**
 	 * 下载文件的URL
 	 */
 	private String url;
-	
+
 	/**
 	 * 下载的存放路径
 	 */
 	private String destPath;
-	
+
 	/**
 	 * 启用几个线程任务
 	 */
 	private int runnableNum;
-	
+
 	/**
 	 * 下载文件的尺寸
 	 */
 	private long size;
-	
+
 	/**
 	 * 获取每个下载任务下载的文件块大小
 	 * -1表示文件不支持分块下载
 	 */
 	private long block;
-	
+
+	/**
+	 * 最大分块大小
+	 */
+	private long maxBlockSize = DEFAULT_MAX_BLOCK_SIZE;
+
+	/**
+	 * 服务器返回的强ETag及Last-Modified，用于判断文件是否被修改
+	 */
+	private String etag;
+	private String lastModified;
+
+	/**
+	 * 期望的整个文件的摘要算法及摘要(小写十六进制)，为null则不校验
+	 */
+	private String digestAlgorithm;
+	private String expectedDigest;
+
+	/**
+	 * 下载完成后整个文件的摘要(小写十六进制)
+	 */
+	private String digest;
+
 	public MultiThreadDownload(String url, String destPath, int runnableNum) {
 		this.url = url;
 		this.destPath = destPath;
 		this.runnableNum = runnableNum;
 	}
-	
-	public void download(){
-		setDownloadProperties();
-		if(block == -1){ // 单线程下载
-			new Thread(new SignleThreadDownloadRunnable()).start();
-			System.out.println(url + "下载完成");
-			return;
-		}
-		
-		// 多线程下载
-		createDestFile(destPath, size);
-		for(int i = 0; i < runnableNum; i ++){
-			new Thread(new PartialDownloadRunnable(i)).start();
+
+	/**
+	 * 设置最大分块大小，分块越小，中断后需要重新下载的数据越少
+	 * @param maxBlockSize
+	 */
+	public void setMaxBlockSize(long maxBlockSize) {
+		if(maxBlockSize <= 0){
+			throw new IllegalArgumentException("maxBlockSize must be positive");
 		}
-		System.out.println(url + "下载完成");
+		this.maxBlockSize = maxBlockSize;
 	}
-	
+
+	/**
+	 * 设置期望的整个文件的摘要，优先于服务器返回的Digest/Content-MD5
+	 * @param algorithm 摘要算法，如MD5、SHA-256
+	 * @param hexDigest 十六进制摘要
+	 */
+	public void setExpectedDigest(String algorithm, String hexDigest) {
+		this.digestAlgorithm = algorithm;
+		this.expectedDigest = hexDigest.toLowerCase();
+	}
+
+	/**
+	 * @return 下载完成后整个文件的摘要(小写十六进制)，摘要算法为期望的摘要算法，没有则为MD5
+	 */
+	public String getDigest() {
+		return digest;
+	}
+
+	/**
+	 * 每个线程任务启动一个线程下载，下载完成后返回
+	 */
+	public void download(){
+		download(runnable -> new Thread(runnable).start());
+	}
+
+	/**
+	 * 由executor执行线程任务下载，下载完成后返回
+	 * 下载失败时保留断点日志，再次调用只下载未完成的分块
+	 * @param executor
+	 */
 	public void download(Executor executor){
 		setDownloadProperties();
 		if(block == -1){ // 单线程下载
-			executor.execute(new SignleThreadDownloadRunnable());
+			execute(executor, Collections.<Runnable>singletonList(new SignleThreadDownloadRunnable()), null);
+			try(FileChannel dest = FileChannel.open(Paths.get(destPath), StandardOpenOption.READ)){
+				verifyDigest(dest);
+			} catch (IOException e) {
+				throw new RuntimeException(url + "校验失败", e);
+			}
 			System.out.println(url + "下载完成");
 			return;
 		}
-		
+
 		// 多线程下载
 		createDestFile(destPath, size);
-		for(int i = 0; i < runnableNum; i ++){
-			executor.execute(new PartialDownloadRunnable(i));
+		Path journalPath = Paths.get(destPath + DownloadJournal.SUFFIX);
+		try(DownloadJournal journal = DownloadJournal.open(journalPath, journalHeader());
+				FileChannel dest = FileChannel.open(Paths.get(destPath), StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			List<Integer> missing = missingBlocks(journal, dest);
+			AtomicInteger cursor = new AtomicInteger();
+			List<Runnable> runnables = new ArrayList<>();
+			for(int i = 0; i < runnableNum && i < missing.size(); i ++){
+				runnables.add(new PartialDownloadRunnable(missing, cursor, dest, journal));
+			}
+			execute(executor, runnables, journal);
+
+			dest.force(true);
+			try{
+				verifyDigest(dest);
+			}catch (RuntimeException e){
+				journal.delete(); // 无法确定哪个分块出错，下次重新下载
+				throw e;
+			}
+			journal.delete();
+		} catch (IOException e) {
+			throw new RuntimeException(url + "下载失败", e);
 		}
 		System.out.println(url + "下载完成");
 	}
-	
+
 	/**
 	 * 设置下载属性
-	 * 包含：下载文件大小、分块下载大小
+	 * 包含：下载文件大小、分块下载大小、文件的校验信息
 	 */
 	private void setDownloadProperties() {
         try {
-        	HttpURLConnection conn  = (HttpURLConnection) new URL(url).openConnection(); 
+        	HttpURLConnection conn  = (HttpURLConnection) new URL(url).openConnection();
 			conn.setRequestMethod("HEAD");
-			
+
 			// 下载文件大小
-			size = conn.getContentLength();
+			size = conn.getContentLengthLong();
 			if(size <= 0){
 				throw new RuntimeException("下载文件" + url + "不存在");
 			}
-			
+
+			etag = strongETag(conn.getHeaderField("ETag"));
+			lastModified = conn.getHeaderField("Last-Modified");
+			if(expectedDigest == null){
+				setServerDigest(conn.getHeaderField("Digest"), conn.getHeaderField("Content-MD5"));
+			}
+
 			// 设置每个下载任务下载的文件块大小
 			String acceptRanges = conn.getHeaderField("Accept-Ranges");
 			if(StringUtils.isEmpty(acceptRanges) || !acceptRanges.trim().equals("bytes")){
@@ -111,63 +221,304 @@ public class MultiThreadDownload {
 			}else{
 				block = size / runnableNum;
 				block = block * runnableNum == size ? block : block + 1;
+				block = Math.min(block, maxBlockSize);
 			}
 		} catch (IOException e) {
 			throw new RuntimeException("获取下载文件大小失败", e);
 		}
 	}
-	
-	
+
+	/**
+	 * 采用服务器返回的整个文件的摘要
+	 * 		Digest: SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=,MD5=...
+	 * 		Content-MD5: Q2hlY2sgSW50ZWdyaXR5IQ==
+	 * 摘要均为Base64编码
+	 */
+	private void setServerDigest(String digestHeader, String contentMD5) {
+		if(StringUtils.isNotEmpty(digestHeader)){
+			for(String instance : digestHeader.split(",")){
+				int equals = instance.indexOf('=');
+				if(equals <= 0){
+					continue;
+				}
+				String algorithm = instance.substring(0, equals).trim().toUpperCase();
+				if(algorithm.equals("SHA")){
+					algorithm = "SHA-1";
+				}
+				try{
+					MessageDigest.getInstance(algorithm);
+					byte[] value = Base64.getDecoder().decode(instance.substring(equals + 1).trim());
+					digestAlgorithm = algorithm;
+					expectedDigest = DatatypeConverter.printHexBinary(value).toLowerCase();
+					return;
+				}catch (NoSuchAlgorithmException | IllegalArgumentException e){
+					// 不支持的算法或格式，尝试下一个
+				}
+			}
+		}
+		if(StringUtils.isNotEmpty(contentMD5)){
+			try{
+				byte[] value = Base64.getDecoder().decode(contentMD5.trim());
+				digestAlgorithm = "MD5";
+				expectedDigest = DatatypeConverter.printHexBinary(value).toLowerCase();
+			}catch (IllegalArgumentException e){
+				// 格式不正确则不校验
+			}
+		}
+	}
+
+	/**
+	 * 弱ETag(W/开头)只表示内容语义相同，不能用于分块请求的If-Range，视为没有ETag
+	 */
+	private static String strongETag(String etag) {
+		return etag == null || etag.startsWith("W/") ? null : etag;
+	}
+
+	/**
+	 * 断点日志的校验信息，服务器没有返回ETag及Last-Modified时无法判断文件是否被修改，不续传
+	 */
+	private String journalHeader() {
+		String header = "length=" + size + "\tblock=" + block + "\tetag=" + etag + "\tlastModified=" + lastModified;
+		if(etag == null && lastModified == null){
+			header += "\tnonce=" + System.nanoTime();
+		}
+		return header;
+	}
+
+	/**
+	 * 获取需要下载的分块，日志中已完成的分块按CRC32校验磁盘上的数据，校验不通过的需要重新下载
+	 */
+	private List<Integer> missingBlocks(DownloadJournal journal, FileChannel dest) throws IOException {
+		int blockCount = (int) ((size + block - 1) / block);
+		Map<Integer, Long> completed = journal.getCompleted();
+		List<Integer> missing = new ArrayList<>();
+		for(int i = 0; i < blockCount; i ++){
+			Long crc = completed.get(i);
+			if(crc == null || crc != crc32(dest, blockStart(i), blockEnd(i))){
+				missing.add(i);
+			}
+		}
+		return missing;
+	}
+
+	private long blockStart(int index) {
+		return index * block;
+	}
+
+	private long blockEnd(int index) {
+		return Math.min(blockStart(index) + block, size) - 1;
+	}
+
+	/**
+	 * 执行线程任务并等待全部完成，有线程任务失败则抛出异常
+	 * @param journal 断点日志，文件被修改时删除
+	 */
+	private void execute(Executor executor, List<Runnable> runnables, DownloadJournal journal) {
+		CountDownLatch done = new CountDownLatch(runnables.size());
+		Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		for(Runnable runnable : runnables){
+			executor.execute(() -> {
+				try{
+					runnable.run();
+				}catch (Throwable e){
+					failures.add(e);
+				}finally {
+					done.countDown();
+				}
+			});
+		}
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(url + "下载被中断", e);
+		}
+
+		if(failures.isEmpty()){
+			return;
+		}
+		RuntimeException failure = new RuntimeException(url + "下载失败, " + failures.size() + "个线程任务失败");
+		for(Throwable e : failures){
+			failure.addSuppressed(e);
+			if(e instanceof ResourceModifiedException && journal != null){
+				try {
+					journal.delete();
+				} catch (IOException ioe) {
+					failure.addSuppressed(ioe);
+				}
+			}
+		}
+		throw failure;
+	}
+
+	/**
+	 * 计算整个文件的摘要，并与期望的摘要比对
+	 */
+	private void verifyDigest(FileChannel dest) throws IOException {
+		String algorithm = digestAlgorithm == null ? DEFAULT_DIGEST_ALGORITHM : digestAlgorithm;
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException(algorithm + " not supported", e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+		long position = 0;
+		int len;
+		while((len = dest.read(buffer, position)) > 0){
+			buffer.flip();
+			messageDigest.update(buffer);
+			buffer.clear();
+			position += len;
+		}
+		digest = DatatypeConverter.printHexBinary(messageDigest.digest()).toLowerCase();
+
+		if(expectedDigest != null && !expectedDigest.equals(digest)){
+			throw new RuntimeException(url + "文件" + algorithm + "摘要不一致, 期望" + expectedDigest + ", 实际" + digest);
+		}
+	}
+
+	/**
+	 * 计算文件[start, end]的CRC32
+	 */
+	private static long crc32(FileChannel file, long start, long end) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] b = new byte[64 * 1024];
+		ByteBuffer buffer = ByteBuffer.wrap(b);
+		long position = start;
+		while(position <= end){
+			buffer.clear();
+			buffer.limit((int) Math.min(b.length, end - position + 1));
+			int len = file.read(buffer, position);
+			if(len <= 0){
+				break;
+			}
+			crc.update(b, 0, len);
+			position += len;
+		}
+		return crc.getValue();
+	}
+
 	private static void createDestFile(String destFile, long length) {
 		try (RandomAccessFile file = new RandomAccessFile(destFile, "rw");){
-			file.setLength(length);
+			if(file.length() != length){
+				file.setLength(length);
+			}
 		} catch (IOException e) {
 			throw new RuntimeException("创建下载目标下载文件失败", e);
 		}
 	}
-	
+
+	/**
+	 * 下载过程中文件被修改
+	 */
+	private static class ResourceModifiedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		ResourceModifiedException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * 依次领取未下载的分块并下载，单个分块失败不影响其余分块
+	 */
 	private class PartialDownloadRunnable implements Runnable{
-		private long start; // 开始下载点
-		private long end; // 截止下载点
-		
-		public PartialDownloadRunnable(int currentId) {
-			start = currentId * block;
-			end = start + block - 1;
-			if(end >= size){
-				end = size - 1;
-			}
+		private final List<Integer> blocks;
+		private final AtomicInteger cursor;
+		private final FileChannel destFile;
+		private final DownloadJournal journal;
+
+		PartialDownloadRunnable(List<Integer> blocks, AtomicInteger cursor, FileChannel destFile, DownloadJournal journal) {
+			this.blocks = blocks;
+			this.cursor = cursor;
+			this.destFile = destFile;
+			this.journal = journal;
 		}
 
 		@Override
 		public void run() {
+			RuntimeException failure = null;
+			int i;
+			while((i = cursor.getAndIncrement()) < blocks.size()){
+				try{
+					download(blocks.get(i));
+				}catch (ResourceModifiedException e){
+					cursor.set(blocks.size()); // 文件已被修改，其余分块不再下载
+					throw e;
+				}catch (RuntimeException e){
+					if(failure == null){
+						failure = e;
+					}else{
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			if(failure != null){
+				throw failure;
+			}
+		}
+
+		private void download(int index) {
+			long start = blockStart(index); // 开始下载点
+			long end = blockEnd(index); // 截止下载点
+			HttpURLConnection conn = null;
 			try {
-				HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+				conn = (HttpURLConnection) new URL(url).openConnection();
 				conn.setRequestMethod("GET");
 				conn.setReadTimeout(5000);
 
-				// 设置要下载的文件块
+				// 设置要下载的文件块，文件被修改时服务器返回整个文件
 				conn.setRequestProperty("Range", "bytes=" + start + "-" + end);
+				String validator = etag != null ? etag : lastModified;
+				if(validator != null){
+					conn.setRequestProperty("If-Range", validator);
+				}
 
-				if (conn.getResponseCode() == 206) {
-					try(RandomAccessFile destFile = new RandomAccessFile(destPath, "rw");){
-						// 移动指针至该线程负责写入数据的位置。
-						destFile.seek(start);
-						// 读取数据并写入
-						InputStream inStream = conn.getInputStream();
-						byte[] b = new byte[8192];
-						int len = 0;
-						while ((len = inStream.read(b)) > 0) {
-							destFile.write(b, 0, len);
+				int code = conn.getResponseCode();
+				if(code == 200){
+					throw new ResourceModifiedException(url + "已被修改, 需要重新下载");
+				}
+				String contentRange = conn.getHeaderField("Content-Range");
+				if(code != 206 || contentRange == null || !contentRange.startsWith("bytes " + start + "-" + end + "/")){
+					throw new RuntimeException(url + "从" + start + "到" + end + "下载失败, 响应" + code + " " + contentRange);
+				}
+
+				// 读取数据写入该分块的位置，同时计算CRC32
+				CRC32 crc = new CRC32();
+				long position = start;
+				try(InputStream inStream = conn.getInputStream()){
+					byte[] b = new byte[8192];
+					int len = 0;
+					while ((len = inStream.read(b)) > 0) {
+						if(position + len > end + 1){
+							throw new RuntimeException(url + "从" + start + "到" + end + "返回的数据过多");
+						}
+						crc.update(b, 0, len);
+						ByteBuffer buffer = ByteBuffer.wrap(b, 0, len);
+						while(buffer.hasRemaining()){
+							position += destFile.write(buffer, position);
 						}
-						System.out.println(url + "从" + start + "到" + end + "下载完成");
 					}
 				}
+				if(position != end + 1){
+					throw new RuntimeException(url + "从" + start + "到" + end + "下载不完整, 只下载到" + (position - 1));
+				}
+
+				// 先把数据刷到磁盘，再记录到断点日志
+				destFile.force(false);
+				journal.complete(index, crc.getValue());
+				System.out.println(url + "从" + start + "到" + end + "下载完成");
 			} catch (IOException e) {
 				throw new RuntimeException(url + "从" + start + "到" + end + "下载失败", e);
+			} finally {
+				if(conn != null){
+					conn.disconnect();
+				}
 			}
 		}
 	}
-	
+
 	private class SignleThreadDownloadRunnable implements Runnable{
 		@Override
 		public void run() {
@@ -176,14 +527,19 @@ public class MultiThreadDownload {
 				conn.setRequestMethod("GET");
 				conn.setReadTimeout(5000);
 
-				if (conn.getResponseCode() == 200) {
-					try(OutputStream out = new FileOutputStream(destPath);){
-						// 读取数据并写入
-						InputStream inStream = conn.getInputStream();
-						byte[] b = new byte[8192];
-						int len = 0;
-						while ((len = inStream.read(b)) > 0) {
-							out.write(b, 0, len);
+				int code = conn.getResponseCode();
+				if (code != 200) {
+					throw new RuntimeException(url + "下载失败, 响应" + code);
+				}
+				try(FileChannel out = FileChannel.open(Paths.get(destPath), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+						InputStream inStream = conn.getInputStream()){
+					// 读取数据并写入
+					byte[] b = new byte[8192];
+					int len = 0;
+					while ((len = inStream.read(b)) > 0) {
+						ByteBuffer buffer = ByteBuffer.wrap(b, 0, len);
+						while(buffer.hasRemaining()){
+							out.write(buffer);
 						}
 					}
 				}
@@ -1,10 +1,18 @@
 package com.gdwii.util.http;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -13,30 +21,56 @@ import com.gdwii.util.StringUtils;
 
 /**
  * 分段下载实现
- * 
+ *
  * 现代WEB服务器都支持大文件分段下载,加快下载速度.
  * 判断WEB服务器是否支持分段下载通过返回头是否有 Accept-Ranges: bytes 字段。
- * 
+ *
  * 分段下载分为两种: 一种就是一次请求一个分段，一种就是一次请求多个分段。
+ * 		一次请求一个分段时响应206，Content-Range表示返回的分段；
+ * 		一次请求多个分段时，重叠或相邻的分段先合并，仍有多个分段则响应206及multipart/byteranges，每个分段是一部分：
+ * 			--分隔符
+ * 			Content-Type: application/octet-stream
+ * 			Content-Range: bytes 0-50/1270
+ *
+ * 			分段数据
+ * 			--分隔符--
+ * 		所有分段都超出文件范围时响应416，Content-Range: bytes *\/文件大小。
+ * Range格式不正确时按RFC 7233忽略Range，返回整个文件。
+ *
+ * 每次响应都带上ETag及Last-Modified：
+ * 		If-None-Match或If-Modified-Since表明客户端缓存仍然有效时响应304，不返回内容；
+ * 		If-Range与当前文件不一致时忽略Range，返回整个文件，避免把新旧文件的分段拼在一起。
  * @author gdwii
  *
  */
 public class PartialDownload {
+	/**
+	 * 合并后最多的分段数，超过则忽略Range，避免大量细碎分段消耗服务器资源
+	 */
+	public static final int MAX_RANGES = 100;
+
+	private static final String CRLF = "\r\n";
+
 	private HttpServletRequest request;
 	private HttpServletResponse response;
 	private File file;
 	private long totalSize;
 
 	/**
-	 * 开始下载点
+	 * 要下载的分段，按开始下载点排序且互不重叠；为null则下载整个文件，为空则所有分段都超出文件范围
+	 */
+	private List<Range> ranges;
+
+	/**
+	 * 是否用文件内容的摘要作为ETag
 	 */
-	private long start;
-	
+	private boolean contentETag;
+
 	/**
-	 * 截止下载点
+	 * 热点文件的映射缓存，为null则每次从文件读取
 	 */
-	private long end;
-	
+	private MappedFileCache mappedFileCache;
+
 	public PartialDownload(HttpServletRequest request, HttpServletResponse response, File file) {
 		this.request = request;
 		this.response = response;
@@ -44,140 +78,327 @@ public class PartialDownload {
 		totalSize = file.length();
 	}
 
+	/**
+	 * 是否用文件内容的摘要作为ETag，默认用文件大小及修改时间
+	 * @param contentETag
+	 */
+	public void setContentETag(boolean contentETag) {
+		this.contentETag = contentETag;
+	}
+
+	/**
+	 * 设置热点文件的映射缓存，多个下载请求应共用同一个缓存
+	 * @param mappedFileCache
+	 */
+	public void setMappedFileCache(MappedFileCache mappedFileCache) {
+		this.mappedFileCache = mappedFileCache;
+	}
+
 	public void download(){
-		processRange(request.getHeader("Range")); // Range表示从哪个位置开始下载
-		// 设置头消息
+		// 客户端缓存仍然有效则响应304
+		String eTag = contentETag ? HttpResponeUtil.contentETag(file) : HttpResponeUtil.eTag(file);
+		long lastModified = file.lastModified();
 		response.setHeader("Accept-Ranges", "bytes"); // 该消息头表示下载支持分块下载;没有该消息则不知处分块下载
-		response.setContentType("application/octet-stream");
-		response.setHeader("Content-Length", String.valueOf(end - start + 1));
+		if(HttpResponeUtil.checkNotModified(request, response, eTag, lastModified)){
+			return;
+		}
+
+		// Range表示从哪个位置开始下载，If-Range与当前文件不一致说明文件已被修改，返回整个文件
+		processRange(HttpResponeUtil.isIfRangeMatched(request, eTag, lastModified) ? request.getHeader("Range") : null);
+		// 设置头消息
 		response.addHeader( "Content-Disposition", "attachment;filename=\"" + HttpResponeUtil.downloadFileNameProcess(file.getName(), request)  + "\"");
 
-		copyData(); // 拷贝数据
+		if(ranges == null){
+			response.setContentType("application/octet-stream");
+			response.setContentLengthLong(totalSize);
+			copyData(Collections.singletonList(new Range(0, totalSize - 1)), null);
+		}else if(ranges.isEmpty()){
+			response.setHeader("Content-Range", "bytes */" + totalSize);
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+		}else if(ranges.size() == 1){
+			Range range = ranges.get(0);
+			setHeaders(range);
+			response.setContentType("application/octet-stream");
+			response.setContentLengthLong(range.length());
+			copyData(ranges, null);
+		}else{
+			String boundary = UUID.randomUUID().toString().replace("-", "");
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setContentType("multipart/byteranges; boundary=" + boundary);
+			response.setContentLengthLong(multipartLength(boundary));
+			copyData(ranges, boundary);
+		}
 	}
 
-	private void copyData() {
-		InputStream in = null;
-		OutputStream out = null;
-		try{
-			in = new FileInputStream(file);
-			in.skip(start);
-			out = response.getOutputStream();
-
-			byte[] b = new byte[8192];
-			int len;
-			while((len = in.read(b)) > 0){
-				out.write(b, 0, len);
-				out.flush();
+	/**
+	 * 拷贝各分段的数据，由容器在请求结束时刷新输出
+	 * 设置了映射缓存且文件可以缓存时直接写出映射的切片，否则从文件读取
+	 * AsyncPartialDownload覆盖该方法，改为异步写出
+	 * @param boundary multipart/byteranges的分隔符，为null则只拷贝数据
+	 */
+	void copyData(List<Range> ranges, String boundary) {
+		try(MappedFileCache.Mapping mapping = acquireMapping();
+				FileChannel in = mapping != null ? null : FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			for(Range range : ranges){
+				if(boundary != null){
+					write(partHeader(boundary, range), out);
+				}
+				if(mapping != null){
+					write(mapping.slice(range.start, range.length()), out);
+				}else{
+					transfer(in, range.start, range.length(), out);
+				}
+			}
+			if(boundary != null){
+				write(closeDelimiter(boundary), out);
 			}
 		}catch (IOException e){
 			throw new RuntimeException(e);
-		}finally {
-			if(in != null){
-				try {
-					in.close();
-				} catch (IOException e) {
-					throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return 文件的映射，没有设置映射缓存、文件不能缓存或映射的大小与分段计算时不一致时返回null
+	 */
+	MappedFileCache.Mapping acquireMapping() throws IOException {
+		if(mappedFileCache == null){
+			return null;
+		}
+		MappedFileCache.Mapping mapping = mappedFileCache.acquire(file);
+		if(mapping != null && mapping.length() != totalSize){
+			mapping.close();
+			return null;
+		}
+		return mapping;
+	}
+
+	/**
+	 * 把文件从position开始的count个字节写到out
+	 *
+	 * 优先使用FileChannel.transferTo，由操作系统直接拷贝；
+	 * transferTo没有进展时改用池化的直接缓冲区读写。
+	 */
+	static void transfer(FileChannel in, long position, long count, WritableByteChannel out) throws IOException {
+		long limit = position + count;
+		long n;
+		while(position < limit && (n = in.transferTo(position, limit - position, out)) > 0){
+			position += n;
+		}
+		if(position == limit){
+			return;
+		}
+
+		ByteBuffer buffer = DirectBufferPool.acquire();
+		try{
+			while(position < limit){
+				buffer.clear();
+				if(limit - position < buffer.capacity()){
+					buffer.limit((int) (limit - position));
 				}
+				int len = in.read(buffer, position);
+				if(len < 0){
+					throw new EOFException("file is truncated at " + position + ", expected " + limit + " bytes");
+				}
+				buffer.flip();
+				while(buffer.hasRemaining()){
+					out.write(buffer);
+				}
+				position += len;
 			}
+		}finally {
+			DirectBufferPool.release(buffer);
+		}
+	}
+
+	private static void write(String text, WritableByteChannel out) throws IOException {
+		write(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)), out);
+	}
+
+	private static void write(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+		while(buffer.hasRemaining()){
+			out.write(buffer);
+		}
+	}
+
+	String partHeader(String boundary, Range range) {
+		return CRLF + "--" + boundary + CRLF
+				+ "Content-Type: application/octet-stream" + CRLF
+				+ "Content-Range: " + contentRange(range) + CRLF
+				+ CRLF;
+	}
+
+	static String closeDelimiter(String boundary) {
+		return CRLF + "--" + boundary + "--" + CRLF;
+	}
+
+	/**
+	 * multipart/byteranges响应的总长度，各部分的消息头都是ASCII字符
+	 */
+	private long multipartLength(String boundary) {
+		long length = closeDelimiter(boundary).length();
+		for(Range range : ranges){
+			length += partHeader(boundary, range).length() + range.length();
 		}
+		return length;
 	}
 
 	/**
 	 * 处理Range,获取从那下载,下载多少
-	 * 
+	 *
 	 * Range 请求头格式
 	 * 		Range: bytes=start-end
 	 * 这个表示[start,end]，即是包含请求头的start及end字节的，所以，下一个请求，应该是上一个请求的[end+1, nextEnd]
-	 * 
+	 *
 	 * Range字段支持的写法
 	 * 		Range: bytes=0-1024 获取最前面1025个字节
 	 * 		Range: bytes=-500   获取最后500个字节
 	 * 		Range: bytes=1025-  获取从1025开始到文件末尾所有的字节
 	 * 		Range: 0-0          获取第一个字节
 	 * 		Range: -1           获取最后一个字节
-	 * 
-	 * @return 
+	 * 		Range: bytes=0-99,200-299,-100 用逗号分隔的多个分段
+	 *
+	 * 超出文件范围的分段被丢弃，重叠或相邻的分段被合并。
+	 *
+	 * @return
 	 */
 	public void processRange(String range){
 		// 不存在,则直接将文件全部返回
 		if(StringUtils.isEmpty(range)){
-			start = 0;
-			end = file.length() - 1;
+			ranges = null;
 			return ;
 		}
-		// 设置分段下载的响应消息头
-		setHeaders();
-		String rangeNum = range.replace("bytes=", "").trim();
 
-		// 是否是数字,如果是数字的话，它必须是负的，否则不满足条件
-		// 即满足Range: bytes=-500和Range: -1格式
-		if(StringUtils.isNumeric(rangeNum)){
-			end = parseRangeNumToLong(rangeNum, range);
-			if(end > 0){
-				throw new RuntimeException(range + "is not a illegal Range Header format");
+		String rangeSet = range.trim();
+		if(rangeSet.startsWith("bytes=")){
+			rangeSet = rangeSet.substring("bytes=".length());
+		}
+		List<Range> satisfiable = new ArrayList<>();
+		int specs = 0;
+		for(String rangeSpec : rangeSet.split(",")){
+			rangeSpec = rangeSpec.trim();
+			if(rangeSpec.isEmpty()){
+				continue; // 允许空的列表元素
 			}
-
-			start = totalSize + end;
-			end = totalSize - 1;
-
-			if(start < 0){
-				throw new RuntimeException();
+			specs ++;
+			Range parsed;
+			try{
+				parsed = parseRangeSpec(rangeSpec);
+			}catch (NumberFormatException e){
+				// 格式不正确则忽略Range
+				ranges = null;
+				return ;
 			}
+			if(parsed != null){
+				satisfiable.add(parsed);
+			}
+		}
 
-			return ;
+		ranges = coalesce(satisfiable);
+		if(specs == 0 || ranges.size() > MAX_RANGES){
+			ranges = null;
 		}
+	}
 
-		int strikeIndex = rangeNum.indexOf("-");
+	/**
+	 * 解析单个分段
+	 * @return 超出文件范围则返回null
+	 * @throws NumberFormatException 格式不正确
+	 */
+	private Range parseRangeSpec(String rangeSpec){
+		int strikeIndex = rangeSpec.indexOf("-");
 		// 中划线不存在,则是不合法的
-		if(strikeIndex <= 0){
-			throw new RuntimeException(range + "is not a illegal Range Header format");
+		if(strikeIndex < 0){
+			throw new NumberFormatException(rangeSpec + "is not a illegal Range Header format");
 		}
 
-		start = getRegularRangeIndex(rangeNum.substring(0, strikeIndex), range);
-
-		// 满足格式Range: bytes=1025-
-		if(strikeIndex == rangeNum.length() - 1){
-			end = totalSize - 1;
-			return ;
+		// 即满足Range: bytes=-500和Range: -1格式
+		if(strikeIndex == 0){
+			long suffixLength = parseRangeNum(rangeSpec.substring(1));
+			if(suffixLength == 0 || totalSize == 0){
+				return null;
+			}
+			// 超过文件大小则返回整个文件
+			return new Range(Math.max(totalSize - suffixLength, 0), totalSize - 1);
 		}
 
-		// 最终只剩下格式Range: bytes=0-1024
-		end = getRegularRangeIndex(rangeNum.substring(strikeIndex + 1), range);
+		long start = parseRangeNum(rangeSpec.substring(0, strikeIndex));
+		// 满足格式Range: bytes=1025-
+		long end = strikeIndex == rangeSpec.length() - 1 ? totalSize - 1 : parseRangeNum(rangeSpec.substring(strikeIndex + 1));
 
 		// 开始下载点不能大于截止下载点
-		if(start > end){
-			throw new RuntimeException(range + "is not a illegal Range Header format");
+		if(start > end && strikeIndex != rangeSpec.length() - 1){
+			throw new NumberFormatException(rangeSpec + "is not a illegal Range Header format");
+		}
+		if(start >= totalSize){
+			return null;
+		}
+		// 截止下载点超过文件末尾则截止到文件末尾
+		return new Range(start, Math.min(end, totalSize - 1));
+	}
+
+	/**
+	 * 按开始下载点排序，并合并重叠或相邻的分段
+	 */
+	private static List<Range> coalesce(List<Range> ranges){
+		if(ranges.size() <= 1){
+			return ranges;
 		}
+		ranges.sort((a, b) -> Long.compare(a.start, b.start));
+		List<Range> coalesced = new ArrayList<>();
+		Range last = ranges.get(0);
+		for(int i = 1; i < ranges.size(); i ++){
+			Range range = ranges.get(i);
+			if(range.start <= last.end + 1){
+				last = new Range(last.start, Math.max(last.end, range.end));
+			}else{
+				coalesced.add(last);
+				last = range;
+			}
+		}
+		coalesced.add(last);
+		return coalesced;
 	}
 
-	private void setHeaders() {
+	private void setHeaders(Range range) {
 		 /*
          * Content-Range
          * 		Content-Range: bytes 0-10/3103
          * 这个表示，服务器响应了前(0-10)个字节的数据，该资源一共有(3103)个字节大小。
          */
-		String contentRange = new StringBuilder("bytes ").append(start).append("-").append(end).append("/").append(totalSize).toString();
-		response.setHeader("Content-Range", contentRange);
+		response.setHeader("Content-Range", contentRange(range));
 		response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
 	}
 
+	private String contentRange(Range range) {
+		return new StringBuilder("bytes ").append(range.start).append("-").append(range.end).append("/").append(totalSize).toString();
+	}
 
-	private static long parseRangeNumToLong(String number, String range){
-		try{
-			return Long.parseLong(number);
-		}catch (NumberFormatException e){
-			throw new RuntimeException(range + "is not a illegal Range Header format", e);
+	/**
+	 * 分段位置只能是非负的十进制数
+	 */
+	private static long parseRangeNum(String number){
+		String trimmed = number.trim();
+		if(trimmed.isEmpty() || !StringUtils.isNumeric(trimmed) || !Character.isDigit(trimmed.charAt(0))){
+			throw new NumberFormatException(number + "is not a illegal Range Header format");
 		}
+		return Long.parseLong(trimmed);
 	}
 
-	private long getRegularRangeIndex(String number, String range){
-		long index = parseRangeNumToLong(number, range);
+	/**
+	 * 分段[start, end]
+	 */
+	static final class Range {
+		final long start;
+		final long end;
 
-		// 越界检查
-		if(index < 0 || index > totalSize){
-			throw new RuntimeException("the file's total size is :" + totalSize + ", range(= " + range + ") cross the border");
+		Range(long start, long end) {
+			this.start = start;
+			this.end = end;
 		}
 
-		return index;
+		long length() {
+			return end - start + 1;
+		}
 	}
 }
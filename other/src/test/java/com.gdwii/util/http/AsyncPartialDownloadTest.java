@@ -0,0 +1,192 @@
+package com.gdwii.util.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncPartialDownloadTest {
+	private File file;
+	private byte[] data;
+
+	private final Semaphore permits = new Semaphore(2);
+	private final CountDownLatch completed = new CountDownLatch(1);
+	private final AsyncOutputStream out = new AsyncOutputStream();
+
+	@Before
+	public void createFile() throws IOException {
+		data = new byte[200000];
+		new Random(13).nextBytes(data);
+		file = File.createTempFile("async", ".bin");
+		Files.write(file.toPath(), data);
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	/**
+	 * 输出每写出两块就不再就绪，由测试模拟容器在可写时回调
+	 */
+	@Test
+	public void writesOnlyWhenReady() throws Exception {
+		PartialDownloadTest.Response response = download("bytes=0-99999,150000-", 0);
+		assertEquals(1, permits.availablePermits()); // 写出期间占用许可
+
+		while(completed.getCount() > 0){
+			out.ready = 2;
+			out.listener.onWritePossible();
+		}
+		assertEquals(206, response.getStatus());
+		byte[] content = out.content.toByteArray();
+		assertEquals(Long.parseLong(response.getHeader("Content-Length")), content.length);
+		assertEquals(2, permits.availablePermits());
+	}
+
+	@Test
+	public void singleRange() throws Exception {
+		download("bytes=1000-", 0);
+		out.ready = Integer.MAX_VALUE;
+		out.listener.onWritePossible();
+		assertTrue(completed.await(1, TimeUnit.SECONDS));
+		assertArrayEquals(Arrays.copyOfRange(data, 1000, data.length), out.content.toByteArray());
+	}
+
+	@Test
+	public void throttled() throws Exception {
+		download("bytes=0-99999", 50000);
+		long start = System.nanoTime();
+		out.ready = Integer.MAX_VALUE;
+		out.listener.onWritePossible();
+		assertTrue(completed.await(10, TimeUnit.SECONDS));
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// 第一秒的令牌立即可用，其余50000字节需要约一秒
+		assertTrue("elapsed " + elapsed, elapsed >= 800);
+		assertArrayEquals(Arrays.copyOfRange(data, 0, 100000), out.content.toByteArray());
+		assertEquals(2, permits.availablePermits());
+	}
+
+	/**
+	 * 容器回调onError释放资源后，不再读取已关闭的文件，也不再写出
+	 */
+	@Test
+	public void stopsAfterError() throws Exception {
+		download("bytes=0-99999", 0);
+		out.ready = 1;
+		out.listener.onWritePossible();
+		int written = out.content.size();
+		assertTrue(written > 0);
+
+		((AsyncListener) out.listener).onError(mock(AsyncEvent.class));
+		assertEquals(2, permits.availablePermits());
+		out.ready = Integer.MAX_VALUE;
+		out.listener.onWritePossible();
+		assertEquals(written, out.content.size());
+		assertEquals(1, completed.getCount());
+	}
+
+	@Test
+	public void serviceUnavailable() throws Exception {
+		permits.acquire(2);
+		PartialDownloadTest.Response response = download("bytes=0-99", 0);
+		assertEquals(503, response.getStatus());
+		assertEquals("1", response.getHeader("Retry-After"));
+		assertEquals(0, permits.availablePermits());
+	}
+
+	@Test
+	public void notModifiedReleasesPermit() throws Exception {
+		HttpServletRequest request = request("bytes=0-99");
+		when(request.getHeader("If-None-Match")).thenReturn(HttpResponeUtil.eTag(file));
+		PartialDownloadTest.Response response = new PartialDownloadTest.Response();
+		AsyncPartialDownload download = new AsyncPartialDownload(request, response.mock, file);
+		download.setTransferPermits(permits);
+		download.download();
+		assertEquals(304, response.getStatus());
+		assertEquals(2, permits.availablePermits());
+	}
+
+	private PartialDownloadTest.Response download(String range, long bytesPerSecond) throws IOException {
+		PartialDownloadTest.Response response = new PartialDownloadTest.Response();
+		when(response.mock.getOutputStream()).thenReturn(out);
+		AsyncPartialDownload download = new AsyncPartialDownload(request(range), response.mock, file);
+		download.setTransferPermits(permits);
+		download.setBytesPerSecond(bytesPerSecond);
+		download.download();
+		return response;
+	}
+
+	private HttpServletRequest request(String range) {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getHeader(anyString())).thenReturn(null);
+		when(request.getHeader("Range")).thenReturn(range);
+		when(request.getDateHeader(anyString())).thenReturn(-1L);
+		when(request.isAsyncSupported()).thenReturn(true);
+		AsyncContext asyncContext = mock(AsyncContext.class);
+		when(request.startAsync()).thenReturn(asyncContext);
+		doAnswer(invocation -> {
+			new Thread((Runnable) invocation.getArguments()[0]).start();
+			return null;
+		}).when(asyncContext).start(any(Runnable.class));
+		doAnswer(invocation -> {
+			completed.countDown();
+			return null;
+		}).when(asyncContext).complete();
+		return request;
+	}
+
+	/**
+	 * isReady返回true的次数由ready控制
+	 */
+	private static class AsyncOutputStream extends ServletOutputStream {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		volatile int ready;
+		WriteListener listener;
+
+		@Override
+		public boolean isReady() {
+			return ready-- > 0;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			listener = writeListener;
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			content.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			content.write(b, off, len);
+		}
+	}
+}
@@ -1,17 +1,147 @@
 package com.gdwii.util.http;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
 public class DownloadTest {
 	@Test
 	public void download() throws InterruptedException{
 		new MultiThreadDownload("http://127.0.0.1:7070/http/partalDownload", "d:/download.text", 10).download();
 		Thread.sleep(10000);
 	}
-	
+
 	@Test
 	public void downloadSinle() throws InterruptedException{
 		new MultiThreadDownload("http://127.0.0.1:7070/http/download", "d:/cache.txt", 10).download();
 		Thread.sleep(10000);
 	}
+
+	/**
+	 * 第一次下载时部分分块失败，第二次只下载失败的分块；分块请求带上强ETag作为If-Range
+	 */
+	@Test
+	public void resume() throws IOException{
+		byte[] data = new byte[100000];
+		new Random(7).nextBytes(data);
+		AtomicInteger ranges = new AtomicInteger();
+		AtomicInteger failures = new AtomicInteger(3);
+		Set<String> ifRanges = ConcurrentHashMap.newKeySet();
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/file", exchange -> serve(exchange, data, ranges, failures, ifRanges, "ETag", "\"v1\""));
+		server.start();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		File dest = File.createTempFile("download", ".bin");
+		File journal = new File(dest.getPath() + ".journal");
+		try{
+			String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file";
+			MultiThreadDownload download = new MultiThreadDownload(url, dest.getPath(), 4);
+			download.setMaxBlockSize(10000);
+			try{
+				download.download(executor);
+				fail();
+			}catch (RuntimeException e){
+				assertTrue(journal.exists());
+			}
+			assertEquals(10, ranges.get());
+
+			ranges.set(0);
+			download.download(executor);
+			assertEquals(3, ranges.get());
+			assertFalse(journal.exists());
+			assertArrayEquals(data, Files.readAllBytes(dest.toPath()));
+			assertEquals(Collections.singleton("\"v1\""), ifRanges);
+		}finally {
+			executor.shutdown();
+			server.stop(0);
+			dest.delete();
+			journal.delete();
+		}
+	}
+
+	/**
+	 * 弱ETag不能用作If-Range，改用Last-Modified，两者都没有时不带If-Range
+	 */
+	@Test
+	public void weakETagIsNotSentAsIfRange() throws IOException{
+		String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+		assertEquals(Collections.singleton(lastModified), ifRanges("ETag", "W/\"v1\"", "Last-Modified", lastModified));
+		assertEquals(Collections.singleton(""), ifRanges("ETag", "W/\"v1\""));
+	}
+
+	/**
+	 * 下载整个文件，返回分块请求的If-Range，没有If-Range记为空字符串
+	 */
+	private static Set<String> ifRanges(String... validators) throws IOException{
+		byte[] data = new byte[30000];
+		new Random(3).nextBytes(data);
+		Set<String> ifRanges = ConcurrentHashMap.newKeySet();
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/file", exchange -> serve(exchange, data, new AtomicInteger(), new AtomicInteger(), ifRanges, validators));
+		server.start();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		File dest = File.createTempFile("download", ".bin");
+		try{
+			MultiThreadDownload download = new MultiThreadDownload("http://127.0.0.1:" + server.getAddress().getPort() + "/file", dest.getPath(), 2);
+			download.setMaxBlockSize(10000);
+			download.download(executor);
+			assertArrayEquals(data, Files.readAllBytes(dest.toPath()));
+			return ifRanges;
+		}finally {
+			executor.shutdown();
+			server.stop(0);
+			dest.delete();
+			new File(dest.getPath() + ".journal").delete();
+		}
+	}
+
+	/**
+	 * 支持单个Range的文件服务，failures个分块请求只返回一半数据
+	 * @param validators 响应的ETag、Last-Modified等消息头，名称与值交替
+	 */
+	private static void serve(HttpExchange exchange, byte[] data, AtomicInteger ranges, AtomicInteger failures,
+			Set<String> ifRanges, String... validators) throws IOException {
+		exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+		for(int i = 0; i < validators.length; i += 2){
+			exchange.getResponseHeaders().set(validators[i], validators[i + 1]);
+		}
+		if(exchange.getRequestMethod().equals("HEAD")){
+			exchange.getResponseHeaders().set("Content-Length", String.valueOf(data.length));
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+			return;
+		}
+		String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+		ifRanges.add(ifRange == null ? "" : ifRange);
+		String[] range = exchange.getRequestHeaders().getFirst("Range").substring("bytes=".length()).split("-");
+		int start = Integer.parseInt(range[0]);
+		int end = Integer.parseInt(range[1]);
+		ranges.incrementAndGet();
+		exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+		int length = failures.getAndDecrement() > 0 ? (end - start + 1) / 2 : end - start + 1;
+		exchange.sendResponseHeaders(206, length);
+		try(OutputStream out = exchange.getResponseBody()){
+			out.write(data, start, length);
+		}
+	}
 }
@@ -0,0 +1,107 @@
+package com.gdwii.util.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class MappedFileCacheTest {
+	private final MappedFileCache cache = new MappedFileCache(250, 100);
+
+	private File a;
+	private File b;
+	private File c;
+
+	@After
+	public void deleteFiles() {
+		cache.clear();
+		for(File file : new File[]{a, b, c}){
+			if(file != null){
+				file.delete();
+			}
+		}
+	}
+
+	@Test
+	public void hitAndSlice() throws IOException {
+		a = createFile(100, 1);
+		try(MappedFileCache.Mapping mapping = cache.acquire(a)){
+			ByteBuffer slice = mapping.slice(10, 5);
+			assertEquals(5, slice.remaining());
+			assertEquals(11, slice.get());
+		}
+		try(MappedFileCache.Mapping mapping = cache.acquire(a)){
+			assertEquals(100, mapping.length());
+		}
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(100, cache.getMappedBytes());
+	}
+
+	@Test
+	public void tooLargeOrEmpty() throws IOException {
+		a = createFile(101, 0);
+		b = createFile(0, 0);
+		assertNull(cache.acquire(a));
+		assertNull(cache.acquire(b));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void changedFileIsRemapped() throws IOException {
+		a = createFile(50, 0);
+		cache.acquire(a).close();
+		Files.write(a.toPath(), bytes(60, 7));
+		a.setLastModified(a.lastModified() + 2000);
+		try(MappedFileCache.Mapping mapping = cache.acquire(a)){
+			assertEquals(60, mapping.length());
+			assertEquals(7, mapping.slice(0, 1).get());
+		}
+		assertEquals(2, cache.getMissCount());
+		assertEquals(60, cache.getMappedBytes());
+	}
+
+	/**
+	 * 被淘汰的映射在close之前仍然可以使用
+	 */
+	@Test
+	public void leastRecentlyUsedIsEvicted() throws IOException {
+		a = createFile(100, 0);
+		b = createFile(100, 0);
+		c = createFile(100, 3);
+		MappedFileCache.Mapping held = cache.acquire(a);
+		cache.acquire(b).close();
+		cache.acquire(a).close(); // b成为最近最少使用
+		try(MappedFileCache.Mapping mapping = cache.acquire(c)){
+			assertNotNull(mapping);
+		}
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(200, cache.getMappedBytes());
+
+		cache.invalidate(a);
+		assertEquals(0, held.slice(0, 1).get());
+		held.close();
+		assertEquals(100, cache.getMappedBytes());
+	}
+
+	private static File createFile(int length, int first) throws IOException {
+		File file = File.createTempFile("mapped", ".bin");
+		Files.write(file.toPath(), bytes(length, first));
+		return file;
+	}
+
+	private static byte[] bytes(int length, int first) {
+		byte[] data = new byte[length];
+		for(int i = 0; i < length; i ++){
+			data[i] = (byte) (first + i);
+		}
+		return data;
+	}
+}
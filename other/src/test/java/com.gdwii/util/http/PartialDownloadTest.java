@@ -0,0 +1,311 @@
+package com.gdwii.util.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+public class PartialDownloadTest {
+	private File file;
+	private byte[] data;
+
+	@Before
+	public void createFile() throws IOException {
+		data = new byte[200000];
+		new Random(11).nextBytes(data);
+		file = File.createTempFile("partial", ".bin");
+		Files.write(file.toPath(), data);
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void whole() throws IOException {
+		Response response = download(headers());
+		assertEquals(200, response.getStatus());
+		assertEquals(null, response.getHeader("Content-Range"));
+		assertArrayEquals(data, response.getContentAsByteArray());
+	}
+
+	@Test
+	public void range() throws IOException {
+		Response response = download("bytes=100-70099");
+		assertEquals(206, response.getStatus());
+		assertEquals("bytes 100-70099/200000", response.getHeader("Content-Range"));
+		assertEquals("70000", response.getHeader("Content-Length"));
+		assertArrayEquals(Arrays.copyOfRange(data, 100, 70100), response.getContentAsByteArray());
+	}
+
+	@Test
+	public void suffixAndOpenRanges() throws IOException {
+		Response response = download("bytes=-500");
+		assertEquals("bytes 199500-199999/200000", response.getHeader("Content-Range"));
+		assertArrayEquals(Arrays.copyOfRange(data, 199500, 200000), response.getContentAsByteArray());
+
+		response = download("bytes=199000-");
+		assertArrayEquals(Arrays.copyOfRange(data, 199000, 200000), response.getContentAsByteArray());
+
+		// 截止下载点超过文件末尾
+		response = download("bytes=199990-300000");
+		assertEquals("bytes 199990-199999/200000", response.getHeader("Content-Range"));
+		assertEquals(10, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void multipleRanges() throws IOException {
+		Response response = download("bytes=500-599, 0-99,50-149,-100,200000-");
+		assertEquals(206, response.getStatus());
+		String contentType = response.getHeader("Content-Type");
+		assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+		String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+		// 0-99与50-149合并，200000-超出文件范围被丢弃
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		int[][] parts = {{0, 149}, {500, 599}, {199900, 199999}};
+		for(int[] part : parts){
+			expected.write(("\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes "
+					+ part[0] + "-" + part[1] + "/200000\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+			expected.write(data, part[0], part[1] - part[0] + 1);
+		}
+		expected.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		assertArrayEquals(expected.toByteArray(), response.getContentAsByteArray());
+		assertEquals(String.valueOf(expected.size()), response.getHeader("Content-Length"));
+	}
+
+	@Test
+	public void adjacentRangesAreCoalesced() throws IOException {
+		Response response = download("bytes=100-199,200-299");
+		assertEquals("bytes 100-299/200000", response.getHeader("Content-Range"));
+		assertArrayEquals(Arrays.copyOfRange(data, 100, 300), response.getContentAsByteArray());
+	}
+
+	@Test
+	public void unsatisfiable() throws IOException {
+		Response response = download("bytes=200000-,300000-400000,-0");
+		assertEquals(416, response.getStatus());
+		assertEquals("bytes */200000", response.getHeader("Content-Range"));
+		assertEquals(0, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void illegalRangeIsIgnored() throws IOException {
+		for(String range : new String[]{"bytes=abc", "bytes=5-1", "bytes=", "bytes=1-2,x"}){
+			Response response = download(range);
+			assertEquals(range, 200, response.getStatus());
+			assertArrayEquals(data, response.getContentAsByteArray());
+		}
+	}
+
+	@Test
+	public void validators() throws IOException {
+		Response response = download(headers());
+		String eTag = response.getHeader("ETag");
+		assertEquals(HttpResponeUtil.eTag(file), eTag);
+		assertEquals(String.valueOf(file.lastModified()), response.getHeader("Last-Modified"));
+
+		response = download(headers("If-None-Match", "\"other\", W/" + eTag));
+		assertEquals(304, response.getStatus());
+		assertEquals(0, response.getContentAsByteArray().length);
+
+		response = download(headers("If-None-Match", "\"other\""));
+		assertEquals(200, response.getStatus());
+		assertArrayEquals(data, response.getContentAsByteArray());
+	}
+
+	@Test
+	public void ifModifiedSince() throws IOException {
+		long lastModified = file.lastModified();
+		Response response = download(headers("If-Modified-Since", String.valueOf(lastModified / 1000 * 1000)));
+		assertEquals(304, response.getStatus());
+
+		response = download(headers("If-Modified-Since", String.valueOf(lastModified - 10000)));
+		assertEquals(200, response.getStatus());
+
+		// If-None-Match优先于If-Modified-Since
+		response = download(headers("If-None-Match", "\"other\"", "If-Modified-Since", String.valueOf(lastModified)));
+		assertEquals(200, response.getStatus());
+	}
+
+	@Test
+	public void ifRange() throws IOException {
+		String eTag = HttpResponeUtil.eTag(file);
+		Response response = download(headers("Range", "bytes=0-9", "If-Range", eTag));
+		assertEquals(206, response.getStatus());
+		assertEquals(10, response.getContentAsByteArray().length);
+
+		// 文件已被修改或弱ETag，忽略Range
+		for(String ifRange : new String[]{"\"other\"", "W/" + eTag, "Thu, 01 Jan 1970 00:00:00 GMT"}){
+			response = download(headers("Range", "bytes=0-9", "If-Range", ifRange));
+			assertEquals(ifRange, 200, response.getStatus());
+			assertArrayEquals(data, response.getContentAsByteArray());
+		}
+	}
+
+	@Test
+	public void contentETag() throws IOException {
+		HttpServletRequest request = request(headers());
+		Response response = new Response();
+		PartialDownload download = new PartialDownload(request, response.mock, file);
+		download.setContentETag(true);
+		download.download();
+		assertEquals("\"" + md5(data) + "\"", response.getHeader("ETag"));
+	}
+
+	@Test
+	public void mappedFileCache() throws IOException {
+		MappedFileCache cache = new MappedFileCache(1 << 20, 1 << 20);
+		for(int i = 0; i < 2; i ++){
+			Response response = new Response();
+			PartialDownload download = new PartialDownload(request(headers("Range", "bytes=0-99,1000-1999")), response.mock, file);
+			download.setMappedFileCache(cache);
+			download.download();
+			assertEquals(206, response.getStatus());
+			assertEquals(Long.parseLong(response.getHeader("Content-Length")), response.getContentAsByteArray().length);
+		}
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+
+		Response response = new Response();
+		PartialDownload download = new PartialDownload(request(headers("Range", "bytes=100-70099")), response.mock, file);
+		download.setMappedFileCache(cache);
+		download.download();
+		assertArrayEquals(Arrays.copyOfRange(data, 100, 70100), response.getContentAsByteArray());
+		cache.clear();
+	}
+
+	private static String md5(byte[] data) {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for(byte b : MessageDigest.getInstance("MD5").digest(data)){
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static Map<String, String> headers(String... namesAndValues) {
+		Map<String, String> headers = new HashMap<>();
+		for(int i = 0; i < namesAndValues.length; i += 2){
+			headers.put(namesAndValues[i], namesAndValues[i + 1]);
+		}
+		return headers;
+	}
+
+	private Response download(String range) throws IOException {
+		return download(headers("Range", range));
+	}
+
+	private Response download(Map<String, String> headers) throws IOException {
+		Response response = new Response();
+		new PartialDownload(request(headers), response.mock, file).download();
+		return response;
+	}
+
+	/**
+	 * 时间类的消息头在测试中用毫秒数表示
+	 */
+	private static HttpServletRequest request(Map<String, String> headers) {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getHeader(anyString())).thenAnswer(invocation -> headers.get(invocation.getArguments()[0]));
+		when(request.getDateHeader(anyString())).thenAnswer(invocation -> {
+			String value = headers.get(invocation.getArguments()[0]);
+			if(value == null){
+				return -1L;
+			}
+			try{
+				return Long.parseLong(value);
+			}catch (NumberFormatException e){
+				throw new IllegalArgumentException(value);
+			}
+		});
+		return request;
+	}
+
+	/**
+	 * 记录状态码、消息头及响应内容
+	 */
+	static class Response {
+		final HttpServletResponse mock = mock(HttpServletResponse.class);
+		final Map<String, String> headers = new HashMap<>();
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		int status = 200;
+
+		Response() throws IOException {
+			doAnswer(invocation -> headers.put((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]))
+					.when(mock).setHeader(anyString(), anyString());
+			doAnswer(invocation -> headers.put((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]))
+					.when(mock).addHeader(anyString(), anyString());
+			doAnswer(invocation -> headers.put("Content-Length", String.valueOf(invocation.getArguments()[0])))
+					.when(mock).setContentLengthLong(anyLong());
+			doAnswer(invocation -> headers.put("Content-Type", (String) invocation.getArguments()[0]))
+					.when(mock).setContentType(anyString());
+			doAnswer(invocation -> headers.put((String) invocation.getArguments()[0], String.valueOf(invocation.getArguments()[1])))
+					.when(mock).setDateHeader(anyString(), anyLong());
+			doAnswer(invocation -> status = (Integer) invocation.getArguments()[0]).when(mock).setStatus(anyInt());
+			when(mock.getOutputStream()).thenReturn(new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					content.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+					content.write(b, off, len);
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+				}
+			});
+		}
+
+		int getStatus() {
+			return status;
+		}
+
+		String getHeader(String name) {
+			return headers.get(name);
+		}
+
+		byte[] getContentAsByteArray() {
+			return content.toByteArray();
+		}
+	}
+}